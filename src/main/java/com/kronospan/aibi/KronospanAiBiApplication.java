@@ -1,10 +1,12 @@
 package com.kronospan.aibi;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
@@ -17,6 +19,7 @@ import java.util.concurrent.Executor;
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 @EnableConfigurationProperties
 public class KronospanAiBiApplication {
 
@@ -43,4 +46,19 @@ public class KronospanAiBiApplication {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Bounded executor for report sections generated in parallel
+     * Kept below the read-only pool size so sections never queue for connections
+     */
+    @Bean(name = "reportExecutor")
+    public Executor reportExecutor(@Value("${kronospan.ai.report.executor-threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("Report-");
+        executor.initialize();
+        return executor;
+    }
+}
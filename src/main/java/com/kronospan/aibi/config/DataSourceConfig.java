@@ -0,0 +1,86 @@
+package com.kronospan.aibi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DataSource Configuration
+ *
+ * Two Hikari pools on the same database: the write pool (spring.datasource.hikari)
+ * for imports and other read-write transactions, and a read-only pool
+ * (kronospan.ai.datasource.read-only.hikari) for dashboard, query and report
+ * traffic. Connections are routed by the transaction's readOnly flag, so a long
+ * import can no longer starve report requests of connections.
+ *
+ * The router sits behind a LazyConnectionDataSourceProxy: the physical
+ * connection is only fetched at the first statement, after the transaction
+ * manager has published the readOnly flag.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    public static final String WRITE_POOL = "write";
+    public static final String READ_POOL = "read";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("kronospan-write");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("kronospan.ai.datasource.read-only.hikari")
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("kronospan-read");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("writeDataSource") DataSource writeDataSource,
+                                 @Qualifier("readDataSource") DataSource readDataSource) {
+        ReadOnlyRoutingDataSource routing = new ReadOnlyRoutingDataSource();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(WRITE_POOL, writeDataSource);
+        targets.put(READ_POOL, readDataSource);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(writeDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Picks the read pool inside @Transactional(readOnly = true), the write pool otherwise
+     */
+    static class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? READ_POOL : WRITE_POOL;
+        }
+    }
+}
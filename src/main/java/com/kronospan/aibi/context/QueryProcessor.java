@@ -5,7 +5,10 @@ import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Context Engineering Query Processor
@@ -16,6 +19,8 @@ import java.util.concurrent.CompletableFuture;
 @Component
 public class QueryProcessor {
     
+    private static final Pattern YEAR = Pattern.compile("\\b(19|20)\\d{2}\\b");
+    
     @Autowired
     private BusinessContext businessContext;
     
@@ -166,18 +171,8 @@ public class QueryProcessor {
                    "ORDER BY gc.company_name, d.appointment_date";
         }
         
-        if (query.contains("variance") && (query.contains("2023") || query.contains("2024"))) {
-            return "SELECT " +
-                   "wcf2024.company_id, " +
-                   "gc.company_name, " +
-                   "wcf2024.limit_amount as amount_2024, " +
-                   "wcf2023.limit_amount as amount_2023, " +
-                   "(wcf2024.limit_amount - wcf2023.limit_amount) as variance " +
-                   "FROM working_capital_facilities wcf2024 " +
-                   "JOIN group_companies gc ON wcf2024.company_id = gc.id " +
-                   "LEFT JOIN working_capital_facilities wcf2023 ON wcf2024.company_id = wcf2023.company_id " +
-                   "WHERE wcf2024.report_date >= '2024-01-01' AND wcf2023.report_date >= '2023-01-01' AND wcf2023.report_date < '2024-01-01' " +
-                   "ORDER BY variance DESC";
+        if (query.contains("variance")) {
+            return varianceSQL(query);
         }
         
         // Start with basic SELECT based on intent
@@ -249,6 +244,52 @@ public class QueryProcessor {
         return sql.toString();
     }
     
+    /**
+     * Company variance between two report snapshots, read from the
+     * date-keyed company summary. Two years mentioned in the query compare the
+     * last snapshot of each; one year compares its last snapshot with the
+     * latest; otherwise the latest two snapshots are compared.
+     */
+    private String varianceSQL(String query) {
+        TreeSet<Integer> years = new TreeSet<>();
+        Matcher matcher = YEAR.matcher(query);
+        while (matcher.find()) {
+            years.add(Integer.parseInt(matcher.group()));
+        }
+        
+        String latest = "(SELECT MAX(report_date) FROM wcf_summary_company)";
+        String fromDate;
+        String toDate;
+        if (years.size() >= 2) {
+            fromDate = lastSnapshotOf(years.first());
+            toDate = lastSnapshotOf(years.last());
+        } else if (years.size() == 1) {
+            fromDate = lastSnapshotOf(years.first());
+            toDate = latest;
+        } else {
+            fromDate = "(SELECT MAX(report_date) FROM wcf_summary_company WHERE report_date < " + latest + ")";
+            toDate = latest;
+        }
+        
+        return "WITH periods AS (SELECT " + fromDate + " AS from_date, " + toDate + " AS to_date) " +
+               "SELECT s.company_id, gc.company_name, " +
+               "p.from_date, p.to_date, " +
+               "SUM(CASE WHEN s.report_date = p.from_date THEN s.total_limit END) as amount_from, " +
+               "SUM(CASE WHEN s.report_date = p.to_date THEN s.total_limit END) as amount_to, " +
+               "COALESCE(SUM(CASE WHEN s.report_date = p.to_date THEN s.total_limit END), 0) - " +
+               "COALESCE(SUM(CASE WHEN s.report_date = p.from_date THEN s.total_limit END), 0) as variance " +
+               "FROM periods p " +
+               "JOIN wcf_summary_company s ON s.report_date IN (p.from_date, p.to_date) " +
+               "JOIN group_companies gc ON s.company_id = gc.id " +
+               "GROUP BY s.company_id, gc.company_name, p.from_date, p.to_date " +
+               "ORDER BY variance DESC";
+    }
+    
+    private static String lastSnapshotOf(int year) {
+        return "(SELECT MAX(report_date) FROM wcf_summary_company " +
+               "WHERE report_date BETWEEN DATE '" + year + "-01-01' AND DATE '" + year + "-12-31')";
+    }
+    
     /**
      * Process query asynchronously for better performance
      */
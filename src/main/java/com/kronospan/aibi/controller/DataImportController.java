@@ -1,12 +1,16 @@
 package com.kronospan.aibi.controller;
 
+import com.kronospan.aibi.repository.QuarantinedRowRepository;
 import com.kronospan.aibi.service.importer.ExcelImportService;
 import com.kronospan.aibi.service.importer.PDFImportService;
+import com.kronospan.aibi.service.importer.SourceFileRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -25,6 +29,12 @@ public class DataImportController {
     @Autowired
     private PDFImportService pdfImportService;
     
+    @Autowired
+    private QuarantinedRowRepository quarantineRepository;
+    
+    @Autowired
+    private SourceFileRegistry sourceFiles;
+    
     /**
      * Import all Kronospan data
      * POST /api/v1/import/all
@@ -153,6 +163,94 @@ public class DataImportController {
         });
     }
     
+    /**
+     * Bulk-load snapshot files for backfills
+     * POST /api/v1/import/bulk
+     * Body: {"type": "WCR" | "WCR_CSV" | "LTL", "files": ["path", ...]}
+     * Paths are relative to kronospan.ai.import.bulk-dir
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<Map<String, Object>> bulkImport(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            String type = String.valueOf(request.getOrDefault("type", "WCR")).toUpperCase();
+            @SuppressWarnings("unchecked")
+            List<String> files = (List<String>) request.get("files");
+            if (files == null || files.isEmpty()) {
+                response.put("status", "ERROR");
+                response.put("error", "No files given");
+                return ResponseEntity.badRequest().body(response);
+            }
+            
+            Map<String, Object> summary;
+            switch (type) {
+                case "WCR":
+                    summary = excelImportService.bulkImportWCRFiles(files);
+                    break;
+                case "WCR_CSV":
+                    summary = excelImportService.bulkImportWCRCsvFiles(files);
+                    break;
+                case "LTL":
+                    summary = excelImportService.bulkImportLTLFiles(files);
+                    break;
+                default:
+                    response.put("status", "ERROR");
+                    response.put("error", "Unknown bulk import type: " + type);
+                    return ResponseEntity.badRequest().body(response);
+            }
+            
+            response.put("status", "SUCCESS");
+            response.put("type", type);
+            response.putAll(summary);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("status", "ERROR");
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("status", "ERROR");
+            response.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * Get quarantined row counts per file and reason
+     * GET /api/v1/import/quarantine
+     */
+    @GetMapping("/quarantine")
+    public ResponseEntity<Map<String, Object>> getQuarantineSummary() {
+        Map<String, Object> response = new HashMap<>();
+        
+        Map<String, Map<String, Long>> byFile = new LinkedHashMap<>();
+        long total = 0;
+        for (Object[] row : quarantineRepository.countBySourceFileAndReason()) {
+            long count = ((Number) row[2]).longValue();
+            byFile.computeIfAbsent((String) row[0], file -> new LinkedHashMap<>()).put((String) row[1], count);
+            total += count;
+        }
+        
+        response.put("quarantined_rows", total);
+        response.put("by_file", byFile);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Get imported source files with their hashes and the latest consistency check
+     * GET /api/v1/import/source-files?verify=false
+     */
+    @GetMapping("/source-files")
+    public ResponseEntity<Map<String, Object>> getSourceFiles(@RequestParam(defaultValue = "false") boolean verify) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("files", sourceFiles.listFiles());
+        response.put("last_check", verify ? sourceFiles.verify() : sourceFiles.getLastCheck());
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Get import status
      * GET /api/v1/import/status
@@ -171,7 +269,9 @@ public class DataImportController {
             "POST /api/v1/import/all - Import all data",
             "POST /api/v1/import/wcr - Import WCR data only",
             "POST /api/v1/import/ltl - Import LTL data only",
-            "POST /api/v1/import/async - Import all data asynchronously"
+            "POST /api/v1/import/async - Import all data asynchronously",
+            "POST /api/v1/import/bulk - Bulk-load WCR/LTL snapshot files for backfills",
+            "GET /api/v1/import/quarantine - Rows rejected during import"
         });
         
         status.put("data_location", new String[]{
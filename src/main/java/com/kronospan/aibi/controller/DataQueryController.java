@@ -1,17 +1,34 @@
 package com.kronospan.aibi.controller;
 
-import com.kronospan.aibi.model.WorkingCapitalFacility;
-import com.kronospan.aibi.model.LongTermLoan;
-import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.dto.CompanyView;
+import com.kronospan.aibi.dto.FacilityView;
+import com.kronospan.aibi.dto.KeysetCursor;
+import com.kronospan.aibi.dto.LoanView;
+import com.kronospan.aibi.model.DocumentTextChunk;
 import com.kronospan.aibi.repository.WorkingCapitalFacilityRepository;
 import com.kronospan.aibi.repository.LongTermLoanRepository;
 import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.repository.DocumentRepository;
+import com.kronospan.aibi.repository.DocumentSummary;
+import com.kronospan.aibi.repository.DocumentTextChunkRepository;
+import com.kronospan.aibi.service.ConnectionPoolMonitor;
+import com.kronospan.aibi.service.DataExportService;
+import com.kronospan.aibi.service.DataSummaryService;
+import com.kronospan.aibi.service.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,47 +50,79 @@ public class DataQueryController {
     @Autowired
     private GroupCompanyRepository companyRepository;
     
+    @Autowired
+    private DocumentRepository documentRepository;
+    
+    @Autowired
+    private DocumentTextChunkRepository chunkRepository;
+    
+    @Autowired
+    private DataExportService dataExportService;
+    
+    @Autowired
+    private DataSummaryService dataSummaryService;
+    
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+    
+    @Value("${kronospan.ai.pagination.default-page-size:500}")
+    private int defaultPageSize;
+    
+    @Value("${kronospan.ai.pagination.max-page-size:5000}")
+    private int maxPageSize;
+    
+    private static final String NDJSON = "application/x-ndjson";
+    
     /**
      * Get data summary
      * GET /api/v1/data/summary
      */
     @GetMapping("/summary")
     public ResponseEntity<Map<String, Object>> getDataSummary() {
-        Map<String, Object> summary = new HashMap<>();
-        
-        long wcrCount = wcrRepository.count();
-        long ltlCount = ltlRepository.count();
-        long companyCount = companyRepository.count();
-        
-        summary.put("working_capital_facilities", wcrCount);
-        summary.put("long_term_loans", ltlCount);
-        summary.put("group_companies", companyCount);
-        summary.put("total_records", wcrCount + ltlCount + companyCount);
-        
-        // Get top banks by facility count
-        if (wcrCount > 0) {
-            List<WorkingCapitalFacility> topFacilities = wcrRepository.findAll();
-            Map<String, Integer> bankCounts = new HashMap<>();
-            
-            for (WorkingCapitalFacility facility : topFacilities) {
-                bankCounts.put(facility.getBankName(), 
-                    bankCounts.getOrDefault(facility.getBankName(), 0) + 1);
+        return ResponseEntity.ok(dataSummaryService.getSummary());
+    }
+    
+    /**
+     * Get working capital facilities, one keyset page at a time ordered by (report date, id)
+     * GET /api/v1/data/wcr?limit=500&cursor={next_cursor}
+     */
+    @GetMapping("/wcr")
+    public ResponseEntity<Map<String, Object>> getAllWCRFacilities(@RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) String cursor) {
+        int size = pageSize(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<FacilityView> facilities;
+        try {
+            if (cursor == null) {
+                facilities = wcrRepository.findViewPage(page);
+            } else {
+                String[] key = KeysetCursor.decode(cursor, 2);
+                facilities = wcrRepository.findViewPageAfter(LocalDate.parse(key[0]), Long.valueOf(key[1]), page);
             }
-            
-            summary.put("top_banks", bankCounts);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return badCursor(cursor);
         }
         
-        return ResponseEntity.ok(summary);
+        String nextCursor = null;
+        if (facilities.size() > size) {
+            facilities = facilities.subList(0, size);
+            FacilityView last = facilities.get(size - 1);
+            nextCursor = KeysetCursor.encode(last.getReportDate(), last.getId());
+        }
+        return ResponseEntity.ok(pageResponse(facilities, nextCursor, size));
     }
     
     /**
-     * Get all working capital facilities
-     * GET /api/v1/data/wcr
+     * Stream every working capital facility as NDJSON
+     * GET /api/v1/data/wcr/stream
      */
-    @GetMapping("/wcr")
-    public ResponseEntity<List<WorkingCapitalFacility>> getAllWCRFacilities() {
-        List<WorkingCapitalFacility> facilities = wcrRepository.findAll();
-        return ResponseEntity.ok(facilities);
+    @GetMapping(value = "/wcr/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamWCRFacilities() {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON))
+                .body(dataExportService::streamFacilities);
     }
     
     /**
@@ -81,8 +130,8 @@ public class DataQueryController {
      * GET /api/v1/data/wcr/bank/{bankName}
      */
     @GetMapping("/wcr/bank/{bankName}")
-    public ResponseEntity<List<WorkingCapitalFacility>> getFacilitiesByBank(@PathVariable String bankName) {
-        List<WorkingCapitalFacility> facilities = wcrRepository.findByBankName(bankName);
+    public ResponseEntity<List<FacilityView>> getFacilitiesByBank(@PathVariable String bankName) {
+        List<FacilityView> facilities = wcrRepository.findViewsByBankName(bankName);
         return ResponseEntity.ok(facilities);
     }
     
@@ -91,8 +140,8 @@ public class DataQueryController {
      * GET /api/v1/data/wcr/amount/{threshold}
      */
     @GetMapping("/wcr/amount/{threshold}")
-    public ResponseEntity<List<WorkingCapitalFacility>> getFacilitiesOverAmount(@PathVariable BigDecimal threshold) {
-        List<WorkingCapitalFacility> facilities = wcrRepository.findByLimitAmountGreaterThan(threshold);
+    public ResponseEntity<List<FacilityView>> getFacilitiesOverAmount(@PathVariable BigDecimal threshold) {
+        List<FacilityView> facilities = wcrRepository.findViewsByLimitAmountGreaterThan(threshold);
         return ResponseEntity.ok(facilities);
     }
     
@@ -101,19 +150,42 @@ public class DataQueryController {
      * GET /api/v1/data/wcr/utilization/{threshold}
      */
     @GetMapping("/wcr/utilization/{threshold}")
-    public ResponseEntity<List<WorkingCapitalFacility>> getFacilitiesWithHighUtilization(@PathVariable BigDecimal threshold) {
-        List<WorkingCapitalFacility> facilities = wcrRepository.findByUtilizationPercentageGreaterThan(threshold);
+    public ResponseEntity<List<FacilityView>> getFacilitiesWithHighUtilization(@PathVariable BigDecimal threshold) {
+        List<FacilityView> facilities = wcrRepository.findViewsByUtilizationPercentageGreaterThan(threshold);
         return ResponseEntity.ok(facilities);
     }
     
     /**
-     * Get all long term loans
-     * GET /api/v1/data/ltl
+     * Get long term loans, one keyset page at a time ordered by id
+     * GET /api/v1/data/ltl?limit=500&cursor={next_cursor}
      */
     @GetMapping("/ltl")
-    public ResponseEntity<List<LongTermLoan>> getAllLTLLoans() {
-        List<LongTermLoan> loans = ltlRepository.findAll();
-        return ResponseEntity.ok(loans);
+    public ResponseEntity<Map<String, Object>> getAllLTLLoans(@RequestParam(required = false) Integer limit,
+                                                              @RequestParam(required = false) String cursor) {
+        int size = pageSize(limit);
+        List<LoanView> loans;
+        try {
+            loans = ltlRepository.findViewPageAfter(afterId(cursor), PageRequest.of(0, size + 1));
+        } catch (IllegalArgumentException e) {
+            return badCursor(cursor);
+        }
+        
+        String nextCursor = null;
+        if (loans.size() > size) {
+            loans = loans.subList(0, size);
+            nextCursor = KeysetCursor.encode(loans.get(size - 1).getId());
+        }
+        return ResponseEntity.ok(pageResponse(loans, nextCursor, size));
+    }
+    
+    /**
+     * Stream every long term loan as NDJSON
+     * GET /api/v1/data/ltl/stream
+     */
+    @GetMapping(value = "/ltl/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamLTLLoans() {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON))
+                .body(dataExportService::streamLoans);
     }
     
     /**
@@ -121,19 +193,42 @@ public class DataQueryController {
      * GET /api/v1/data/ltl/lender/{lenderName}
      */
     @GetMapping("/ltl/lender/{lenderName}")
-    public ResponseEntity<List<LongTermLoan>> getLoansByLender(@PathVariable String lenderName) {
-        List<LongTermLoan> loans = ltlRepository.findByLenderName(lenderName);
+    public ResponseEntity<List<LoanView>> getLoansByLender(@PathVariable String lenderName) {
+        List<LoanView> loans = ltlRepository.findViewsByLenderName(lenderName);
         return ResponseEntity.ok(loans);
     }
     
     /**
-     * Get all group companies
-     * GET /api/v1/data/companies
+     * Get group companies, one keyset page at a time ordered by id
+     * GET /api/v1/data/companies?limit=500&cursor={next_cursor}
      */
     @GetMapping("/companies")
-    public ResponseEntity<List<GroupCompany>> getAllCompanies() {
-        List<GroupCompany> companies = companyRepository.findAll();
-        return ResponseEntity.ok(companies);
+    public ResponseEntity<Map<String, Object>> getAllCompanies(@RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String cursor) {
+        int size = pageSize(limit);
+        List<CompanyView> companies;
+        try {
+            companies = companyRepository.findViewPageAfter(afterId(cursor), PageRequest.of(0, size + 1));
+        } catch (IllegalArgumentException e) {
+            return badCursor(cursor);
+        }
+        
+        String nextCursor = null;
+        if (companies.size() > size) {
+            companies = companies.subList(0, size);
+            nextCursor = KeysetCursor.encode(companies.get(size - 1).getId());
+        }
+        return ResponseEntity.ok(pageResponse(companies, nextCursor, size));
+    }
+    
+    /**
+     * Stream every group company as NDJSON
+     * GET /api/v1/data/companies/stream
+     */
+    @GetMapping(value = "/companies/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamCompanies() {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON))
+                .body(dataExportService::streamCompanies);
     }
     
     /**
@@ -141,11 +236,75 @@ public class DataQueryController {
      * GET /api/v1/data/companies/country/{country}
      */
     @GetMapping("/companies/country/{country}")
-    public ResponseEntity<List<GroupCompany>> getCompaniesByCountry(@PathVariable String country) {
-        List<GroupCompany> companies = companyRepository.findByCountry(country);
+    public ResponseEntity<List<CompanyView>> getCompaniesByCountry(@PathVariable String country) {
+        List<CompanyView> companies = companyRepository.findViewsByCountry(country);
         return ResponseEntity.ok(companies);
     }
     
+    /**
+     * List documents without their text
+     * GET /api/v1/data/documents?type=PDF
+     */
+    @GetMapping("/documents")
+    public ResponseEntity<List<DocumentSummary>> getDocuments(@RequestParam(required = false) String type) {
+        List<DocumentSummary> documents = type != null
+                ? documentRepository.findSummariesByDocumentType(type)
+                : documentRepository.findAllProjectedBy();
+        return ResponseEntity.ok(documents);
+    }
+    
+    /**
+     * Get document text by page or by chunk (all chunks when neither is given)
+     * GET /api/v1/data/documents/{id}/text?page=3 or ?chunk=0
+     */
+    @GetMapping("/documents/{id}/text")
+    public ResponseEntity<Map<String, Object>> getDocumentText(@PathVariable Long id,
+                                                               @RequestParam(required = false) Integer page,
+                                                               @RequestParam(required = false) Integer chunk) {
+        List<DocumentTextChunk> chunks;
+        if (chunk != null) {
+            chunks = new ArrayList<>();
+            chunkRepository.findByDocumentIdAndChunkIndex(id, chunk).ifPresent(chunks::add);
+        } else if (page != null) {
+            chunks = chunkRepository.findByDocumentIdAndPageNumberOrderByChunkIndex(id, page);
+        } else {
+            chunks = chunkRepository.findByDocumentIdOrderByChunkIndex(id);
+        }
+        
+        List<Map<String, Object>> parts = new ArrayList<>();
+        for (DocumentTextChunk part : chunks) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("chunk_index", part.getChunkIndex());
+            entry.put("page_number", part.getPageNumber());
+            entry.put("text", part.getText());
+            parts.add(entry);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("document_id", id);
+        response.put("total_chunks", chunkRepository.countByDocumentId(id));
+        response.put("chunks", parts);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Get second-level cache hit/miss statistics per region
+     * GET /api/v1/data/cache-stats
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStatistics() {
+        return ResponseEntity.ok(referenceDataCache.getStatistics());
+    }
+    
+    /**
+     * Get usage of the write and read-only connection pools
+     * GET /api/v1/data/pool-stats
+     */
+    @GetMapping("/pool-stats")
+    public ResponseEntity<Map<String, Object>> getPoolStatistics() {
+        return ResponseEntity.ok(connectionPoolMonitor.getStatistics());
+    }
+    
     /**
      * Execute natural language demo queries
      * GET /api/v1/data/demo/query/{queryId}
@@ -157,7 +316,7 @@ public class DataQueryController {
         switch (queryId) {
             case 1:
                 // "Show me all facilities with limits over 1 million EUR"
-                List<WorkingCapitalFacility> largeFacilities = wcrRepository.findByLimitAmountGreaterThan(BigDecimal.valueOf(1000000));
+                List<FacilityView> largeFacilities = wcrRepository.findViewsByLimitAmountGreaterThan(BigDecimal.valueOf(1000000));
                 result.put("query", "Show me all facilities with limits over 1 million EUR");
                 result.put("results", largeFacilities);
                 result.put("count", largeFacilities.size());
@@ -165,7 +324,7 @@ public class DataQueryController {
                 
             case 2:
                 // "Which companies have utilization over 80%?"
-                List<WorkingCapitalFacility> highUtilization = wcrRepository.findByUtilizationPercentageGreaterThan(BigDecimal.valueOf(80));
+                List<FacilityView> highUtilization = wcrRepository.findViewsByUtilizationPercentageGreaterThan(BigDecimal.valueOf(80));
                 result.put("query", "Which companies have utilization over 80%?");
                 result.put("results", highUtilization);
                 result.put("count", highUtilization.size());
@@ -173,7 +332,7 @@ public class DataQueryController {
                 
             case 3:
                 // "What are the PKO BP facilities?"
-                List<WorkingCapitalFacility> pkoFacilities = wcrRepository.findByBankName("PKO BP");
+                List<FacilityView> pkoFacilities = wcrRepository.findViewsByBankName("PKO BP");
                 result.put("query", "What are the PKO BP facilities?");
                 result.put("results", pkoFacilities);
                 result.put("count", pkoFacilities.size());
@@ -181,7 +340,7 @@ public class DataQueryController {
                 
             case 4:
                 // "Show me all long term loans"
-                List<LongTermLoan> allLoans = ltlRepository.findAll();
+                List<LoanView> allLoans = ltlRepository.findAllViews();
                 result.put("query", "Show me all long term loans");
                 result.put("results", allLoans);
                 result.put("count", allLoans.size());
@@ -189,7 +348,7 @@ public class DataQueryController {
                 
             case 5:
                 // "Which are the Cyprus companies?"
-                List<GroupCompany> cyprusCompanies = companyRepository.findByCountry("Cyprus");
+                List<CompanyView> cyprusCompanies = companyRepository.findViewsByCountry("Cyprus");
                 result.put("query", "Which are the Cyprus companies?");
                 result.put("results", cyprusCompanies);
                 result.put("count", cyprusCompanies.size());
@@ -202,4 +361,29 @@ public class DataQueryController {
         
         return ResponseEntity.ok(result);
     }
-}
\ No newline at end of file
+    
+    private int pageSize(Integer limit) {
+        if (limit == null) return defaultPageSize;
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+    
+    private Long afterId(String cursor) {
+        return cursor == null ? 0L : Long.valueOf(KeysetCursor.decode(cursor, 1)[0]);
+    }
+    
+    private Map<String, Object> pageResponse(List<?> items, String nextCursor, int limit) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", items);
+        response.put("count", items.size());
+        response.put("limit", limit);
+        response.put("has_more", nextCursor != null);
+        response.put("next_cursor", nextCursor);
+        return response;
+    }
+    
+    private ResponseEntity<Map<String, Object>> badCursor(String cursor) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Invalid cursor: " + cursor);
+        return ResponseEntity.badRequest().body(error);
+    }
+}
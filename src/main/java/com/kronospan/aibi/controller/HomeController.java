@@ -116,19 +116,19 @@ public class HomeController {
         html.append("<div class='endpoint'>");
         html.append("<span class='method get'>GET</span>");
         html.append("<code>/api/v1/data/wcr</code>");
-        html.append("<div class='description'>Get all working capital facilities</div>");
+        html.append("<div class='description'>Get working capital facilities (keyset pages: ?limit=&cursor=; full NDJSON export at /wcr/stream)</div>");
         html.append("</div>");
         
         html.append("<div class='endpoint'>");
         html.append("<span class='method get'>GET</span>");
         html.append("<code>/api/v1/data/ltl</code>");
-        html.append("<div class='description'>Get all long term loans</div>");
+        html.append("<div class='description'>Get long term loans (keyset pages: ?limit=&cursor=; full NDJSON export at /ltl/stream)</div>");
         html.append("</div>");
         
         html.append("<div class='endpoint'>");
         html.append("<span class='method get'>GET</span>");
         html.append("<code>/api/v1/data/companies</code>");
-        html.append("<div class='description'>Get all group companies</div>");
+        html.append("<div class='description'>Get group companies (keyset pages: ?limit=&cursor=; full NDJSON export at /companies/stream)</div>");
         html.append("</div>");
         
         html.append("<div class='endpoint'>");
@@ -1,16 +1,37 @@
 package com.kronospan.aibi.controller;
 
+import com.kronospan.aibi.service.BankExposureEngine;
+import com.kronospan.aibi.service.ReportExportService;
 import com.kronospan.aibi.service.ReportGenerationService;
+import com.kronospan.aibi.service.ReportPdfRenderer;
+import com.kronospan.aibi.service.ReportPregenerator;
+import com.kronospan.aibi.service.ReportSnapshotCache;
+import com.kronospan.aibi.service.SnapshotVarianceEngine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Report Generation Controller
  * Handles executive report generation and multi-page layout
+ * 
+ * Reports are served from the snapshot cache with a strong ETag that also
+ * covers the number format of the request locale; a GET with a matching
+ * If-None-Match is answered 304 Not Modified by Spring MVC. Standard
+ * reports with default parameters are read from their pregenerated files.
  */
 @RestController
 @RequestMapping("/api/v1/reports")
@@ -18,14 +39,29 @@ import java.util.Map;
 public class ReportController {
     
     @Autowired
-    private ReportGenerationService reportService;
+    private BankExposureEngine bankExposureEngine;
+    
+    @Autowired
+    private ReportSnapshotCache reportCache;
+    
+    @Autowired
+    private SnapshotVarianceEngine varianceEngine;
+    
+    @Autowired
+    private ReportExportService reportExportService;
+    
+    @Autowired
+    private ReportPdfRenderer reportPdfRenderer;
+    
+    @Autowired
+    private ReportPregenerator reportPregenerator;
     
     /**
      * Generate Working Capital Analysis Report
      * GET /api/v1/reports/working-capital
      */
     @GetMapping("/working-capital")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateWorkingCapitalReport(
+    public ResponseEntity<?> generateWorkingCapitalReport(
             @RequestParam(required = false) String currency,
             @RequestParam(required = false) String country) {
         
@@ -33,10 +69,7 @@ public class ReportController {
         if (currency != null) parameters.put("currency", currency);
         if (country != null) parameters.put("country", country);
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport("working_capital_analysis", parameters);
-        
-        return ResponseEntity.ok(report);
+        return cachedReport("working_capital_analysis", parameters);
     }
     
     /**
@@ -44,33 +77,63 @@ public class ReportController {
      * GET /api/v1/reports/cyprus-entities
      */
     @GetMapping("/cyprus-entities")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateCyprusEntitiesReport() {
+    public ResponseEntity<?> generateCyprusEntitiesReport() {
         
         Map<String, Object> parameters = new HashMap<>();
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport("cyprus_entities_governance", parameters);
-        
-        return ResponseEntity.ok(report);
+        return cachedReport("cyprus_entities_governance", parameters);
     }
     
     /**
      * Generate Financial Variance Analysis Report
-     * GET /api/v1/reports/variance-analysis
+     * GET /api/v1/reports/variance-analysis?fromPeriod=2023-12&toPeriod=2024-07&dimension=bank
      */
     @GetMapping("/variance-analysis")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateVarianceReport(
-            @RequestParam(required = false, defaultValue = "2023") String fromPeriod,
-            @RequestParam(required = false, defaultValue = "2024") String toPeriod) {
+    public ResponseEntity<?> generateVarianceReport(
+            @RequestParam(required = false) String fromPeriod,
+            @RequestParam(required = false) String toPeriod,
+            @RequestParam(required = false) String periods,
+            @RequestParam(required = false) String dimension) {
         
         Map<String, Object> parameters = new HashMap<>();
-        parameters.put("from_period", fromPeriod);
-        parameters.put("to_period", toPeriod);
+        if (fromPeriod != null) parameters.put("from_period", fromPeriod);
+        if (toPeriod != null) parameters.put("to_period", toPeriod);
+        if (periods != null) parameters.put("periods", periods);
+        if (dimension != null) parameters.put("dimension", dimension);
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport("financial_variance_analysis", parameters);
-        
-        return ResponseEntity.ok(report);
+        try {
+            return cachedReport("financial_variance_analysis", parameters);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Compare facility limits across two or more snapshots by company, bank, country or currency;
+     * a period is a year, a month or a date, and without periods the latest two snapshots are compared
+     * GET /api/v1/reports/variance/compare?periods=2023-12,2024-07&dimension=bank
+     */
+    @GetMapping("/variance/compare")
+    public ResponseEntity<Map<String, Object>> compareSnapshots(
+            @RequestParam(required = false) List<String> periods,
+            @RequestParam(required = false, defaultValue = "company") String dimension) {
+        try {
+            SnapshotVarianceEngine.Dimension parsed = SnapshotVarianceEngine.Dimension.parse(dimension);
+            return ResponseEntity.ok(varianceEngine.compare(periods, parsed).toMap());
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    /**
+     * Get the report dates that have a facility snapshot
+     * GET /api/v1/reports/variance/snapshots
+     */
+    @GetMapping("/variance/snapshots")
+    public ResponseEntity<List<LocalDate>> getSnapshotDates() {
+        return ResponseEntity.ok(varianceEngine.getSnapshotDates());
     }
     
     /**
@@ -78,16 +141,25 @@ public class ReportController {
      * GET /api/v1/reports/bank-exposure
      */
     @GetMapping("/bank-exposure")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateBankExposureReport(
-            @RequestParam(required = false) String bankName) {
+    public ResponseEntity<?> generateBankExposureReport(
+            @RequestParam(required = false) String bankName,
+            @RequestParam(required = false) String currency) {
         
         Map<String, Object> parameters = new HashMap<>();
         if (bankName != null) parameters.put("bank_name", bankName);
+        if (currency != null) parameters.put("currency", currency.toUpperCase(Locale.ROOT));
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport("bank_exposure_analysis", parameters);
-        
-        return ResponseEntity.ok(report);
+        return cachedReport("bank_exposure_analysis", parameters);
+    }
+    
+    /**
+     * Get exposure, utilization and concentration of every bank in the latest snapshot, per currency,
+     * with each currency's Herfindahl index
+     * GET /api/v1/reports/bank-exposure/portfolio
+     */
+    @GetMapping("/bank-exposure/portfolio")
+    public ResponseEntity<Map<String, Object>> getBankExposurePortfolio() {
+        return ResponseEntity.ok(bankExposureEngine.getPortfolio());
     }
     
     /**
@@ -95,16 +167,13 @@ public class ReportController {
      * GET /api/v1/reports/directorship
      */
     @GetMapping("/directorship")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateDirectorshipReport(
+    public ResponseEntity<?> generateDirectorshipReport(
             @RequestParam(required = false, defaultValue = "Matthias Kaindl") String directorName) {
         
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("director_name", directorName);
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport("directorship_analysis", parameters);
-        
-        return ResponseEntity.ok(report);
+        return cachedReport("directorship_analysis", parameters);
     }
     
     /**
@@ -112,16 +181,13 @@ public class ReportController {
      * POST /api/v1/reports/custom
      */
     @PostMapping("/custom")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateCustomReport(
+    public ResponseEntity<?> generateCustomReport(
             @RequestBody Map<String, Object> request) {
         
         String reportType = (String) request.getOrDefault("report_type", "standard");
         Map<String, Object> parameters = (Map<String, Object>) request.getOrDefault("parameters", new HashMap<>());
         
-        ReportGenerationService.ExecutiveReport report = 
-            reportService.generateExecutiveReport(reportType, parameters);
-        
-        return ResponseEntity.ok(report);
+        return cachedReport(reportType, parameters);
     }
     
     /**
@@ -153,7 +219,7 @@ public class ReportController {
             "GET /api/v1/reports/cyprus-entities - Cyprus entities governance report",
             "GET /api/v1/reports/bank-exposure?bankName=PKO BP - PKO BP exposure analysis",
             "GET /api/v1/reports/directorship?directorName=Matthias Kaindl - Matthias Kaindl directorship report",
-            "GET /api/v1/reports/variance-analysis - December 2023 vs July 2024 variance"
+            "GET /api/v1/reports/variance-analysis?fromPeriod=2023-12&toPeriod=2024-07 - December 2023 vs July 2024 variance"
         });
         
         response.put("features", new String[]{
@@ -173,7 +239,7 @@ public class ReportController {
      * GET /api/v1/reports/demo/{scenario}
      */
     @GetMapping("/demo/{scenario}")
-    public ResponseEntity<ReportGenerationService.ExecutiveReport> generateDemoReport(@PathVariable String scenario) {
+    public ResponseEntity<?> generateDemoReport(@PathVariable String scenario) {
         Map<String, Object> parameters = new HashMap<>();
         
         switch (scenario) {
@@ -181,35 +247,169 @@ public class ReportController {
                 // PKO BP facilities over 1M EUR report
                 parameters.put("bank_name", "PKO BP");
                 parameters.put("min_amount", 1000000);
-                return ResponseEntity.ok(reportService.generateExecutiveReport("bank_exposure_analysis", parameters));
+                return cachedReport("bank_exposure_analysis", parameters);
             
             case "2":
                 // Matthias Kaindl directorship report
                 parameters.put("director_name", "Matthias Kaindl");
-                return ResponseEntity.ok(reportService.generateExecutiveReport("directorship_analysis", parameters));
+                return cachedReport("directorship_analysis", parameters);
             
             case "3":
                 // High utilization companies report
                 parameters.put("min_utilization", 80);
-                return ResponseEntity.ok(reportService.generateExecutiveReport("working_capital_analysis", parameters));
+                return cachedReport("working_capital_analysis", parameters);
             
             case "4":
                 // Poland vs Romania comparison report
                 parameters.put("countries", new String[]{"Poland", "Romania"});
-                return ResponseEntity.ok(reportService.generateExecutiveReport("financial_variance_analysis", parameters));
+                parameters.put("dimension", "country");
+                return cachedReport("financial_variance_analysis", parameters);
             
             case "5":
                 // Cyprus entities report
-                return ResponseEntity.ok(reportService.generateExecutiveReport("cyprus_entities_governance", parameters));
+                return cachedReport("cyprus_entities_governance", parameters);
             
             case "6":
                 // Variance analysis report
                 parameters.put("from_period", "2023-12");
                 parameters.put("to_period", "2024-07");
-                return ResponseEntity.ok(reportService.generateExecutiveReport("financial_variance_analysis", parameters));
+                return cachedReport("financial_variance_analysis", parameters);
             
             default:
                 return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Export a report as an XLSX workbook, CSV or PDF; XLSX and CSV can carry every facility
+     * as an appendix. Any other query parameter is passed to the report (e.g. bank_name)
+     * GET /api/v1/reports/{reportType}/export?format=xlsx&appendix=true
+     */
+    @GetMapping("/{reportType}/export")
+    public ResponseEntity<?> exportReport(
+            @PathVariable String reportType,
+            @RequestParam(required = false, defaultValue = "xlsx") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean appendix,
+            @RequestParam Map<String, String> requestParameters,
+            Locale locale) {
+        
+        Map<String, Object> parameters = new HashMap<>(requestParameters);
+        parameters.remove("format");
+        parameters.remove("appendix");
+        
+        String extension = format.toLowerCase();
+        MediaType contentType;
+        switch (extension) {
+            case "xlsx":
+                contentType = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                break;
+            case "csv":
+                contentType = MediaType.parseMediaType("text/csv;charset=UTF-8");
+                break;
+            case "pdf":
+                contentType = MediaType.APPLICATION_PDF;
+                break;
+            default:
+                return ResponseEntity.badRequest().build();
+        }
+        
+        String fileName = reportType.toLowerCase() + "." + extension;
+        ReportPregenerator.StoredReport stored = appendix ? null : reportPregenerator.find(reportType, parameters, extension, locale);
+        if (stored != null) {
+            return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .header("X-Data-Generation", String.valueOf(stored.getGeneration()))
+                .body(stored.getResource());
+        }
+        
+        ReportGenerationService.ExecutiveReport report = reportCache.getReport(reportType, parameters).getReport();
+        StreamingResponseBody body = out -> {
+            switch (extension) {
+                case "xlsx":
+                    reportExportService.writeXlsx(report, appendix, out);
+                    break;
+                case "csv":
+                    reportExportService.writeCsv(report, appendix, out);
+                    break;
+                default:
+                    reportPdfRenderer.render(report, locale, out);
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .body(body);
+    }
+    
+    /**
+     * Get report snapshot cache hits, misses and entries
+     * GET /api/v1/reports/cache-stats
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getReportCacheStatistics() {
+        return ResponseEntity.ok(reportCache.getStatistics());
+    }
+    
+    /**
+     * Get pregenerated report hits, misses, the last run and the files on disk
+     * GET /api/v1/reports/pregenerated
+     */
+    @GetMapping("/pregenerated")
+    public ResponseEntity<Map<String, Object>> getPregeneratedReports() throws IOException {
+        return ResponseEntity.ok(reportPregenerator.getStatistics());
+    }
+    
+    /**
+     * Pregenerate the standard reports now (when not already done for the current data)
+     * POST /api/v1/reports/pregenerated
+     */
+    @PostMapping("/pregenerated")
+    public ResponseEntity<Map<String, Object>> pregenerateReports() {
+        reportPregenerator.request();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "requested");
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    /**
+     * Standard report from its pregenerated file, otherwise from the snapshot
+     * cache, with its ETag and data generation; a stale snapshot served during
+     * an import carries a Warning header, and a report generated during an
+     * import is sent without ETag as no-store. Page cells are formatted for the
+     * request's Accept-Language when serialized.
+     */
+    private ResponseEntity<?> cachedReport(String reportType, Map<String, Object> parameters) {
+        ReportPregenerator.StoredReport stored =
+            reportPregenerator.find(reportType, parameters, "json", LocaleContextHolder.getLocale());
+        if (stored != null) {
+            return ResponseEntity.ok()
+                .eTag(stored.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .header("X-Data-Generation", String.valueOf(stored.getGeneration()))
+                .varyBy(HttpHeaders.ACCEPT_LANGUAGE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.getResource());
+        }
+        
+        ReportSnapshotCache.Snapshot snapshot = reportCache.getReport(reportType, parameters);
+        if (!snapshot.isCacheable()) {
+            // Built while an import was running; must not be revalidated against any ETag
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header("X-Data-Generation", String.valueOf(snapshot.getGeneration()))
+                .varyBy(HttpHeaders.ACCEPT_LANGUAGE)
+                .body(snapshot.getReport());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .eTag(snapshot.getEtag(LocaleContextHolder.getLocale()))
+            .cacheControl(CacheControl.noCache())
+            .header("X-Data-Generation", String.valueOf(snapshot.getGeneration()))
+            .varyBy(HttpHeaders.ACCEPT_LANGUAGE);
+        if (snapshot.isStale()) {
+            response.header("Warning", "110 - \"Response is Stale\"");
+        }
+        return response.body(snapshot.getReport());
+    }
+}
@@ -0,0 +1,25 @@
+package com.kronospan.aibi.dto;
+
+/**
+ * Company reference embedded in facility and loan views
+ */
+public class CompanyRef {
+    
+    private final Long id;
+    private final String companyName;
+    private final String country;
+    
+    public CompanyRef(Long id, String companyName, String country) {
+        this.id = id;
+        this.companyName = companyName;
+        this.country = country;
+    }
+    
+    static CompanyRef of(Long id, String companyName, String country) {
+        return id != null ? new CompanyRef(id, companyName, country) : null;
+    }
+    
+    public Long getId() { return id; }
+    public String getCompanyName() { return companyName; }
+    public String getCountry() { return country; }
+}
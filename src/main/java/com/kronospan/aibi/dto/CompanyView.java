@@ -0,0 +1,37 @@
+package com.kronospan.aibi.dto;
+
+/**
+ * Group company as served by /api/v1/data/companies endpoints, without its collections
+ */
+public class CompanyView {
+    
+    private final Long id;
+    private final String companyName;
+    private final String companyCode;
+    private final String country;
+    private final String incorporationCountry;
+    private final String legalForm;
+    private final String businessActivity;
+    private final Boolean isActive;
+    
+    public CompanyView(Long id, String companyName, String companyCode, String country,
+                       String incorporationCountry, String legalForm, String businessActivity, Boolean isActive) {
+        this.id = id;
+        this.companyName = companyName;
+        this.companyCode = companyCode;
+        this.country = country;
+        this.incorporationCountry = incorporationCountry;
+        this.legalForm = legalForm;
+        this.businessActivity = businessActivity;
+        this.isActive = isActive;
+    }
+    
+    public Long getId() { return id; }
+    public String getCompanyName() { return companyName; }
+    public String getCompanyCode() { return companyCode; }
+    public String getCountry() { return country; }
+    public String getIncorporationCountry() { return incorporationCountry; }
+    public String getLegalForm() { return legalForm; }
+    public String getBusinessActivity() { return businessActivity; }
+    public Boolean getIsActive() { return isActive; }
+}
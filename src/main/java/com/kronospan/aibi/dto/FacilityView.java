@@ -0,0 +1,58 @@
+package com.kronospan.aibi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Working capital facility as served by /api/v1/data/wcr endpoints
+ * Built by a JPQL constructor expression, company joined in the same statement
+ */
+public class FacilityView {
+    
+    private final Long id;
+    private final String facilityName;
+    private final String bankName;
+    private final String facilityType;
+    private final String currency;
+    private final BigDecimal limitAmount;
+    private final BigDecimal utilizedAmount;
+    private final BigDecimal undrawnAmount;
+    private final BigDecimal utilizationPercentage;
+    private final LocalDate reportDate;
+    private final LocalDate maturityDate;
+    private final BigDecimal interestRate;
+    private final CompanyRef company;
+    
+    public FacilityView(Long id, String facilityName, String bankName, String facilityType, String currency,
+                        BigDecimal limitAmount, BigDecimal utilizedAmount, BigDecimal undrawnAmount,
+                        BigDecimal utilizationPercentage, LocalDate reportDate, LocalDate maturityDate,
+                        BigDecimal interestRate, Long companyId, String companyName, String companyCountry) {
+        this.id = id;
+        this.facilityName = facilityName;
+        this.bankName = bankName;
+        this.facilityType = facilityType;
+        this.currency = currency;
+        this.limitAmount = limitAmount;
+        this.utilizedAmount = utilizedAmount;
+        this.undrawnAmount = undrawnAmount;
+        this.utilizationPercentage = utilizationPercentage;
+        this.reportDate = reportDate;
+        this.maturityDate = maturityDate;
+        this.interestRate = interestRate;
+        this.company = CompanyRef.of(companyId, companyName, companyCountry);
+    }
+    
+    public Long getId() { return id; }
+    public String getFacilityName() { return facilityName; }
+    public String getBankName() { return bankName; }
+    public String getFacilityType() { return facilityType; }
+    public String getCurrency() { return currency; }
+    public BigDecimal getLimitAmount() { return limitAmount; }
+    public BigDecimal getUtilizedAmount() { return utilizedAmount; }
+    public BigDecimal getUndrawnAmount() { return undrawnAmount; }
+    public BigDecimal getUtilizationPercentage() { return utilizationPercentage; }
+    public LocalDate getReportDate() { return reportDate; }
+    public LocalDate getMaturityDate() { return maturityDate; }
+    public BigDecimal getInterestRate() { return interestRate; }
+    public CompanyRef getCompany() { return company; }
+}
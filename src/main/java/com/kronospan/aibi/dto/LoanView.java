@@ -0,0 +1,61 @@
+package com.kronospan.aibi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Long term loan as served by /api/v1/data/ltl endpoints
+ * Built by a JPQL constructor expression, company joined in the same statement
+ */
+public class LoanView {
+    
+    private final Long id;
+    private final String loanReference;
+    private final String lenderName;
+    private final String loanType;
+    private final String currency;
+    private final BigDecimal originalAmount;
+    private final BigDecimal outstandingAmount;
+    private final BigDecimal interestRate;
+    private final LocalDate startDate;
+    private final LocalDate maturityDate;
+    private final String repaymentFrequency;
+    private final String securityType;
+    private final String purpose;
+    private final CompanyRef company;
+    
+    public LoanView(Long id, String loanReference, String lenderName, String loanType, String currency,
+                    BigDecimal originalAmount, BigDecimal outstandingAmount, BigDecimal interestRate,
+                    LocalDate startDate, LocalDate maturityDate, String repaymentFrequency, String securityType,
+                    String purpose, Long companyId, String companyName, String companyCountry) {
+        this.id = id;
+        this.loanReference = loanReference;
+        this.lenderName = lenderName;
+        this.loanType = loanType;
+        this.currency = currency;
+        this.originalAmount = originalAmount;
+        this.outstandingAmount = outstandingAmount;
+        this.interestRate = interestRate;
+        this.startDate = startDate;
+        this.maturityDate = maturityDate;
+        this.repaymentFrequency = repaymentFrequency;
+        this.securityType = securityType;
+        this.purpose = purpose;
+        this.company = CompanyRef.of(companyId, companyName, companyCountry);
+    }
+    
+    public Long getId() { return id; }
+    public String getLoanReference() { return loanReference; }
+    public String getLenderName() { return lenderName; }
+    public String getLoanType() { return loanType; }
+    public String getCurrency() { return currency; }
+    public BigDecimal getOriginalAmount() { return originalAmount; }
+    public BigDecimal getOutstandingAmount() { return outstandingAmount; }
+    public BigDecimal getInterestRate() { return interestRate; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getMaturityDate() { return maturityDate; }
+    public String getRepaymentFrequency() { return repaymentFrequency; }
+    public String getSecurityType() { return securityType; }
+    public String getPurpose() { return purpose; }
+    public CompanyRef getCompany() { return company; }
+}
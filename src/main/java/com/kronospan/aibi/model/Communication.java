@@ -1,5 +1,7 @@
 package com.kronospan.aibi.model;
 
+import com.kronospan.aibi.service.search.SearchIndexListener;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
 
@@ -8,11 +10,13 @@ import java.time.LocalDateTime;
  * Tracks communications, emails, and interactions
  */
 @Entity
+@EntityListeners(SearchIndexListener.class)
 @Table(name = "communications")
 public class Communication {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "communications_seq")
+    @SequenceGenerator(name = "communications_seq", sequenceName = "communications_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "communication_type", nullable = false)
@@ -21,9 +25,9 @@ public class Communication {
     @Column(name = "subject")
     private String subject;
     
-    @Lob
-    @Column(name = "content")
-    private String content;
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "body_id")
+    private CommunicationBody body; // Content lives in its own table, loaded on first access
     
     @Column(name = "from_party")
     private String fromParty;
@@ -43,11 +47,11 @@ public class Communication {
     @Column(name = "reference_number")
     private String referenceNumber;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "related_document_id")
     private Document relatedDocument;
     
@@ -57,7 +61,7 @@ public class Communication {
     public Communication(String communicationType, String subject, String content) {
         this.communicationType = communicationType;
         this.subject = subject;
-        this.content = content;
+        setContent(content);
         this.communicationDate = LocalDateTime.now();
         this.status = "RECEIVED";
     }
@@ -72,8 +76,14 @@ public class Communication {
     public String getSubject() { return subject; }
     public void setSubject(String subject) { this.subject = subject; }
     
-    public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public String getContent() { return body != null ? body.getContent() : null; }
+    public void setContent(String content) {
+        if (body == null) {
+            body = new CommunicationBody(content);
+        } else {
+            body.setContent(content);
+        }
+    }
     
     public String getFromParty() { return fromParty; }
     public void setFromParty(String fromParty) { this.fromParty = fromParty; }
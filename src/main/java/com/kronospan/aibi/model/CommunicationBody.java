@@ -0,0 +1,35 @@
+package com.kronospan.aibi.model;
+
+import javax.persistence.*;
+
+/**
+ * Communication Body Entity
+ * Full communication content, kept out of the communications table so listings stay light
+ */
+@Entity
+@Table(name = "communication_bodies")
+public class CommunicationBody {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "communication_bodies_seq")
+    @SequenceGenerator(name = "communication_bodies_seq", sequenceName = "communication_bodies_seq", allocationSize = 50)
+    private Long id;
+    
+    @Lob
+    @Column(name = "content")
+    private String content;
+    
+    // Constructors
+    public CommunicationBody() {}
+    
+    public CommunicationBody(String content) {
+        this.content = content;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+}
@@ -1,5 +1,9 @@
 package com.kronospan.aibi.model;
 
+import com.kronospan.aibi.service.search.SearchIndexListener;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDate;
 
@@ -8,11 +12,19 @@ import java.time.LocalDate;
  * Company directors and board members
  */
 @Entity
-@Table(name = "directors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "directors")
+@EntityListeners(SearchIndexListener.class)
+@Table(name = "directors",
+       indexes = {
+           @Index(name = "idx_director_company", columnList = "company_id, is_active"),
+           @Index(name = "idx_director_name_appointed", columnList = "full_name, appointment_date")
+       })
 public class Director {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "directors_seq")
+    @SequenceGenerator(name = "directors_seq", sequenceName = "directors_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "full_name", nullable = false)
@@ -30,7 +42,7 @@ public class Director {
     @Column(name = "is_active")
     private Boolean isActive = true;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
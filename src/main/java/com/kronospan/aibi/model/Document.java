@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 public class Document {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documents_seq")
+    @SequenceGenerator(name = "documents_seq", sequenceName = "documents_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "document_name", nullable = false)
@@ -30,9 +31,11 @@ public class Document {
     @Column(name = "content_type")
     private String contentType;
     
-    @Lob
-    @Column(name = "extracted_text")
-    private String extractedText; // Text extracted from PDF/documents
+    @Column(name = "page_count")
+    private Integer pageCount;
+    
+    @Column(name = "text_length")
+    private Long textLength; // Characters of extracted text, stored in document_text_chunks
     
     @Column(name = "document_category")
     private String documentCategory; // Financial Statement, NDA, Contract, etc.
@@ -46,7 +49,7 @@ public class Document {
     @Column(name = "processing_status")
     private String processingStatus; // PENDING, PROCESSED, FAILED
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
@@ -80,8 +83,11 @@ public class Document {
     public String getContentType() { return contentType; }
     public void setContentType(String contentType) { this.contentType = contentType; }
     
-    public String getExtractedText() { return extractedText; }
-    public void setExtractedText(String extractedText) { this.extractedText = extractedText; }
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+    
+    public Long getTextLength() { return textLength; }
+    public void setTextLength(Long textLength) { this.textLength = textLength; }
     
     public String getDocumentCategory() { return documentCategory; }
     public void setDocumentCategory(String documentCategory) { this.documentCategory = documentCategory; }
@@ -0,0 +1,62 @@
+package com.kronospan.aibi.model;
+
+import com.kronospan.aibi.service.search.SearchIndexListener;
+
+import javax.persistence.*;
+
+/**
+ * Document Text Chunk Entity
+ * Extracted document text, stored apart from the document row one page (or part of a page) per chunk
+ */
+@Entity
+@EntityListeners(SearchIndexListener.class)
+@Table(name = "document_text_chunks",
+       uniqueConstraints = @UniqueConstraint(name = "uk_document_chunk", columnNames = {"document_id", "chunk_index"}),
+       indexes = @Index(name = "idx_document_chunk_page", columnList = "document_id, page_number"))
+public class DocumentTextChunk {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_text_chunks_seq")
+    @SequenceGenerator(name = "document_text_chunks_seq", sequenceName = "document_text_chunks_seq", allocationSize = 50)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "document_id")
+    private Document document;
+    
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex; // 0-based position within the document
+    
+    @Column(name = "page_number", nullable = false)
+    private Integer pageNumber; // 1-based PDF page
+    
+    @Lob
+    @Column(name = "text_content")
+    private String text;
+    
+    // Constructors
+    public DocumentTextChunk() {}
+    
+    public DocumentTextChunk(Document document, Integer chunkIndex, Integer pageNumber, String text) {
+        this.document = document;
+        this.chunkIndex = chunkIndex;
+        this.pageNumber = pageNumber;
+        this.text = text;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Document getDocument() { return document; }
+    public void setDocument(Document document) { this.document = document; }
+    
+    public Integer getChunkIndex() { return chunkIndex; }
+    public void setChunkIndex(Integer chunkIndex) { this.chunkIndex = chunkIndex; }
+    
+    public Integer getPageNumber() { return pageNumber; }
+    public void setPageNumber(Integer pageNumber) { this.pageNumber = pageNumber; }
+    
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+}
@@ -9,11 +9,13 @@ import java.time.LocalDate;
  * Based on financial PDF data (2013-2017)
  */
 @Entity
-@Table(name = "financial_statements")
+@Table(name = "financial_statements",
+       indexes = @Index(name = "idx_fs_company_period", columnList = "company_id, period_end_date"))
 public class FinancialStatement {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "financial_statements_seq")
+    @SequenceGenerator(name = "financial_statements_seq", sequenceName = "financial_statements_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "statement_type", nullable = false)
@@ -61,7 +63,7 @@ public class FinancialStatement {
     @Column(name = "cash_and_equivalents", precision = 15, scale = 2)
     private BigDecimal cashAndEquivalents;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
@@ -1,5 +1,9 @@
 package com.kronospan.aibi.model;
 
+import com.kronospan.aibi.service.search.SearchIndexListener;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.List;
 
@@ -8,11 +12,19 @@ import java.util.List;
  * Represents companies in the Kronospan group
  */
 @Entity
-@Table(name = "group_companies")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "group-companies")
+@EntityListeners(SearchIndexListener.class)
+@Table(name = "group_companies",
+       indexes = {
+           @Index(name = "idx_company_name", columnList = "company_name"),
+           @Index(name = "idx_company_country", columnList = "country")
+       })
 public class GroupCompany {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "group_companies_seq")
+    @SequenceGenerator(name = "group_companies_seq", sequenceName = "group_companies_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "company_name", nullable = false)
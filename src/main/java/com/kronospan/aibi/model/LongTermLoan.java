@@ -9,11 +9,18 @@ import java.time.LocalDate;
  * Based on LTL_Data.xlsx
  */
 @Entity
-@Table(name = "long_term_loans")
+@Table(name = "long_term_loans",
+       indexes = {
+           @Index(name = "idx_ltl_company", columnList = "company_id"),
+           @Index(name = "idx_ltl_lender", columnList = "lender_name"),
+           @Index(name = "idx_ltl_maturity_date", columnList = "maturity_date"),
+           @Index(name = "idx_ltl_outstanding", columnList = "outstanding_amount")
+       })
 public class LongTermLoan {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "long_term_loans_seq")
+    @SequenceGenerator(name = "long_term_loans_seq", sequenceName = "long_term_loans_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "loan_reference", nullable = false)
@@ -52,7 +59,7 @@ public class LongTermLoan {
     @Column(name = "purpose")
     private String purpose;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
@@ -0,0 +1,68 @@
+package com.kronospan.aibi.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Quarantined Row Entity
+ * Spreadsheet rows rejected during import, kept with their raw values for review
+ */
+@Entity
+@Table(name = "import_quarantine",
+       indexes = @Index(name = "idx_quarantine_source_file", columnList = "source_file, source_row"))
+public class QuarantinedRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_quarantine_seq")
+    @SequenceGenerator(name = "import_quarantine_seq", sequenceName = "import_quarantine_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "import_type", nullable = false)
+    private String importType; // WCR, LTL
+
+    @Column(name = "source_file", nullable = false)
+    private String sourceFile;
+
+    @Column(name = "sheet_name")
+    private String sheetName;
+
+    @Column(name = "source_row")
+    private Integer rowNumber; // 1-based, as Excel shows it
+
+    @Column(name = "raw_values", length = 4000)
+    private String rawValues; // Cell values joined with " | "
+
+    @Column(name = "reason", length = 1000)
+    private String reason;
+
+    @Column(name = "quarantined_at")
+    private LocalDateTime quarantinedAt;
+
+    // Constructors
+    public QuarantinedRow() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getImportType() { return importType; }
+    public void setImportType(String importType) { this.importType = importType; }
+
+    public String getSourceFile() { return sourceFile; }
+    public void setSourceFile(String sourceFile) { this.sourceFile = sourceFile; }
+
+    public String getSheetName() { return sheetName; }
+    public void setSheetName(String sheetName) { this.sheetName = sheetName; }
+
+    public Integer getRowNumber() { return rowNumber; }
+    public void setRowNumber(Integer rowNumber) { this.rowNumber = rowNumber; }
+
+    public String getRawValues() { return rawValues; }
+    public void setRawValues(String rawValues) { this.rawValues = rawValues; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+
+    public LocalDateTime getQuarantinedAt() { return quarantinedAt; }
+    public void setQuarantinedAt(LocalDateTime quarantinedAt) { this.quarantinedAt = quarantinedAt; }
+}
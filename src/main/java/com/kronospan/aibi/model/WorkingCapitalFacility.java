@@ -9,11 +9,24 @@ import java.time.LocalDate;
  * Based on WCR Excel data with 358 rows of facility information
  */
 @Entity
-@Table(name = "working_capital_facilities")
+@Table(name = "working_capital_facilities",
+       uniqueConstraints = @UniqueConstraint(name = "uk_wcf_snapshot_key",
+               columnNames = {"company_id", "bank_name", "facility_type", "currency", "report_date"}),
+       // company_id lookups are served by the leading column of uk_wcf_snapshot_key
+       indexes = {
+           @Index(name = "idx_wcf_bank_currency", columnList = "bank_name, currency"),
+           @Index(name = "idx_wcf_currency_bank", columnList = "currency, bank_name"),
+           @Index(name = "idx_wcf_facility_type", columnList = "facility_type"),
+           @Index(name = "idx_wcf_report_date_id", columnList = "report_date, id"),
+           @Index(name = "idx_wcf_utilization", columnList = "utilization_percentage"),
+           @Index(name = "idx_wcf_limit_amount", columnList = "limit_amount"),
+           @Index(name = "idx_wcf_maturity_date", columnList = "maturity_date")
+       })
 public class WorkingCapitalFacility {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "working_capital_facilities_seq")
+    @SequenceGenerator(name = "working_capital_facilities_seq", sequenceName = "working_capital_facilities_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "facility_name", nullable = false)
@@ -40,7 +53,7 @@ public class WorkingCapitalFacility {
     @Column(name = "utilization_percentage", precision = 5, scale = 2)
     private BigDecimal utilizationPercentage;
     
-    @Column(name = "report_date")
+    @Column(name = "report_date", nullable = false)
     private LocalDate reportDate;
     
     @Column(name = "maturity_date")
@@ -49,7 +62,7 @@ public class WorkingCapitalFacility {
     @Column(name = "interest_rate", precision = 6, scale = 4)
     private BigDecimal interestRate;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private GroupCompany company;
     
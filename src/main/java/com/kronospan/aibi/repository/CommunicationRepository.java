@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface CommunicationRepository extends JpaRepository<Communication, Long> {
+public interface CommunicationRepository extends JpaRepository<Communication, Long>, CommunicationRepositoryCustom {
     
     List<Communication> findByCommunicationType(String communicationType);
     
@@ -20,9 +20,10 @@ public interface CommunicationRepository extends JpaRepository<Communication, Lo
     
     List<Communication> findByToParty(String toParty);
     
+    List<CommunicationSummary> findAllProjectedBy();
+    
+    List<CommunicationSummary> findSummariesByCompanyId(Long companyId);
+    
     @Query("SELECT c FROM Communication c WHERE c.communicationDate BETWEEN :startDate AND :endDate")
     List<Communication> findByCommunicationDateBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-    
-    @Query("SELECT c FROM Communication c WHERE c.subject LIKE %:searchTerm% OR c.content LIKE %:searchTerm%")
-    List<Communication> findBySubjectOrContentContaining(@Param("searchTerm") String searchTerm);
 }
\ No newline at end of file
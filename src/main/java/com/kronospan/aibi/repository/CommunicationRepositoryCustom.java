@@ -0,0 +1,16 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Communication;
+
+import java.util.List;
+
+/**
+ * Communication searches answered from the text search index
+ */
+public interface CommunicationRepositoryCustom {
+
+    /**
+     * Communications whose subject or content contains every word of the term (accent- and case-insensitive), best match first
+     */
+    List<Communication> findBySubjectOrContentContaining(String searchTerm);
+}
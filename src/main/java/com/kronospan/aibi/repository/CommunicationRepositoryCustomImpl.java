@@ -0,0 +1,33 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Communication;
+import com.kronospan.aibi.service.search.TextSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class CommunicationRepositoryCustomImpl implements CommunicationRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @Override
+    public List<Communication> findBySubjectOrContentContaining(String searchTerm) {
+        List<Long> ids = searchIndex.search(TextSearchIndex.COMMUNICATIONS, searchTerm);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        List<Communication> matches = entityManager
+                .createQuery("SELECT c FROM Communication c WHERE c.id IN :ids", Communication.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        return RankedResults.inRankOrder(ids, matches, Communication::getId);
+    }
+}
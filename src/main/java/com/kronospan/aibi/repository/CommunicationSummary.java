@@ -0,0 +1,27 @@
+package com.kronospan.aibi.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Communication listing projection; leaves the body in communication_bodies
+ */
+public interface CommunicationSummary {
+    
+    Long getId();
+    
+    String getCommunicationType();
+    
+    String getSubject();
+    
+    String getFromParty();
+    
+    String getToParty();
+    
+    LocalDateTime getCommunicationDate();
+    
+    String getPriority();
+    
+    String getStatus();
+    
+    String getReferenceNumber();
+}
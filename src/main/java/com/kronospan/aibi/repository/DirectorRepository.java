@@ -9,7 +9,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface DirectorRepository extends JpaRepository<Director, Long> {
+public interface DirectorRepository extends JpaRepository<Director, Long>, DirectorRepositoryCustom {
     
     List<Director> findByCompanyId(Long companyId);
     
@@ -17,9 +17,6 @@ public interface DirectorRepository extends JpaRepository<Director, Long> {
     
     List<Director> findByPosition(String position);
     
-    @Query("SELECT d FROM Director d WHERE d.fullName LIKE %:name%")
-    List<Director> findByFullNameContaining(@Param("name") String name);
-    
     @Query("SELECT d FROM Director d WHERE d.company.id = :companyId AND d.isActive = true")
     List<Director> findActiveDirectorsByCompanyId(@Param("companyId") Long companyId);
 }
\ No newline at end of file
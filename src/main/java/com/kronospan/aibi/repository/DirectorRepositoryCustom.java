@@ -0,0 +1,16 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Director;
+
+import java.util.List;
+
+/**
+ * Director searches answered from the text search index
+ */
+public interface DirectorRepositoryCustom {
+
+    /**
+     * Directors whose full name contains every word of the term (accent- and case-insensitive), best match first
+     */
+    List<Director> findByFullNameContaining(String name);
+}
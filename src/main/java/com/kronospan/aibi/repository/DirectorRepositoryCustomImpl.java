@@ -0,0 +1,33 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Director;
+import com.kronospan.aibi.service.search.TextSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class DirectorRepositoryCustomImpl implements DirectorRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @Override
+    public List<Director> findByFullNameContaining(String name) {
+        List<Long> ids = searchIndex.search(TextSearchIndex.DIRECTORS, name);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        List<Director> matches = entityManager
+                .createQuery("SELECT d FROM Director d WHERE d.id IN :ids", Director.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        return RankedResults.inRankOrder(ids, matches, Director::getId);
+    }
+}
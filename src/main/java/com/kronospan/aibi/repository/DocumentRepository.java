@@ -9,7 +9,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, DocumentRepositoryCustom {
     
     List<Document> findByDocumentType(String documentType);
     
@@ -19,8 +19,11 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     
     List<Document> findByCompanyId(Long companyId);
     
-    @Query("SELECT d FROM Document d WHERE d.extractedText LIKE %:searchTerm%")
-    List<Document> findByExtractedTextContaining(@Param("searchTerm") String searchTerm);
+    List<DocumentSummary> findAllProjectedBy();
+    
+    List<DocumentSummary> findSummariesByDocumentType(String documentType);
+    
+    List<DocumentSummary> findSummariesByCompanyId(Long companyId);
     
     @Query("SELECT d FROM Document d WHERE d.documentName LIKE %:name%")
     List<Document> findByDocumentNameContaining(@Param("name") String name);
@@ -0,0 +1,16 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Document;
+
+import java.util.List;
+
+/**
+ * Document searches answered from the text search index
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * Documents with a text chunk (page) containing every word of the term (accent- and case-insensitive), best match first
+     */
+    List<Document> findByExtractedTextContaining(String searchTerm);
+}
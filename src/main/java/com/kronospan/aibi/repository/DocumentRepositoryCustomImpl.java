@@ -0,0 +1,53 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.Document;
+import com.kronospan.aibi.service.search.TextSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Transactional(readOnly = true)
+public class DocumentRepositoryCustomImpl implements DocumentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @Override
+    public List<Document> findByExtractedTextContaining(String searchTerm) {
+        List<Long> chunkIds = searchIndex.search(TextSearchIndex.DOCUMENT_CHUNKS, searchTerm);
+        if (chunkIds.isEmpty()) return new ArrayList<>();
+
+        // A document ranks by its best matching chunk
+        Map<Long, Long> documentByChunk = new HashMap<>();
+        for (Object[] row : entityManager
+                .createQuery("SELECT c.id, c.document.id FROM DocumentTextChunk c WHERE c.id IN :ids", Object[].class)
+                .setParameter("ids", chunkIds)
+                .getResultList()) {
+            documentByChunk.put((Long) row[0], (Long) row[1]);
+        }
+        Set<Long> rankedIds = new LinkedHashSet<>();
+        for (Long chunkId : chunkIds) {
+            Long documentId = documentByChunk.get(chunkId);
+            if (documentId != null) rankedIds.add(documentId);
+        }
+        if (rankedIds.isEmpty()) return new ArrayList<>();
+
+        List<Long> ids = new ArrayList<>(rankedIds);
+        List<Document> matches = entityManager
+                .createQuery("SELECT d FROM Document d WHERE d.id IN :ids", Document.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        return RankedResults.inRankOrder(ids, matches, Document::getId);
+    }
+}
@@ -0,0 +1,27 @@
+package com.kronospan.aibi.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Document listing projection; selects only these columns, never the text chunks
+ */
+public interface DocumentSummary {
+    
+    Long getId();
+    
+    String getDocumentName();
+    
+    String getDocumentType();
+    
+    String getDocumentCategory();
+    
+    Long getFileSize();
+    
+    Integer getPageCount();
+    
+    Long getTextLength();
+    
+    LocalDateTime getUploadDate();
+    
+    String getProcessingStatus();
+}
@@ -0,0 +1,20 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.DocumentTextChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentTextChunkRepository extends JpaRepository<DocumentTextChunk, Long> {
+    
+    List<DocumentTextChunk> findByDocumentIdOrderByChunkIndex(Long documentId);
+    
+    List<DocumentTextChunk> findByDocumentIdAndPageNumberOrderByChunkIndex(Long documentId, Integer pageNumber);
+    
+    Optional<DocumentTextChunk> findByDocumentIdAndChunkIndex(Long documentId, Integer chunkIndex);
+    
+    long countByDocumentId(Long documentId);
+}
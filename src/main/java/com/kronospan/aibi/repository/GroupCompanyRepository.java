@@ -1,26 +1,54 @@
 package com.kronospan.aibi.repository;
 
+import com.kronospan.aibi.dto.CompanyView;
 import com.kronospan.aibi.model.GroupCompany;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface GroupCompanyRepository extends JpaRepository<GroupCompany, Long> {
+public interface GroupCompanyRepository extends JpaRepository<GroupCompany, Long>, GroupCompanyRepositoryCustom {
     
+    String COMPANY_VIEW = "SELECT new com.kronospan.aibi.dto.CompanyView(gc.id, gc.companyName, gc.companyCode, " +
+            "gc.country, gc.incorporationCountry, gc.legalForm, gc.businessActivity, gc.isActive) FROM GroupCompany gc ";
+    
+    // Companies only change on import; these lookups are served from the query cache
+    
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "company-by-code")
+    })
     Optional<GroupCompany> findByCompanyCode(String companyCode);
     
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "company-by-country")
+    })
     List<GroupCompany> findByCountry(String country);
     
     List<GroupCompany> findByIsActive(Boolean isActive);
     
-    @Query("SELECT gc FROM GroupCompany gc WHERE gc.companyName LIKE %:name%")
-    List<GroupCompany> findByCompanyNameContaining(@Param("name") String name);
+    // Exact name match for imports; findByCompanyNameContaining is a ranked text search
+    List<GroupCompany> findByCompanyNameIgnoreCaseOrderById(String companyName);
     
     @Query("SELECT gc FROM GroupCompany gc WHERE gc.country IN :countries")
     List<GroupCompany> findByCountryIn(@Param("countries") List<String> countries);
+    
+    // Read-only views without the lazy collections
+    
+    @Query(COMPANY_VIEW + "ORDER BY gc.id")
+    List<CompanyView> findAllViews();
+    
+    @Query(COMPANY_VIEW + "WHERE gc.id > :id ORDER BY gc.id")
+    List<CompanyView> findViewPageAfter(@Param("id") Long id, Pageable page);
+    
+    @Query(COMPANY_VIEW + "WHERE gc.country = :country ORDER BY gc.id")
+    List<CompanyView> findViewsByCountry(@Param("country") String country);
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.GroupCompany;
+
+import java.util.List;
+
+/**
+ * GroupCompany searches answered from the text search index
+ */
+public interface GroupCompanyRepositoryCustom {
+
+    /**
+     * Companies whose company name contains every word of the term (accent- and case-insensitive), best match first;
+     * for search endpoints only, never for resolving which company a record belongs to
+     */
+    List<GroupCompany> findByCompanyNameContaining(String name);
+}
@@ -0,0 +1,33 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.service.search.TextSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public class GroupCompanyRepositoryCustomImpl implements GroupCompanyRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @Override
+    public List<GroupCompany> findByCompanyNameContaining(String name) {
+        List<Long> ids = searchIndex.search(TextSearchIndex.COMPANIES, name);
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        List<GroupCompany> matches = entityManager
+                .createQuery("SELECT gc FROM GroupCompany gc WHERE gc.id IN :ids", GroupCompany.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        return RankedResults.inRankOrder(ids, matches, GroupCompany::getId);
+    }
+}
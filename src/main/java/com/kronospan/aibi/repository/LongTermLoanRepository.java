@@ -1,6 +1,8 @@
 package com.kronospan.aibi.repository;
 
+import com.kronospan.aibi.dto.LoanView;
 import com.kronospan.aibi.model.LongTermLoan;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +15,11 @@ import java.util.List;
 @Repository
 public interface LongTermLoanRepository extends JpaRepository<LongTermLoan, Long> {
     
+    String LOAN_VIEW = "SELECT new com.kronospan.aibi.dto.LoanView(ltl.id, ltl.loanReference, ltl.lenderName, " +
+            "ltl.loanType, ltl.currency, ltl.originalAmount, ltl.outstandingAmount, ltl.interestRate, " +
+            "ltl.startDate, ltl.maturityDate, ltl.repaymentFrequency, ltl.securityType, ltl.purpose, " +
+            "c.id, c.companyName, c.country) FROM LongTermLoan ltl LEFT JOIN ltl.company c ";
+    
     List<LongTermLoan> findByLenderName(String lenderName);
     
     List<LongTermLoan> findByLoanType(String loanType);
@@ -27,4 +34,15 @@ public interface LongTermLoanRepository extends JpaRepository<LongTermLoan, Long
     
     @Query("SELECT SUM(ltl.outstandingAmount) FROM LongTermLoan ltl WHERE ltl.company.id = :companyId")
     BigDecimal getTotalOutstandingByCompanyId(@Param("companyId") Long companyId);
+    
+    // Read-only views: one statement each, company columns joined in
+    
+    @Query(LOAN_VIEW + "ORDER BY ltl.id")
+    List<LoanView> findAllViews();
+    
+    @Query(LOAN_VIEW + "WHERE ltl.id > :id ORDER BY ltl.id")
+    List<LoanView> findViewPageAfter(@Param("id") Long id, Pageable page);
+    
+    @Query(LOAN_VIEW + "WHERE ltl.lenderName = :lenderName ORDER BY ltl.id")
+    List<LoanView> findViewsByLenderName(@Param("lenderName") String lenderName);
 }
\ No newline at end of file
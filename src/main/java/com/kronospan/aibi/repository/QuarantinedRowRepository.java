@@ -0,0 +1,19 @@
+package com.kronospan.aibi.repository;
+
+import com.kronospan.aibi.model.QuarantinedRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface QuarantinedRowRepository extends JpaRepository<QuarantinedRow, Long> {
+
+    List<QuarantinedRow> findBySourceFileOrderByRowNumber(String sourceFile);
+
+    List<QuarantinedRow> findByImportType(String importType);
+
+    @Query("SELECT q.sourceFile, q.reason, COUNT(q) FROM QuarantinedRow q GROUP BY q.sourceFile, q.reason ORDER BY q.sourceFile")
+    List<Object[]> countBySourceFileAndReason();
+}
@@ -0,0 +1,28 @@
+package com.kronospan.aibi.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Puts entities loaded by id back into the order of the ranked search hits
+ */
+final class RankedResults {
+
+    private RankedResults() {}
+
+    static <T> List<T> inRankOrder(List<Long> rankedIds, List<T> entities, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : entities) {
+            byId.put(idOf.apply(entity), entity);
+        }
+        List<T> ordered = new ArrayList<>(entities.size());
+        for (Long id : rankedIds) {
+            T entity = byId.get(id);
+            if (entity != null) ordered.add(entity);  // ids of rolled-back rows simply drop out
+        }
+        return ordered;
+    }
+}
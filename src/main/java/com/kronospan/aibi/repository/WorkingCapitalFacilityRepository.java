@@ -1,6 +1,8 @@
 package com.kronospan.aibi.repository;
 
+import com.kronospan.aibi.dto.FacilityView;
 import com.kronospan.aibi.model.WorkingCapitalFacility;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +15,11 @@ import java.util.List;
 @Repository
 public interface WorkingCapitalFacilityRepository extends JpaRepository<WorkingCapitalFacility, Long> {
     
+    String FACILITY_VIEW = "SELECT new com.kronospan.aibi.dto.FacilityView(wcf.id, wcf.facilityName, wcf.bankName, " +
+            "wcf.facilityType, wcf.currency, wcf.limitAmount, wcf.utilizedAmount, wcf.undrawnAmount, " +
+            "wcf.utilizationPercentage, wcf.reportDate, wcf.maturityDate, wcf.interestRate, " +
+            "c.id, c.companyName, c.country) FROM WorkingCapitalFacility wcf LEFT JOIN wcf.company c ";
+    
     List<WorkingCapitalFacility> findByBankName(String bankName);
     
     List<WorkingCapitalFacility> findByFacilityType(String facilityType);
@@ -35,4 +42,29 @@ public interface WorkingCapitalFacilityRepository extends JpaRepository<WorkingC
     
     @Query("SELECT SUM(wcf.limitAmount) FROM WorkingCapitalFacility wcf WHERE wcf.company.id = :companyId")
     BigDecimal getTotalLimitByCompanyId(@Param("companyId") Long companyId);
+    
+    // Read-only views: one statement each, company columns joined in
+    
+    @Query(FACILITY_VIEW + "ORDER BY wcf.id")
+    List<FacilityView> findAllViews();
+    
+    // Keyset pages ordered by (report_date, id); pass PageRequest.of(0, size) to cap the page
+    
+    @Query(FACILITY_VIEW + "ORDER BY wcf.reportDate, wcf.id")
+    List<FacilityView> findViewPage(Pageable page);
+    
+    // Same rows as (reportDate, id) > (:reportDate, :id), written so the leading
+    // reportDate bound is a range start on idx_wcf_report_date_id
+    @Query(FACILITY_VIEW + "WHERE wcf.reportDate >= :reportDate AND (wcf.reportDate > :reportDate OR wcf.id > :id) " +
+           "ORDER BY wcf.reportDate, wcf.id")
+    List<FacilityView> findViewPageAfter(@Param("reportDate") LocalDate reportDate, @Param("id") Long id, Pageable page);
+    
+    @Query(FACILITY_VIEW + "WHERE wcf.bankName = :bankName ORDER BY wcf.id")
+    List<FacilityView> findViewsByBankName(@Param("bankName") String bankName);
+    
+    @Query(FACILITY_VIEW + "WHERE wcf.limitAmount > :amount ORDER BY wcf.id")
+    List<FacilityView> findViewsByLimitAmountGreaterThan(@Param("amount") BigDecimal amount);
+    
+    @Query(FACILITY_VIEW + "WHERE wcf.utilizationPercentage > :threshold ORDER BY wcf.id")
+    List<FacilityView> findViewsByUtilizationPercentageGreaterThan(@Param("threshold") BigDecimal threshold);
 }
\ No newline at end of file
@@ -0,0 +1,258 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Bank Exposure Engine
+ *
+ * Exposure, utilization, large-facility counts and concentration for every
+ * bank in the latest report snapshot, per currency: amounts in different
+ * currencies are never added up, so shares and the Herfindahl index are
+ * computed within each currency. Figures come from the bank summary table
+ * plus an index range over the snapshot's large facilities, and are kept for
+ * the current data generation. Reports for any bank are then a lookup; the
+ * next pass only runs after an import has moved the generation on.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BankExposureEngine {
+
+    private static final String LATEST_REPORT_DATE_SQL = "SELECT MAX(report_date) FROM wcf_summary_bank";
+
+    private static final String EXPOSURE_SQL =
+        "SELECT bank_name, COALESCE(currency, 'N/A') AS currency, SUM(facility_count) AS facility_count, " +
+        "COALESCE(SUM(total_limit), 0) AS total_exposure, SUM(limit_count) AS limit_count, " +
+        "COALESCE(SUM(utilization_sum), 0) AS utilization_sum, SUM(utilization_count) AS utilization_count " +
+        "FROM wcf_summary_bank WHERE report_date = ? GROUP BY bank_name, COALESCE(currency, 'N/A')";
+
+    // Only the snapshot's large facilities are read, as a range of idx_wcf_date_bank_currency
+    private static final String LARGE_FACILITY_SQL =
+        "SELECT bank_name, COALESCE(currency, 'N/A'), COUNT(*) FROM working_capital_facilities " +
+        "WHERE report_date = ? AND limit_amount > ? GROUP BY bank_name, COALESCE(currency, 'N/A')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Value("${kronospan.ai.exposure.large-facility-threshold:1000000}")
+    private BigDecimal largeFacilityThreshold;
+
+    @Value("${kronospan.ai.exposure.currency:EUR}")
+    private String defaultCurrency;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Combined exposure in one currency of every bank whose name contains the
+     * given text (case-insensitive), e.g. "PKO BP" covers all PKO BP lending
+     * entities; the share is of that currency's total
+     */
+    public BankExposure forBank(String bankName, String currency) {
+        Snapshot current = snapshot();
+        BankExposure combined = new BankExposure(bankName, currency);
+        String needle = bankName.toLowerCase(Locale.ROOT);
+        for (BankExposure bank : current.banks) {
+            if (bank.currency.equals(currency) && bank.bankName != null &&
+                    bank.bankName.toLowerCase(Locale.ROOT).contains(needle)) {
+                combined.add(bank);
+            }
+        }
+        combined.share = share(combined.totalExposure, current.total(currency));
+        return combined;
+    }
+
+    /**
+     * Banks of the latest snapshot grouped by currency, largest exposure
+     * first, with each currency's total and Herfindahl-Hirschman index
+     * (0-10000; above 2500 is highly concentrated)
+     */
+    public Map<String, Object> getPortfolio() {
+        Snapshot current = snapshot();
+        Map<String, Object> currencies = new TreeMap<>();
+        for (Map.Entry<String, BigDecimal> total : current.totalExposure.entrySet()) {
+            String currency = total.getKey();
+            List<Map<String, Object>> banks = new ArrayList<>();
+            for (BankExposure bank : current.banks) {
+                if (bank.currency.equals(currency)) banks.add(bank.toMap());
+            }
+            Map<String, Object> portfolio = new LinkedHashMap<>();
+            portfolio.put("total_exposure", total.getValue());
+            portfolio.put("herfindahl_index", current.herfindahlIndex.get(currency));
+            portfolio.put("banks", banks);
+            currencies.put(currency, portfolio);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("generation", current.generation);
+        result.put("report_date", current.reportDate != null ? current.reportDate.toString() : null);
+        result.put("large_facility_threshold", largeFacilityThreshold);
+        result.put("currencies", currencies);
+        return result;
+    }
+
+    /**
+     * Herfindahl index of the exposure in one currency; zero when the latest snapshot has none
+     */
+    public BigDecimal getHerfindahlIndex(String currency) {
+        return snapshot().herfindahlIndex.getOrDefault(currency, BigDecimal.ZERO);
+    }
+
+    public BigDecimal getLargeFacilityThreshold() {
+        return largeFacilityThreshold;
+    }
+
+    /**
+     * Currency bank exposure reports use when none is requested
+     */
+    public String getDefaultCurrency() {
+        return defaultCurrency;
+    }
+
+    private Snapshot snapshot() {
+        long generation = dataGeneration.current();
+        Snapshot current = snapshot;
+        if (current == null || current.generation != generation) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.generation != generation) {
+                    current = compute(generation);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot compute(long generation) {
+        Date latest = jdbcTemplate.queryForObject(LATEST_REPORT_DATE_SQL, Date.class);
+        List<BankExposure> banks = new ArrayList<>();
+        Map<String, BigDecimal> totalExposure = new HashMap<>();
+        Map<String, BigDecimal> herfindahlIndex = new HashMap<>();
+        if (latest == null) {
+            return new Snapshot(generation, null, banks, totalExposure, herfindahlIndex);
+        }
+
+        Map<List<String>, Long> largeFacilities = new HashMap<>();
+        jdbcTemplate.query(LARGE_FACILITY_SQL, (RowCallbackHandler) rs ->
+                largeFacilities.put(Arrays.asList(rs.getString(1), rs.getString(2)), rs.getLong(3)),
+                latest, largeFacilityThreshold);
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList(EXPOSURE_SQL, latest)) {
+            BankExposure bank = new BankExposure((String) row.get("BANK_NAME"), (String) row.get("CURRENCY"));
+            bank.facilityCount = ((Number) row.get("FACILITY_COUNT")).longValue();
+            bank.largeFacilityCount = largeFacilities.getOrDefault(Arrays.asList(bank.bankName, bank.currency), 0L);
+            bank.totalExposure = (BigDecimal) row.get("TOTAL_EXPOSURE");
+            bank.limitCount = ((Number) row.get("LIMIT_COUNT")).longValue();
+            bank.utilizationSum = (BigDecimal) row.get("UTILIZATION_SUM");
+            bank.utilizationCount = ((Number) row.get("UTILIZATION_COUNT")).longValue();
+            banks.add(bank);
+            totalExposure.merge(bank.currency, bank.totalExposure, BigDecimal::add);
+        }
+
+        for (BankExposure bank : banks) {
+            bank.share = share(bank.totalExposure, totalExposure.get(bank.currency));
+            herfindahlIndex.merge(bank.currency, bank.share.multiply(bank.share), BigDecimal::add);
+        }
+        herfindahlIndex.replaceAll((currency, index) -> index.setScale(2, RoundingMode.HALF_UP));
+        banks.sort((a, b) -> b.totalExposure.compareTo(a.totalExposure));
+        return new Snapshot(generation, latest.toLocalDate(), banks, totalExposure, herfindahlIndex);
+    }
+
+    private static BigDecimal share(BigDecimal exposure, BigDecimal totalExposure) {
+        if (totalExposure == null || totalExposure.signum() == 0) return BigDecimal.ZERO;
+        return exposure.multiply(BigDecimal.valueOf(100)).divide(totalExposure, 4, RoundingMode.HALF_UP);
+    }
+
+    private static final class Snapshot {
+        final long generation;
+        final LocalDate reportDate;
+        final List<BankExposure> banks;
+        final Map<String, BigDecimal> totalExposure;
+        final Map<String, BigDecimal> herfindahlIndex;
+
+        Snapshot(long generation, LocalDate reportDate, List<BankExposure> banks,
+                 Map<String, BigDecimal> totalExposure, Map<String, BigDecimal> herfindahlIndex) {
+            this.generation = generation;
+            this.reportDate = reportDate;
+            this.banks = Collections.unmodifiableList(banks);
+            this.totalExposure = totalExposure;
+            this.herfindahlIndex = herfindahlIndex;
+        }
+
+        BigDecimal total(String currency) {
+            return totalExposure.getOrDefault(currency, BigDecimal.ZERO);
+        }
+    }
+
+    public static final class BankExposure {
+        private final String bankName;
+        private final String currency;
+        private long facilityCount;
+        private long largeFacilityCount;
+        private BigDecimal totalExposure = BigDecimal.ZERO;
+        private long limitCount;
+        private BigDecimal utilizationSum = BigDecimal.ZERO;
+        private long utilizationCount;
+        private BigDecimal share = BigDecimal.ZERO;
+
+        BankExposure(String bankName, String currency) {
+            this.bankName = bankName;
+            this.currency = currency;
+        }
+
+        void add(BankExposure bank) {
+            facilityCount += bank.facilityCount;
+            largeFacilityCount += bank.largeFacilityCount;
+            totalExposure = totalExposure.add(bank.totalExposure);
+            limitCount += bank.limitCount;
+            utilizationSum = utilizationSum.add(bank.utilizationSum);
+            utilizationCount += bank.utilizationCount;
+        }
+
+        public String getBankName() { return bankName; }
+        public String getCurrency() { return currency; }
+        public int getFacilityCount() { return (int) facilityCount; }
+        public int getLargeFacilityCount() { return (int) largeFacilityCount; }
+        public BigDecimal getTotalExposure() { return totalExposure; }
+
+        /**
+         * Percentage of the exposure in this currency held with this bank
+         */
+        public BigDecimal getShare() { return share; }
+
+        public BigDecimal getAverageFacility() {
+            if (limitCount == 0) return BigDecimal.ZERO;
+            return totalExposure.divide(BigDecimal.valueOf(limitCount), 2, RoundingMode.HALF_UP);
+        }
+
+        public BigDecimal getAverageUtilization() {
+            if (utilizationCount == 0) return BigDecimal.ZERO;
+            return utilizationSum.divide(BigDecimal.valueOf(utilizationCount), 2, RoundingMode.HALF_UP);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("bank_name", bankName);
+            map.put("currency", currency);
+            map.put("facility_count", facilityCount);
+            map.put("large_facility_count", largeFacilityCount);
+            map.put("total_exposure", totalExposure);
+            map.put("average_facility", getAverageFacility());
+            map.put("average_utilization", getAverageUtilization());
+            map.put("share_percentage", share);
+            return map;
+        }
+    }
+}
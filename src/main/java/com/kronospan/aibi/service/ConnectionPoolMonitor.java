@@ -0,0 +1,51 @@
+package com.kronospan.aibi.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Connection Pool Monitor
+ *
+ * Live sizing and usage of the write and read-only connection pools,
+ * including how many threads are currently waiting for a connection.
+ */
+@Service
+public class ConnectionPoolMonitor {
+
+    @Autowired
+    @Qualifier("writeDataSource")
+    private HikariDataSource writeDataSource;
+
+    @Autowired
+    @Qualifier("readDataSource")
+    private HikariDataSource readDataSource;
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("write", poolStatistics(writeDataSource));
+        stats.put("read", poolStatistics(readDataSource));
+        return stats;
+    }
+
+    private Map<String, Object> poolStatistics(HikariDataSource dataSource) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool_name", dataSource.getPoolName());
+        stats.put("maximum_pool_size", dataSource.getMaximumPoolSize());
+        stats.put("minimum_idle", dataSource.getMinimumIdle());
+        stats.put("connection_timeout_ms", dataSource.getConnectionTimeout());
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active_connections", pool.getActiveConnections());
+            stats.put("idle_connections", pool.getIdleConnections());
+            stats.put("total_connections", pool.getTotalConnections());
+            stats.put("threads_awaiting_connection", pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,199 @@
+package com.kronospan.aibi.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.*;
+
+/**
+ * Data Export Service
+ *
+ * Streams whole tables as NDJSON (one JSON object per line) straight from a
+ * forward-only JDBC cursor, so memory use stays flat however many rows the
+ * table holds. Output is flushed every few hundred rows so clients see
+ * progress while the export runs. The same cursor can feed any other
+ * {@link RowSink}, e.g. the facility appendix of a report export.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DataExportService {
+
+    private static final String FACILITIES_SQL =
+        "SELECT wcf.id, wcf.report_date, wcf.facility_name, wcf.bank_name, wcf.facility_type, wcf.currency, " +
+        "wcf.limit_amount, wcf.utilized_amount, wcf.undrawn_amount, wcf.utilization_percentage, " +
+        "wcf.maturity_date, wcf.interest_rate, gc.id AS company_id, gc.company_name, gc.country AS company_country " +
+        "FROM working_capital_facilities wcf LEFT JOIN group_companies gc ON gc.id = wcf.company_id " +
+        "ORDER BY wcf.report_date, wcf.id";
+
+    private static final String LOANS_SQL =
+        "SELECT ltl.id, ltl.loan_reference, ltl.lender_name, ltl.loan_type, ltl.currency, ltl.original_amount, " +
+        "ltl.outstanding_amount, ltl.interest_rate, ltl.start_date, ltl.maturity_date, ltl.repayment_frequency, " +
+        "ltl.security_type, ltl.purpose, gc.id AS company_id, gc.company_name, gc.country AS company_country " +
+        "FROM long_term_loans ltl LEFT JOIN group_companies gc ON gc.id = ltl.company_id ORDER BY ltl.id";
+
+    private static final String COMPANIES_SQL =
+        "SELECT id, company_name, company_code, country, incorporation_country, legal_form, business_activity, is_active " +
+        "FROM group_companies ORDER BY id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kronospan.ai.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${kronospan.ai.export.flush-rows:500}")
+    private int flushRows;
+
+    public long streamFacilities(OutputStream out) {
+        return stream(FACILITIES_SQL, new JsonLines(out));
+    }
+
+    /**
+     * Feed every facility, with its company, to the given sink
+     */
+    public long streamFacilities(RowSink sink) {
+        return stream(FACILITIES_SQL, sink);
+    }
+
+    public long streamLoans(OutputStream out) {
+        return stream(LOANS_SQL, new JsonLines(out));
+    }
+
+    public long streamCompanies(OutputStream out) {
+        return stream(COMPANIES_SQL, new JsonLines(out));
+    }
+
+    /**
+     * Hand every row of the query to the sink, straight off the cursor
+     *
+     * @return number of rows written
+     */
+    private long stream(String sql, RowSink sink) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            // H2 otherwise materializes the whole result before returning the first row
+            setLazyExecution(connection, true);
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return writeRows(rs, sink);
+                }
+            } finally {
+                setLazyExecution(connection, false);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private long writeRows(ResultSet rs, RowSink sink) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columns = meta.getColumnCount();
+        String[] labels = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            labels[i] = meta.getColumnLabel(i + 1).toLowerCase();
+        }
+
+        long count = 0;
+        try {
+            sink.start(labels);
+            Object[] values = new Object[columns];
+            while (rs.next()) {
+                for (int i = 0; i < columns; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                sink.row(values);
+                count++;
+            }
+            sink.finish();
+        } catch (IOException e) {
+            // Client went away; stop reading rows
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    /**
+     * Receives the rows of a streamed query one at a time. The values array
+     * is reused between rows.
+     */
+    public interface RowSink {
+        void start(String[] columns) throws IOException;
+        void row(Object[] values) throws IOException;
+        void finish() throws IOException;
+    }
+
+    /**
+     * One JSON object per row, flushed every few hundred rows
+     */
+    private class JsonLines implements RowSink {
+        private final OutputStream out;
+        private JsonGenerator json;
+        private String[] columns;
+        private long count;
+
+        JsonLines(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            this.columns = columns;
+            json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                writeField(json, columns[i], values[i]);
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+            if (++count % flushRows == 0) {
+                json.flush();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    private void writeField(JsonGenerator json, String name, Object value) throws IOException {
+        if (value == null) {
+            json.writeNullField(name);
+        } else if (value instanceof BigDecimal) {
+            json.writeNumberField(name, (BigDecimal) value);
+        } else if (value instanceof Number) {
+            json.writeNumberField(name, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            json.writeBooleanField(name, (Boolean) value);
+        } else if (value instanceof Date) {
+            json.writeStringField(name, ((Date) value).toLocalDate().toString());
+        } else {
+            json.writeStringField(name, value.toString());
+        }
+    }
+
+    private void setLazyExecution(Connection connection, boolean lazy) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+}
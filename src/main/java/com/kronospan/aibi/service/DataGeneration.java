@@ -0,0 +1,150 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data Generation
+ *
+ * Version number of the imported data set. It moves forward once each import
+ * has committed, so anything derived from the tables can be cached under the
+ * generation it was computed for and recomputed when the number changes.
+ * Imports that have started but not yet completed are counted as well, so
+ * caches can decide whether to serve the previous generation meanwhile.
+ * When the last running import completes, an {@link ImportsCompleted} event
+ * is published.
+ *
+ * The number is kept in the data_generation table, so a restart over
+ * unchanged data carries on with the same generation and whatever was
+ * stored for it (pregenerated reports, ETags held by clients) stays valid.
+ * Every import bumps the stored number when it begins as well as when it
+ * completes, so data changed by an import that never completed (the
+ * application stopped halfway) is never taken for the generation before it.
+ * A new database starts numbering from its creation time in milliseconds
+ * rather than from 1, so it does not reuse the generations of an earlier one.
+ */
+@Component
+public class DataGeneration {
+
+    private static final String BUMP_SQL = "UPDATE data_generation SET generation = generation + 1 WHERE id = 1";
+    private static final String SELECT_SQL = "SELECT generation FROM data_generation WHERE id = 1";
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicInteger runningImports = new AtomicInteger();
+
+    @PostConstruct
+    public void initGeneration() {
+        Long stored = jdbcTemplate.query(SELECT_SQL, rs -> rs.next() ? rs.getLong(1) : null);
+        if (stored == null) {
+            stored = System.currentTimeMillis();
+            jdbcTemplate.update("INSERT INTO data_generation (id, generation) VALUES (1, ?)", stored);
+        }
+        generation.set(stored);
+        System.out.println("Data generation " + stored);
+    }
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Whether an import has started and not yet completed
+     */
+    public boolean isImportRunning() {
+        return runningImports.get() > 0;
+    }
+
+    /**
+     * Mark the start of an import; {@link #advanceAfterImport()} marks its end
+     */
+    public void beginImport() {
+        runningImports.incrementAndGet();
+        bump();
+    }
+
+    /**
+     * Start a new generation once the surrounding import transaction has
+     * committed, or right away when there is none, and mark the import as
+     * finished once the transaction has completed either way
+     */
+    public void advanceAfterImport() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    endImport();
+                }
+            });
+        } else {
+            advance();
+            endImport();
+        }
+    }
+
+    private void advance() {
+        long next = bump();
+        generation.accumulateAndGet(next, Math::max);
+        System.out.println("Data generation advanced to " + next);
+    }
+
+    /**
+     * Move the stored generation forward in a transaction of its own, so it
+     * is committed whatever becomes of the import's
+     */
+    private long bump() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long next = transaction.execute(status -> {
+            jdbcTemplate.update(BUMP_SQL);
+            return jdbcTemplate.queryForObject(SELECT_SQL, Long.class);
+        });
+        return next;
+    }
+
+    private void endImport() {
+        if (runningImports.updateAndGet(count -> Math.max(0, count - 1)) == 0) {
+            eventPublisher.publishEvent(new ImportsCompleted(generation.get()));
+        }
+    }
+
+    /**
+     * No import is running any more; published on the thread of the import
+     * that finished last, so listeners should hand real work off
+     */
+    public static final class ImportsCompleted {
+        private final long generation;
+
+        ImportsCompleted(long generation) {
+            this.generation = generation;
+        }
+
+        public long getGeneration() { return generation; }
+    }
+}
@@ -0,0 +1,87 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Summary Service
+ *
+ * Dashboard summary computed with aggregate SQL: table counts plus per-bank,
+ * per-currency and per-country GROUP BYs. No facility rows are loaded into
+ * the application; the response size depends only on the number of banks,
+ * currencies and countries.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DataSummaryService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public Map<String, Object> getSummary() {
+        long startTime = System.nanoTime();
+        Map<String, Object> summary = new LinkedHashMap<>();
+
+        Map<String, Object> counts = jdbcTemplate.queryForMap(
+            "SELECT (SELECT COUNT(*) FROM working_capital_facilities) AS wcf_count, " +
+            "(SELECT COUNT(*) FROM long_term_loans) AS ltl_count, " +
+            "(SELECT COUNT(*) FROM group_companies) AS company_count");
+        long wcrCount = ((Number) counts.get("WCF_COUNT")).longValue();
+        long ltlCount = ((Number) counts.get("LTL_COUNT")).longValue();
+        long companyCount = ((Number) counts.get("COMPANY_COUNT")).longValue();
+
+        summary.put("working_capital_facilities", wcrCount);
+        summary.put("long_term_loans", ltlCount);
+        summary.put("group_companies", companyCount);
+        summary.put("total_records", wcrCount + ltlCount + companyCount);
+
+        if (wcrCount > 0) {
+            Map<String, Long> bankCounts = new LinkedHashMap<>();
+            jdbcTemplate.query(
+                "SELECT bank_name, SUM(facility_count) FROM wcf_summary_bank GROUP BY bank_name " +
+                "ORDER BY SUM(facility_count) DESC, bank_name",
+                rs -> { bankCounts.put(rs.getString(1), rs.getLong(2)); });
+            summary.put("top_banks", bankCounts);
+
+            summary.put("by_currency", keyedBy("currency", jdbcTemplate.queryForList(
+                "SELECT currency, SUM(facility_count) AS facility_count, COALESCE(SUM(total_limit), 0) AS total_limit, " +
+                "COALESCE(SUM(total_utilized), 0) AS total_utilized " +
+                "FROM wcf_summary_bank GROUP BY currency ORDER BY currency")));
+
+            summary.put("by_country", keyedBy("country", jdbcTemplate.queryForList(
+                "SELECT gc.country, SUM(s.facility_count) AS facility_count, COALESCE(SUM(s.total_limit), 0) AS total_limit, " +
+                "COALESCE(SUM(s.total_utilized), 0) AS total_utilized " +
+                "FROM wcf_summary_company s JOIN group_companies gc ON gc.id = s.company_id " +
+                "GROUP BY gc.country ORDER BY gc.country")));
+        }
+
+        summary.put("query_time_ms", (System.nanoTime() - startTime) / 1_000_000);
+        return summary;
+    }
+
+    /**
+     * Turn GROUP BY rows into {key -> {metric -> value}} with lower-case metric names
+     */
+    private Map<String, Map<String, Object>> keyedBy(String keyColumn, List<Map<String, Object>> rows) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            Object key = null;
+            for (Map.Entry<String, Object> column : row.entrySet()) {
+                if (column.getKey().equalsIgnoreCase(keyColumn)) {
+                    key = column.getValue();
+                } else {
+                    metrics.put(column.getKey().toLowerCase(), column.getValue());
+                }
+            }
+            result.put(String.valueOf(key), metrics);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package com.kronospan.aibi.service;
+
+import com.kronospan.aibi.model.Director;
+import com.kronospan.aibi.model.GroupCompany;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reference Data Cache
+ *
+ * Owns the Hibernate second-level cache regions for companies and directors
+ * and the query regions for company lookups. JPA writes keep these regions
+ * current on their own; imports also write through JDBC, which Hibernate
+ * cannot see, so every import ends with {@link #evictAfterImport()}.
+ */
+@Service
+public class ReferenceDataCache {
+
+    public static final String[] QUERY_REGIONS = {"company-by-code", "company-by-country"};
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Evict once the import's transaction has committed, or right away when
+     * the import runs outside a transaction
+     */
+    public void evictAfterImport() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAll();
+                }
+            });
+        } else {
+            evictAll();
+        }
+    }
+
+    /**
+     * Drop all cached companies, directors and company query results
+     */
+    public void evictAll() {
+        SessionFactory sessionFactory = sessionFactory();
+        sessionFactory.getCache().evictEntityData(GroupCompany.class);
+        sessionFactory.getCache().evictEntityData(Director.class);
+        for (String region : QUERY_REGIONS) {
+            sessionFactory.getCache().evictQueryRegion(region);
+        }
+        sessionFactory.getCache().evictDefaultQueryRegion();
+        System.out.println("Evicted reference data from the second-level cache");
+    }
+
+    /**
+     * Hit/miss/put counts per cache region
+     */
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = sessionFactory().getStatistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statistics_enabled", statistics.isStatisticsEnabled());
+        result.put("second_level_hits", statistics.getSecondLevelCacheHitCount());
+        result.put("second_level_misses", statistics.getSecondLevelCacheMissCount());
+        result.put("second_level_puts", statistics.getSecondLevelCachePutCount());
+        result.put("query_cache_hits", statistics.getQueryCacheHitCount());
+        result.put("query_cache_misses", statistics.getQueryCacheMissCount());
+        result.put("query_cache_puts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            regions.put(region, regionStatistics(statistics.getDomainDataRegionStatistics(region)));
+        }
+        for (String region : QUERY_REGIONS) {
+            CacheRegionStatistics queryRegion = statistics.getQueryRegionStatistics(region);
+            if (queryRegion != null) {
+                regions.put(region, regionStatistics(queryRegion));
+            }
+        }
+        result.put("regions", regions);
+        return result;
+    }
+
+    private Map<String, Object> regionStatistics(CacheRegionStatistics region) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = region.getHitCount();
+        long misses = region.getMissCount();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", region.getPutCount());
+        stats.put("hit_ratio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        stats.put("elements_in_memory", region.getElementCountInMemory());
+        return stats;
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
@@ -0,0 +1,124 @@
+package com.kronospan.aibi.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Report Column
+ *
+ * One column of a report page holding raw values: amounts and percentages as
+ * decimals, counts as primitive longs, dates and text as they are. Display
+ * strings are only produced when a page is rendered, in the locale of the
+ * output; exports and charts read the raw values directly.
+ *
+ * Most columns hold one kind of value. Metric tables, where each row is a
+ * different measure (amount, percentage, count), hold a kind per cell.
+ */
+public final class ReportColumn {
+
+    public enum Type { TEXT, AMOUNT, PERCENTAGE, COUNT, DATE }
+
+    private final String name;
+    private Type[] types = new Type[8];
+    private Object[] values = new Object[8];
+    private long[] counts = new long[8];
+    private int size;
+
+    public ReportColumn(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Text column from existing strings
+     */
+    public static ReportColumn text(String name, List<String> values) {
+        ReportColumn column = new ReportColumn(name);
+        for (String value : values) {
+            column.text(value);
+        }
+        return column;
+    }
+
+    public ReportColumn text(String value) {
+        return append(Type.TEXT, value, 0);
+    }
+
+    public ReportColumn amount(BigDecimal value) {
+        return append(Type.AMOUNT, value, 0);
+    }
+
+    public ReportColumn percentage(BigDecimal value) {
+        return append(Type.PERCENTAGE, value, 0);
+    }
+
+    public ReportColumn count(long value) {
+        return append(Type.COUNT, null, value);
+    }
+
+    /**
+     * Date cell from a LocalDate or a JDBC date/timestamp; anything else is kept as text
+     */
+    public ReportColumn date(Object value) {
+        if (value == null || value instanceof LocalDate) return append(Type.DATE, value, 0);
+        if (value instanceof java.sql.Date) return append(Type.DATE, ((java.sql.Date) value).toLocalDate(), 0);
+        if (value instanceof java.sql.Timestamp) {
+            return append(Type.DATE, ((java.sql.Timestamp) value).toLocalDateTime().toLocalDate(), 0);
+        }
+        return append(Type.TEXT, value.toString(), 0);
+    }
+
+    public String getName() { return name; }
+    public int size() { return size; }
+
+    public Type getType(int row) {
+        return types[row];
+    }
+
+    /**
+     * Raw value of a cell: BigDecimal, Long, LocalDate, String or null
+     */
+    public Object getValue(int row) {
+        return types[row] == Type.COUNT ? Long.valueOf(counts[row]) : values[row];
+    }
+
+    /**
+     * Display string of a cell, formatted for the locale
+     */
+    public String format(int row, Locale locale) {
+        switch (types[row]) {
+            case AMOUNT:
+                return values[row] == null ? "0" : String.format(locale, "%,.0f", values[row]);
+            case PERCENTAGE:
+                return values[row] == null ? "0%" : String.format(locale, "%.1f%%", values[row]);
+            case COUNT:
+                return Long.toString(counts[row]);
+            case DATE:
+                return values[row] == null ? "N/A" : values[row].toString();
+            default:
+                return (String) values[row];
+        }
+    }
+
+    public List<String> format(Locale locale) {
+        List<String> formatted = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            formatted.add(format(row, locale));
+        }
+        return formatted;
+    }
+
+    private ReportColumn append(Type type, Object value, long count) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        types[size] = type;
+        values[size] = value;
+        counts[size] = count;
+        size++;
+        return this;
+    }
+}
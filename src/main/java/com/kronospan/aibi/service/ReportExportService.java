@@ -0,0 +1,352 @@
+package com.kronospan.aibi.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Report Export Service
+ *
+ * Writes executive reports as XLSX or CSV: a summary sheet, one sheet (or CSV
+ * section) per report page with the page's columns side by side, and
+ * optionally the full facility list as an appendix.
+ *
+ * XLSX goes through POI's SXSSFWorkbook, which keeps only a small window of
+ * rows in memory and spills the rest to compressed temp files; CSV is written
+ * straight to the response. The appendix is fed from a JDBC cursor, so memory
+ * stays bounded however many facilities there are.
+ */
+@Service
+public class ReportExportService {
+
+    private static final int MAX_SHEET_NAME = 31;
+
+    @Autowired
+    private DataExportService dataExportService;
+
+    @Value("${kronospan.ai.export.xlsx-row-window:200}")
+    private int rowWindow;
+
+    /**
+     * Write the report as an XLSX workbook
+     */
+    public void writeXlsx(ReportGenerationService.ExecutiveReport report, boolean facilityAppendix, OutputStream out)
+            throws IOException {
+        long startTime = System.currentTimeMillis();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            CellStyles styles = new CellStyles(workbook);
+            writeSummarySheet(workbook, report, styles.header);
+            for (ReportGenerationService.ReportPage page : report.getPages()) {
+                writePageSheet(workbook, page, styles);
+            }
+            long facilities = facilityAppendix ? dataExportService.streamFacilities(new XlsxAppendix(workbook, styles)) : 0;
+            workbook.write(out);
+            System.out.println("Exported " + report.getReportType() + " to XLSX (" + report.getPages().size() +
+                               " pages, " + facilities + " appendix rows) in " +
+                               (System.currentTimeMillis() - startTime) + "ms");
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Write the report as CSV sections separated by blank lines; numbers and
+     * dates are written raw (plain decimals, ISO dates) for re-processing
+     */
+    public void writeCsv(ReportGenerationService.ExecutiveReport report, boolean facilityAppendix, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvRow(writer, Arrays.asList(report.getReportTitle()));
+        writeCsvRow(writer, Arrays.asList("Generated", String.valueOf(report.getGeneratedAt())));
+        if (report.getExecutiveSummary() != null) {
+            for (Map.Entry<String, Object> entry : report.getExecutiveSummary().entrySet()) {
+                writeCsvRow(writer, Arrays.asList(entry.getKey(), String.valueOf(entry.getValue())));
+            }
+        }
+
+        for (ReportGenerationService.ReportPage page : report.getPages()) {
+            writer.write("\r\n");
+            writeCsvRow(writer, Arrays.asList("Page " + page.getPageNumber() + ": " + page.getPageTitle()));
+            List<ReportColumn> columns = page.getTypedColumns();
+            List<String> header = new ArrayList<>(columns.size());
+            for (ReportColumn column : columns) {
+                header.add(column.getName());
+            }
+            writeCsvRow(writer, header);
+            for (int i = 0, height = height(columns); i < height; i++) {
+                List<Object> row = new ArrayList<>(columns.size());
+                for (ReportColumn column : columns) {
+                    row.add(i < column.size() ? column.getValue(i) : null);
+                }
+                writeCsvRow(writer, row);
+            }
+        }
+
+        if (facilityAppendix) {
+            writer.write("\r\n");
+            writeCsvRow(writer, Arrays.asList("Appendix: Working Capital Facilities"));
+            dataExportService.streamFacilities(new CsvAppendix(writer));
+        }
+        writer.flush();
+    }
+
+    private void writeSummarySheet(SXSSFWorkbook workbook, ReportGenerationService.ExecutiveReport report,
+                                   CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet("Summary");
+        int rowIndex = 0;
+        Row title = sheet.createRow(rowIndex++);
+        setCell(title, 0, report.getReportTitle()).setCellStyle(headerStyle);
+        Row generated = sheet.createRow(rowIndex++);
+        setCell(generated, 0, "Generated");
+        setCell(generated, 1, String.valueOf(report.getGeneratedAt()));
+        rowIndex++;
+        if (report.getExecutiveSummary() != null) {
+            for (Map.Entry<String, Object> entry : report.getExecutiveSummary().entrySet()) {
+                Row row = sheet.createRow(rowIndex++);
+                setCell(row, 0, entry.getKey());
+                setCell(row, 1, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * One sheet per page; amounts, percentages, counts and dates go in as
+     * numeric cells with a display format rather than preformatted text
+     */
+    private void writePageSheet(SXSSFWorkbook workbook, ReportGenerationService.ReportPage page, CellStyles styles) {
+        Sheet sheet = workbook.createSheet(sheetName(workbook, page.getPageNumber() + " " + page.getPageTitle()));
+        List<ReportColumn> columns = page.getTypedColumns();
+        Row header = sheet.createRow(0);
+        for (int c = 0; c < columns.size(); c++) {
+            setCell(header, c, columns.get(c).getName()).setCellStyle(styles.header);
+        }
+        for (int i = 0, height = height(columns); i < height; i++) {
+            Row row = sheet.createRow(i + 1);
+            for (int c = 0; c < columns.size(); c++) {
+                ReportColumn column = columns.get(c);
+                if (i < column.size()) {
+                    setCell(row, c, column, i, styles);
+                }
+            }
+        }
+    }
+
+    private static int height(List<ReportColumn> columns) {
+        int height = 0;
+        for (ReportColumn column : columns) {
+            height = Math.max(height, column.size());
+        }
+        return height;
+    }
+
+    private static void setCell(Row row, int columnIndex, ReportColumn column, int index, CellStyles styles) {
+        Object value = column.getValue(index);
+        Cell cell = setCell(row, columnIndex, value);
+        if (value == null) return;
+        switch (column.getType(index)) {
+            case AMOUNT:
+                cell.setCellStyle(styles.amount);
+                break;
+            case PERCENTAGE:
+                cell.setCellStyle(styles.percentage);
+                break;
+            case COUNT:
+                cell.setCellStyle(styles.count);
+                break;
+            case DATE:
+                cell.setCellValue((LocalDate) value);
+                cell.setCellStyle(styles.date);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Cell setCell(Row row, int column, Object value) {
+        Cell cell = row.createCell(column);
+        if (value == null) {
+            cell.setBlank();
+        } else if (value instanceof BigDecimal) {
+            cell.setCellValue(((BigDecimal) value).doubleValue());
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Date) {
+            cell.setCellValue(((Date) value).toLocalDate().toString());
+        } else {
+            cell.setCellValue(value.toString());
+        }
+        return cell;
+    }
+
+    /**
+     * Cell styles shared by every sheet of a workbook; Excel caps the number
+     * of styles, so they are created once rather than per cell
+     */
+    private static final class CellStyles {
+        final CellStyle header;
+        final CellStyle amount;
+        final CellStyle percentage;
+        final CellStyle count;
+        final CellStyle date;
+        final CellStyle timestamp;
+
+        CellStyles(Workbook workbook) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            header = workbook.createCellStyle();
+            header.setFont(bold);
+            DataFormat formats = workbook.createDataFormat();
+            amount = numberStyle(workbook, formats, "#,##0");
+            // Report percentages are already 0-100, so no Excel % scaling
+            percentage = numberStyle(workbook, formats, "0.0\"%\"");
+            count = numberStyle(workbook, formats, "0");
+            date = numberStyle(workbook, formats, "yyyy-mm-dd");
+            timestamp = numberStyle(workbook, formats, "yyyy-mm-dd hh:mm:ss");
+        }
+
+        private static CellStyle numberStyle(Workbook workbook, DataFormat formats, String format) {
+            CellStyle style = workbook.createCellStyle();
+            style.setDataFormat(formats.getFormat(format));
+            return style;
+        }
+    }
+
+    /**
+     * Unique sheet name within Excel's 31 characters, without the characters it rejects
+     */
+    private static String sheetName(Workbook workbook, String name) {
+        String cleaned = name.replaceAll("[\\\\/?*\\[\\]:]", " ").trim();
+        if (cleaned.length() > MAX_SHEET_NAME) cleaned = cleaned.substring(0, MAX_SHEET_NAME);
+        String candidate = cleaned;
+        for (int suffix = 2; workbook.getSheet(candidate) != null; suffix++) {
+            String tail = " (" + suffix + ")";
+            candidate = cleaned.substring(0, Math.min(cleaned.length(), MAX_SHEET_NAME - tail.length())) + tail;
+        }
+        return candidate;
+    }
+
+    private static void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) writer.write(',');
+            writer.write(csvValue(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Text that a spreadsheet would run as a formula gets a leading quote;
+     * numbers stay raw, negative ones included
+     */
+    private static String csvValue(Object value) {
+        if (value == null) return "";
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    /**
+     * Facility appendix as worksheet rows, moving to a further sheet at Excel's
+     * row limit; dates go in as date cells like on the page sheets
+     */
+    private static final class XlsxAppendix implements DataExportService.RowSink {
+        private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+        private final SXSSFWorkbook workbook;
+        private final CellStyles styles;
+        private String[] columns;
+        private SXSSFSheet sheet;
+        private int rowIndex;
+
+        XlsxAppendix(SXSSFWorkbook workbook, CellStyles styles) {
+            this.workbook = workbook;
+            this.styles = styles;
+        }
+
+        @Override
+        public void start(String[] columns) {
+            this.columns = columns;
+            newSheet();
+        }
+
+        @Override
+        public void row(Object[] values) {
+            if (rowIndex >= MAX_ROWS) newSheet();
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.length; i++) {
+                Cell cell = setCell(row, i, values[i]);
+                if (values[i] instanceof Date) {
+                    cell.setCellValue(((Date) values[i]).toLocalDate());
+                    cell.setCellStyle(styles.date);
+                } else if (values[i] instanceof Timestamp) {
+                    cell.setCellValue(((Timestamp) values[i]).toLocalDateTime());
+                    cell.setCellStyle(styles.timestamp);
+                }
+            }
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet(sheetName(workbook, "Facilities"));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columns.length; i++) {
+                setCell(header, i, columns[i]).setCellStyle(styles.header);
+            }
+            rowIndex = 1;
+        }
+    }
+
+    /**
+     * Facility appendix as CSV lines under one header row
+     */
+    private static final class CsvAppendix implements DataExportService.RowSink {
+        private final Writer writer;
+
+        CsvAppendix(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            writeCsvRow(writer, Arrays.asList(columns));
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            List<Object> row = new ArrayList<>(values.length);
+            for (Object value : values) {
+                row.add(value instanceof Date ? ((Date) value).toLocalDate().toString() : value);
+            }
+            writeCsvRow(writer, row);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -5,14 +5,27 @@ import com.kronospan.aibi.repository.WorkingCapitalFacilityRepository;
 import com.kronospan.aibi.repository.LongTermLoanRepository;
 import com.kronospan.aibi.repository.DirectorRepository;
 import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * Multi-Page Report Generation Engine
@@ -24,6 +37,7 @@ import java.util.*;
  * - Charts and visualizations data
  */
 @Service
+@Transactional(readOnly = true)
 public class ReportGenerationService {
     
     @Autowired
@@ -44,6 +58,27 @@ public class ReportGenerationService {
     @Autowired
     private GroupCompanyRepository companyRepository;
     
+    @Autowired
+    private BankExposureEngine bankExposureEngine;
+    
+    @Autowired
+    private SnapshotVarianceEngine varianceEngine;
+    
+    @Autowired
+    @Qualifier("reportExecutor")
+    private Executor reportExecutor;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate readOnlyTransaction;
+    
+    @PostConstruct
+    public void initReportSections() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+    
     /**
      * Generate comprehensive executive report
      */
@@ -69,19 +104,62 @@ public class ReportGenerationService {
         }
     }
     
+    /**
+     * Run one report section on the report executor. Each section gets its own
+     * read-only transaction, so it draws a connection from the read pool.
+     */
+    private <T> CompletableFuture<T> section(Supplier<T> section) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> section.get()), reportExecutor);
+    }
+    
+    /**
+     * Wait for a section and rethrow its failure unwrapped
+     */
+    private static <T> T await(CompletableFuture<T> section) {
+        try {
+            return section.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
     /**
      * Generate Working Capital Analysis Report
+     * 
+     * Sections run as tasks on the report executor: the facility metrics and
+     * the country breakdown are queried concurrently, and the pages, summary
+     * and charts that share the metrics are built from the one result.
      */
     private ExecutiveReport generateWorkingCapitalReport(Map<String, Object> parameters) {
         ExecutiveReport report = new ExecutiveReport();
         report.setReportTitle("Working Capital Facilities Analysis");
         report.setGeneratedAt(LocalDateTime.now());
         
-        // Executive Summary
-        Map<String, Object> summary = generateWorkingCapitalSummary();
-        report.setExecutiveSummary(summary);
+        CompletableFuture<WorkingCapitalMetrics> metrics = section(this::loadWorkingCapitalMetrics);
+        CompletableFuture<List<Map<String, Object>>> countryData = section(this::getCountryWiseAnalysis);
+        
+        CompletableFuture<Map<String, Object>> summary = metrics.thenApply(this::generateWorkingCapitalSummary);
+        CompletableFuture<ReportPage> page1 = metrics.thenApply(this::buildWorkingCapitalOverviewPage);
+        CompletableFuture<ReportPage> page2 = metrics.thenApply(this::buildBankingPartnerPage);
+        CompletableFuture<ReportPage> page3 = countryData.thenApply(this::buildGeographicalPage);
+        CompletableFuture<Map<String, Object>> charts = metrics.thenApply(this::generateWorkingCapitalCharts);
+        
+        report.setExecutiveSummary(await(summary));
+        report.addPage(await(page1));
+        report.addPage(await(page2));
+        report.addPage(await(page3));
+        report.setChartData(await(charts));
         
-        // Page 1: Overview and Key Metrics
+        return report;
+    }
+    
+    /**
+     * Page 1: overview and key metrics per currency
+     */
+    private ReportPage buildWorkingCapitalOverviewPage(WorkingCapitalMetrics metrics) {
         ReportPage page1 = new ReportPage();
         page1.setPageNumber(1);
         page1.setPageTitle("Working Capital Overview");
@@ -92,27 +170,9 @@ public class ReportGenerationService {
             "Number of Banking Partners",
             "Highest Single Facility"
         ));
-        page1.addColumn("EUR Amount", Arrays.asList(
-            formatCurrency(getTotalAvailableFacilities("EUR")),
-            formatCurrency(getTotalUtilizedAmount("EUR")),
-            formatPercentage(getAverageUtilization("EUR")),
-            getBankingPartnerCount("EUR").toString(),
-            formatCurrency(getHighestFacility("EUR"))
-        ));
-        page1.addColumn("PLN Amount", Arrays.asList(
-            formatCurrency(getTotalAvailableFacilities("PLN")),
-            formatCurrency(getTotalUtilizedAmount("PLN")),
-            formatPercentage(getAverageUtilization("PLN")),
-            getBankingPartnerCount("PLN").toString(),
-            formatCurrency(getHighestFacility("PLN"))
-        ));
-        page1.addColumn("BGN Amount", Arrays.asList(
-            formatCurrency(getTotalAvailableFacilities("BGN")),
-            formatCurrency(getTotalUtilizedAmount("BGN")),
-            formatPercentage(getAverageUtilization("BGN")),
-            getBankingPartnerCount("BGN").toString(),
-            formatCurrency(getHighestFacility("BGN"))
-        ));
+        page1.addColumn(currencyColumn("EUR Amount", metrics.currency("EUR")));
+        page1.addColumn(currencyColumn("PLN Amount", metrics.currency("PLN")));
+        page1.addColumn(currencyColumn("BGN Amount", metrics.currency("BGN")));
         page1.addColumn("Variance %", Arrays.asList(
             calculateVariance("available", "2024", "2023"),
             calculateVariance("utilized", "2024", "2023"),
@@ -128,74 +188,76 @@ public class ReportGenerationService {
             assessRiskLevel("exposure")
         ));
         
-        report.addPage(page1);
-        
-        // Page 2: Bank-wise Analysis
+        return page1;
+    }
+    
+    /**
+     * Page 2: bank-wise analysis
+     */
+    private ReportPage buildBankingPartnerPage(WorkingCapitalMetrics metrics) {
         ReportPage page2 = new ReportPage();
         page2.setPageNumber(2);
         page2.setPageTitle("Banking Partner Analysis");
         
-        List<Map<String, Object>> bankData = getBankWiseAnalysis();
+        List<WorkingCapitalMetrics.Totals> bankData = metrics.topBanks(10);
         List<String> bankNames = new ArrayList<>();
-        List<String> totalLimits = new ArrayList<>();
-        List<String> utilizations = new ArrayList<>();
+        ReportColumn totalLimits = new ReportColumn("Total Limit");
+        ReportColumn utilizations = new ReportColumn("Utilization %");
         List<String> currencies = new ArrayList<>();
         List<String> riskRatings = new ArrayList<>();
         List<String> recommendations = new ArrayList<>();
         
-        for (Map<String, Object> bank : bankData) {
-            bankNames.add((String) bank.get("bank_name"));
-            totalLimits.add(formatCurrency((BigDecimal) bank.get("total_limit")));
-            utilizations.add(formatPercentage((BigDecimal) bank.get("utilization_rate")));
-            currencies.add((String) bank.get("primary_currency"));
-            riskRatings.add(assessBankRisk((String) bank.get("bank_name")));
-            recommendations.add(getBankRecommendation((String) bank.get("bank_name")));
+        for (WorkingCapitalMetrics.Totals bank : bankData) {
+            bankNames.add(bank.getBankName());
+            totalLimits.amount(bank.getTotalLimit());
+            utilizations.percentage(bank.getAverageUtilization());
+            currencies.add(bank.getCurrency());
+            riskRatings.add(assessBankRisk(bank.getBankName()));
+            recommendations.add(getBankRecommendation(bank.getBankName()));
         }
         
         page2.addColumn("Banking Partner", bankNames);
-        page2.addColumn("Total Limit", totalLimits);
-        page2.addColumn("Utilization %", utilizations);
+        page2.addColumn(totalLimits);
+        page2.addColumn(utilizations);
         page2.addColumn("Primary Currency", currencies);
         page2.addColumn("Risk Rating", riskRatings);
         page2.addColumn("Recommendation", recommendations);
         
-        report.addPage(page2);
-        
-        // Page 3: Country-wise Analysis
+        return page2;
+    }
+    
+    /**
+     * Page 3: country-wise analysis
+     */
+    private ReportPage buildGeographicalPage(List<Map<String, Object>> countryData) {
         ReportPage page3 = new ReportPage();
         page3.setPageNumber(3);
         page3.setPageTitle("Geographical Distribution Analysis");
         
-        List<Map<String, Object>> countryData = getCountryWiseAnalysis();
         List<String> countries = new ArrayList<>();
-        List<String> totalFacilities = new ArrayList<>();
-        List<String> avgUtilization = new ArrayList<>();
+        ReportColumn totalFacilities = new ReportColumn("Total Facilities");
+        ReportColumn avgUtilization = new ReportColumn("Avg Utilization");
         List<String> riskScore = new ArrayList<>();
-        List<String> concentration = new ArrayList<>();
-        List<String> growth = new ArrayList<>();
+        ReportColumn concentration = new ReportColumn("Concentration");
+        ReportColumn growth = new ReportColumn("YoY Growth");
         
         for (Map<String, Object> country : countryData) {
             countries.add((String) country.get("country"));
-            totalFacilities.add(formatCurrency((BigDecimal) country.get("total_facilities")));
-            avgUtilization.add(formatPercentage((BigDecimal) country.get("avg_utilization")));
+            totalFacilities.amount((BigDecimal) country.get("total_facilities"));
+            avgUtilization.percentage((BigDecimal) country.get("avg_utilization"));
             riskScore.add(assessCountryRisk((String) country.get("country")));
-            concentration.add(formatPercentage((BigDecimal) country.get("concentration")));
-            growth.add(formatPercentage((BigDecimal) country.get("growth_rate")));
+            concentration.percentage((BigDecimal) country.get("concentration"));
+            growth.percentage((BigDecimal) country.get("growth_rate"));
         }
         
         page3.addColumn("Country", countries);
-        page3.addColumn("Total Facilities", totalFacilities);
-        page3.addColumn("Avg Utilization", avgUtilization);
+        page3.addColumn(totalFacilities);
+        page3.addColumn(avgUtilization);
         page3.addColumn("Risk Score", riskScore);
-        page3.addColumn("Concentration", concentration);
-        page3.addColumn("YoY Growth", growth);
+        page3.addColumn(concentration);
+        page3.addColumn(growth);
         
-        report.addPage(page3);
-        
-        // Add chart data for visualizations
-        report.setChartData(generateWorkingCapitalCharts());
-        
-        return report;
+        return page3;
     }
     
     /**
@@ -206,46 +268,60 @@ public class ReportGenerationService {
         report.setReportTitle("Cyprus Entities Corporate Governance Report");
         report.setGeneratedAt(LocalDateTime.now());
         
-        // Page 1: Entity Overview
+        CompletableFuture<ReportPage> page1 = section(this::getCyprusEntities).thenApply(this::buildCyprusEntitiesPage);
+        CompletableFuture<ReportPage> page2 = section(this::getDirectorshipAnalysis).thenApply(this::buildDirectorshipPage);
+        
+        report.addPage(await(page1));
+        report.addPage(await(page2));
+        
+        return report;
+    }
+    
+    /**
+     * Cyprus entities page 1: entity overview
+     */
+    private ReportPage buildCyprusEntitiesPage(List<Map<String, Object>> entities) {
         ReportPage page1 = new ReportPage();
         page1.setPageNumber(1);
         page1.setPageTitle("Cyprus Group Entities Overview");
         
-        List<Map<String, Object>> entities = getCyprusEntities();
         List<String> entityNames = new ArrayList<>();
-        List<String> incorporationDates = new ArrayList<>();
-        List<String> shareCapital = new ArrayList<>();
-        List<String> directorCount = new ArrayList<>();
+        ReportColumn incorporationDates = new ReportColumn("Incorporation");
+        ReportColumn shareCapital = new ReportColumn("Share Capital");
+        ReportColumn directorCount = new ReportColumn("Directors");
         List<String> status = new ArrayList<>();
         List<String> compliance = new ArrayList<>();
         
         for (Map<String, Object> entity : entities) {
             entityNames.add((String) entity.get("company_name"));
-            incorporationDates.add(formatDate(entity.get("incorporation_date")));
-            shareCapital.add(formatCurrency((BigDecimal) entity.get("share_capital")));
-            directorCount.add(entity.get("director_count").toString());
+            incorporationDates.date(entity.get("incorporation_date"));
+            shareCapital.amount((BigDecimal) entity.get("share_capital"));
+            directorCount.count(((Number) entity.get("director_count")).longValue());
             status.add((String) entity.get("status"));
             compliance.add(assessComplianceStatus((String) entity.get("company_name")));
         }
         
         page1.addColumn("Entity Name", entityNames);
-        page1.addColumn("Incorporation", incorporationDates);
-        page1.addColumn("Share Capital", shareCapital);
-        page1.addColumn("Directors", directorCount);
+        page1.addColumn(incorporationDates);
+        page1.addColumn(shareCapital);
+        page1.addColumn(directorCount);
         page1.addColumn("Status", status);
         page1.addColumn("Compliance", compliance);
         
-        report.addPage(page1);
-        
-        // Page 2: Director Analysis
+        return page1;
+    }
+    
+    /**
+     * Cyprus entities page 2: director analysis
+     */
+    private ReportPage buildDirectorshipPage(List<Map<String, Object>> directors) {
         ReportPage page2 = new ReportPage();
         page2.setPageNumber(2);
         page2.setPageTitle("Directorship Analysis");
         
-        List<Map<String, Object>> directors = getDirectorshipAnalysis();
         List<String> directorNames = new ArrayList<>();
         List<String> companies = new ArrayList<>();
-        List<String> appointments = new ArrayList<>();
+        ReportColumn appointments = new ReportColumn("Appointment");
         List<String> positions = new ArrayList<>();
         List<String> tenure = new ArrayList<>();
         List<String> riskFlags = new ArrayList<>();
@@ -253,7 +329,7 @@ public class ReportGenerationService {
         for (Map<String, Object> director : directors) {
             directorNames.add((String) director.get("director_name"));
             companies.add((String) director.get("company_name"));
-            appointments.add(formatDate(director.get("appointment_date")));
+            appointments.date(director.get("appointment_date"));
             positions.add((String) director.get("position"));
             tenure.add(calculateTenure(director.get("appointment_date")));
             riskFlags.add(assessDirectorRisk((String) director.get("director_name")));
@@ -261,14 +337,12 @@ public class ReportGenerationService {
         
         page2.addColumn("Director Name", directorNames);
         page2.addColumn("Company", companies);
-        page2.addColumn("Appointment", appointments);
+        page2.addColumn(appointments);
         page2.addColumn("Position", positions);
         page2.addColumn("Tenure", tenure);
         page2.addColumn("Risk Flags", riskFlags);
         
-        report.addPage(page2);
-        
-        return report;
+        return page2;
     }
     
     /**
@@ -279,10 +353,15 @@ public class ReportGenerationService {
         report.setReportTitle("Banking Partner Exposure Analysis");
         report.setGeneratedAt(LocalDateTime.now());
         
-        // Page 1: PKO BP Analysis (Demo Focus)
+        // Page 1: one bank's exposure (PKO BP for the demo) in one currency of the latest snapshot,
+        // looked up from the engine's grouped pass
+        String bankName = (String) parameters.getOrDefault("bank_name", "PKO BP");
+        String currency = (String) parameters.getOrDefault("currency", bankExposureEngine.getDefaultCurrency());
+        BankExposureEngine.BankExposure exposure = bankExposureEngine.forBank(bankName, currency);
+        
         ReportPage page1 = new ReportPage();
         page1.setPageNumber(1);
-        page1.setPageTitle("PKO BP Exposure Analysis");
+        page1.setPageTitle(bankName + " Exposure Analysis (" + currency + ")");
         
         page1.addColumn("Metric", Arrays.asList(
             "Total Credit Facilities",
@@ -292,14 +371,13 @@ public class ReportGenerationService {
             "Utilization Rate",
             "Risk Concentration"
         ));
-        page1.addColumn("Current Value", Arrays.asList(
-            getPKOFacilityCount().toString(),
-            getPKOLargeFacilities().toString(),
-            formatCurrency(getPKOAverageFacility()),
-            formatCurrency(getPKOTotalExposure()),
-            formatPercentage(getPKOUtilization()),
-            formatPercentage(getPKOConcentration())
-        ));
+        page1.addColumn(new ReportColumn("Current Value")
+            .count(exposure.getFacilityCount())
+            .count(exposure.getLargeFacilityCount())
+            .amount(exposure.getAverageFacility())
+            .amount(exposure.getTotalExposure())
+            .percentage(exposure.getAverageUtilization())
+            .percentage(exposure.getShare()));
         page1.addColumn("Benchmark", Arrays.asList(
             "15-25 facilities",
             "< 5 large facilities",
@@ -309,12 +387,12 @@ public class ReportGenerationService {
             "< 30%"
         ));
         page1.addColumn("Status", Arrays.asList(
-            assessMetric(getPKOFacilityCount(), 15, 25),
-            assessMetric(getPKOLargeFacilities(), 0, 5),
-            assessCurrencyMetric(getPKOAverageFacility(), 500000, 2000000),
-            assessCurrencyMetric(getPKOTotalExposure(), 0, 50000000),
-            assessPercentageMetric(getPKOUtilization(), 60, 80),
-            assessPercentageMetric(getPKOConcentration(), 0, 30)
+            assessMetric(exposure.getFacilityCount(), 15, 25),
+            assessMetric(exposure.getLargeFacilityCount(), 0, 5),
+            assessCurrencyMetric(exposure.getAverageFacility(), 500000, 2000000),
+            assessCurrencyMetric(exposure.getTotalExposure(), 0, 50000000),
+            assessPercentageMetric(exposure.getAverageUtilization(), 60, 80),
+            assessPercentageMetric(exposure.getShare(), 0, 30)
         ));
         page1.addColumn("Trend", Arrays.asList(
             "↗ Increasing",
@@ -335,54 +413,93 @@ public class ReportGenerationService {
         
         report.addPage(page1);
         
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("bank_name", bankName);
+        summary.put("currency", currency);
+        summary.put("portfolio_herfindahl_index", bankExposureEngine.getHerfindahlIndex(currency));
+        report.setExecutiveSummary(summary);
+        
         return report;
     }
     
     /**
      * Generate Financial Variance Report
+     * 
+     * Compares the snapshots behind from_period and to_period (or every entry
+     * of "periods") by the requested dimension; without periods the latest two
+     * snapshots are compared.
      */
     private ExecutiveReport generateVarianceReport(Map<String, Object> parameters) {
+        SnapshotVarianceEngine.Dimension dimension =
+            SnapshotVarianceEngine.Dimension.parse((String) parameters.get("dimension"));
+        SnapshotVarianceEngine.Comparison comparison = varianceEngine.compare(variancePeriods(parameters), dimension);
+        List<LocalDate> dates = comparison.getDates();
+        String dimensionName = dimension.name().charAt(0) + dimension.name().substring(1).toLowerCase();
+        
         ExecutiveReport report = new ExecutiveReport();
-        report.setReportTitle("Financial Variance Analysis: Dec 2023 vs Jul 2024");
+        report.setReportTitle(dates.size() < 2 ? "Financial Variance Analysis" :
+            "Financial Variance Analysis: " + dates.get(0) + " vs " + dates.get(dates.size() - 1));
         report.setGeneratedAt(LocalDateTime.now());
         
         // Page 1: Working Capital Variance
         ReportPage page1 = new ReportPage();
         page1.setPageNumber(1);
-        page1.setPageTitle("Working Capital Facility Changes");
+        page1.setPageTitle("Working Capital Facility Changes by " + dimensionName);
         
-        List<Map<String, Object>> variance = getWCRVarianceData();
-        List<String> companies = new ArrayList<>();
-        List<String> dec2023 = new ArrayList<>();
-        List<String> jul2024 = new ArrayList<>();
-        List<String> varianceAmt = new ArrayList<>();
-        List<String> variancePct = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        List<ReportColumn> snapshots = new ArrayList<>();
+        for (LocalDate date : dates) {
+            snapshots.add(new ReportColumn(date.toString()));
+        }
+        ReportColumn varianceAmt = new ReportColumn("Variance");
+        ReportColumn variancePct = new ReportColumn("Change %");
         List<String> analysis = new ArrayList<>();
         
-        for (Map<String, Object> row : variance) {
-            companies.add((String) row.get("company_name"));
-            dec2023.add(formatCurrency((BigDecimal) row.get("amount_2023")));
-            jul2024.add(formatCurrency((BigDecimal) row.get("amount_2024")));
-            varianceAmt.add(formatCurrency((BigDecimal) row.get("variance")));
-            variancePct.add(formatPercentage(calculatePercentageVariance(
-                (BigDecimal) row.get("amount_2023"), 
-                (BigDecimal) row.get("amount_2024")
-            )));
-            analysis.add(analyzeVariance((BigDecimal) row.get("variance")));
+        for (SnapshotVarianceEngine.VarianceRow row : comparison.getRowsByVariance()) {
+            labels.add(row.getLabel() != null ? row.getLabel() : String.valueOf(row.getKey()));
+            for (int i = 0; i < snapshots.size(); i++) {
+                snapshots.get(i).amount(row.getLimit(i));
+            }
+            varianceAmt.amount(row.getLimitVariance());
+            variancePct.percentage(row.getLimitChangePercentage() != null ? row.getLimitChangePercentage() : BigDecimal.ZERO);
+            analysis.add(analyzeVariance(row.getLimitVariance()));
         }
         
-        page1.addColumn("Company", companies);
-        page1.addColumn("Dec 2023", dec2023);
-        page1.addColumn("Jul 2024", jul2024);
-        page1.addColumn("Variance", varianceAmt);
-        page1.addColumn("Change %", variancePct);
+        page1.addColumn(dimensionName, labels);
+        for (ReportColumn snapshot : snapshots) {
+            page1.addColumn(snapshot);
+        }
+        page1.addColumn(varianceAmt);
+        page1.addColumn(variancePct);
         page1.addColumn("Analysis", analysis);
         
         report.addPage(page1);
         
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("dimension", dimension.name().toLowerCase());
+        summary.put("snapshot_dates", dates);
+        summary.put("entries", comparison.getRows().size());
+        report.setExecutiveSummary(summary);
+        
         return report;
     }
     
+    /**
+     * Periods to compare: "periods" (comma-separated or an array), else
+     * from_period and to_period, else none (latest two snapshots)
+     */
+    private static List<String> variancePeriods(Map<String, Object> parameters) {
+        Object periods = parameters.get("periods");
+        if (periods instanceof String[]) return Arrays.asList((String[]) periods);
+        if (periods instanceof String && !((String) periods).trim().isEmpty()) {
+            return Arrays.asList(((String) periods).split("\\s*,\\s*"));
+        }
+        List<String> fromTo = new ArrayList<>();
+        if (parameters.get("from_period") != null) fromTo.add(parameters.get("from_period").toString());
+        if (parameters.get("to_period") != null) fromTo.add(parameters.get("to_period").toString());
+        return fromTo.size() == 2 ? fromTo : Collections.emptyList();
+    }
+    
     /**
      * Generate Directorship Report for specific person (e.g., Matthias Kaindl)
      */
@@ -400,7 +517,7 @@ public class ReportGenerationService {
         List<Map<String, Object>> appointments = getDirectorAppointments(directorName);
         List<String> companies = new ArrayList<>();
         List<String> positions = new ArrayList<>();
-        List<String> appointmentDates = new ArrayList<>();
+        ReportColumn appointmentDates = new ReportColumn("Appointment");
         List<String> jurisdictions = new ArrayList<>();
         List<String> status = new ArrayList<>();
         List<String> signingPowers = new ArrayList<>();
@@ -408,7 +525,7 @@ public class ReportGenerationService {
         for (Map<String, Object> appointment : appointments) {
             companies.add((String) appointment.get("company_name"));
             positions.add((String) appointment.get("position"));
-            appointmentDates.add(formatDate(appointment.get("appointment_date")));
+            appointmentDates.date(appointment.get("appointment_date"));
             jurisdictions.add((String) appointment.get("jurisdiction"));
             status.add((String) appointment.get("status"));
             signingPowers.add((String) appointment.get("signing_powers"));
@@ -416,7 +533,7 @@ public class ReportGenerationService {
         
         page1.addColumn("Company", companies);
         page1.addColumn("Position", positions);
-        page1.addColumn("Appointment", appointmentDates);
+        page1.addColumn(appointmentDates);
         page1.addColumn("Jurisdiction", jurisdictions);
         page1.addColumn("Status", status);
         page1.addColumn("Signing Powers", signingPowers);
@@ -451,75 +568,34 @@ public class ReportGenerationService {
     
     // Helper methods for data retrieval and calculations
     
-    private BigDecimal getTotalAvailableFacilities(String currency) {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(limit_amount), 0) FROM working_capital_facilities WHERE currency = ?", 
-                BigDecimal.class, currency);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private BigDecimal getTotalUtilizedAmount(String currency) {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(utilized_amount), 0) FROM working_capital_facilities WHERE currency = ?", 
-                BigDecimal.class, currency);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private BigDecimal getAverageUtilization(String currency) {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(AVG(utilization_percentage), 0) FROM working_capital_facilities WHERE currency = ?", 
-                BigDecimal.class, currency);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private Integer getBankingPartnerCount(String currency) {
+    private WorkingCapitalMetrics loadWorkingCapitalMetrics() {
         try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COUNT(DISTINCT bank_name) FROM working_capital_facilities WHERE currency = ?", 
-                Integer.class, currency);
+            return WorkingCapitalMetrics.fromRows(jdbcTemplate.queryForList(WorkingCapitalMetrics.QUERY));
         } catch (Exception e) {
-            return 0;
+            return WorkingCapitalMetrics.fromRows(Collections.emptyList());
         }
     }
     
-    private BigDecimal getHighestFacility(String currency) {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(MAX(limit_amount), 0) FROM working_capital_facilities WHERE currency = ?", 
-                BigDecimal.class, currency);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private List<Map<String, Object>> getBankWiseAnalysis() {
-        try {
-            return jdbcTemplate.queryForList(
-                "SELECT bank_name, SUM(limit_amount) as total_limit, AVG(utilization_percentage) as utilization_rate, " +
-                "currency as primary_currency FROM working_capital_facilities " +
-                "GROUP BY bank_name, currency ORDER BY total_limit DESC LIMIT 10");
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
+    /**
+     * Available, utilized, average utilization, banking partners and highest facility for one currency
+     */
+    private ReportColumn currencyColumn(String name, WorkingCapitalMetrics.Totals totals) {
+        return new ReportColumn(name)
+            .amount(totals.getTotalLimit())
+            .amount(totals.getTotalUtilized())
+            .percentage(totals.getAverageUtilization())
+            .count(totals.getBankCount())
+            .amount(totals.getMaxLimit());
     }
     
     private List<Map<String, Object>> getCountryWiseAnalysis() {
         try {
             return jdbcTemplate.queryForList(
-                "SELECT gc.country, SUM(wcf.limit_amount) as total_facilities, " +
-                "AVG(wcf.utilization_percentage) as avg_utilization, " +
-                "COUNT(*) as facility_count " +
-                "FROM working_capital_facilities wcf " +
-                "JOIN group_companies gc ON wcf.company_id = gc.id " +
+                "SELECT gc.country, SUM(s.total_limit) as total_facilities, " +
+                "CAST(SUM(s.utilization_sum) / NULLIF(SUM(s.utilization_count), 0) AS NUMERIC(5,2)) as avg_utilization, " +
+                "SUM(s.facility_count) as facility_count " +
+                "FROM wcf_summary_company s " +
+                "JOIN group_companies gc ON s.company_id = gc.id " +
                 "GROUP BY gc.country ORDER BY total_facilities DESC");
         } catch (Exception e) {
             return new ArrayList<>();
@@ -560,101 +636,7 @@ public class ReportGenerationService {
         }
     }
     
-    private List<Map<String, Object>> getWCRVarianceData() {
-        try {
-            return jdbcTemplate.queryForList(
-                "SELECT gc.company_name, " +
-                "SUM(CASE WHEN wcf.report_date >= '2023-01-01' AND wcf.report_date < '2024-01-01' THEN wcf.limit_amount ELSE 0 END) as amount_2023, " +
-                "SUM(CASE WHEN wcf.report_date >= '2024-01-01' THEN wcf.limit_amount ELSE 0 END) as amount_2024 " +
-                "FROM working_capital_facilities wcf " +
-                "JOIN group_companies gc ON wcf.company_id = gc.id " +
-                "GROUP BY gc.company_name " +
-                "HAVING amount_2023 > 0 OR amount_2024 > 0 " +
-                "ORDER BY (amount_2024 - amount_2023) DESC");
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
-    }
-    
-    // PKO BP specific methods for demo
-    private Integer getPKOFacilityCount() {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM working_capital_facilities WHERE bank_name LIKE '%PKO BP%'", 
-                Integer.class);
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private Integer getPKOLargeFacilities() {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COUNT(*) FROM working_capital_facilities WHERE bank_name LIKE '%PKO BP%' AND limit_amount > 1000000", 
-                Integer.class);
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-    
-    private BigDecimal getPKOAverageFacility() {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(AVG(limit_amount), 0) FROM working_capital_facilities WHERE bank_name LIKE '%PKO BP%'", 
-                BigDecimal.class);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private BigDecimal getPKOTotalExposure() {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(limit_amount), 0) FROM working_capital_facilities WHERE bank_name LIKE '%PKO BP%'", 
-                BigDecimal.class);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private BigDecimal getPKOUtilization() {
-        try {
-            return jdbcTemplate.queryForObject(
-                "SELECT COALESCE(AVG(utilization_percentage), 0) FROM working_capital_facilities WHERE bank_name LIKE '%PKO BP%'", 
-                BigDecimal.class);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    private BigDecimal getPKOConcentration() {
-        try {
-            BigDecimal pkoTotal = getPKOTotalExposure();
-            BigDecimal totalExposure = jdbcTemplate.queryForObject(
-                "SELECT COALESCE(SUM(limit_amount), 1) FROM working_capital_facilities", 
-                BigDecimal.class);
-            return pkoTotal.divide(totalExposure, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100));
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    // Utility methods for formatting and assessment
-    
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "0";
-        return String.format("%,.0f", amount);
-    }
-    
-    private String formatPercentage(BigDecimal percentage) {
-        if (percentage == null) return "0%";
-        return String.format("%.1f%%", percentage);
-    }
-    
-    private String formatDate(Object date) {
-        if (date == null) return "N/A";
-        return date.toString();
-    }
+    // Utility methods for assessment
     
     private String getReportTitle(String reportType) {
         switch (reportType.toLowerCase()) {
@@ -667,23 +649,26 @@ public class ReportGenerationService {
         }
     }
     
-    private Map<String, Object> generateWorkingCapitalSummary() {
+    private Map<String, Object> generateWorkingCapitalSummary(WorkingCapitalMetrics metrics) {
+        WorkingCapitalMetrics.Totals eur = metrics.currency("EUR");
+        WorkingCapitalMetrics.Totals pln = metrics.currency("PLN");
+        WorkingCapitalMetrics.Totals bgn = metrics.currency("BGN");
         Map<String, Object> summary = new HashMap<>();
-        summary.put("total_facilities", getTotalAvailableFacilities("EUR").add(getTotalAvailableFacilities("PLN")).add(getTotalAvailableFacilities("BGN")));
-        summary.put("total_utilization", getAverageUtilization("EUR"));
-        summary.put("banking_partners", getBankingPartnerCount("EUR") + getBankingPartnerCount("PLN") + getBankingPartnerCount("BGN"));
+        summary.put("total_facilities", eur.getTotalLimit().add(pln.getTotalLimit()).add(bgn.getTotalLimit()));
+        summary.put("total_utilization", eur.getAverageUtilization());
+        summary.put("banking_partners", eur.getBankCount() + pln.getBankCount() + bgn.getBankCount());
         summary.put("risk_level", "Medium");
         return summary;
     }
     
-    private Map<String, Object> generateWorkingCapitalCharts() {
+    private Map<String, Object> generateWorkingCapitalCharts(WorkingCapitalMetrics metrics) {
         Map<String, Object> charts = new HashMap<>();
         
         // Currency distribution chart data
         Map<String, BigDecimal> currencyData = new HashMap<>();
-        currencyData.put("EUR", getTotalAvailableFacilities("EUR"));
-        currencyData.put("PLN", getTotalAvailableFacilities("PLN"));
-        currencyData.put("BGN", getTotalAvailableFacilities("BGN"));
+        currencyData.put("EUR", metrics.currency("EUR").getTotalLimit());
+        currencyData.put("PLN", metrics.currency("PLN").getTotalLimit());
+        currencyData.put("BGN", metrics.currency("BGN").getTotalLimit());
         charts.put("currency_distribution", currencyData);
         
         // Utilization trend data
@@ -757,11 +742,6 @@ public class ReportGenerationService {
         return "⚠ Above Target";
     }
     
-    private BigDecimal calculatePercentageVariance(BigDecimal oldValue, BigDecimal newValue) {
-        if (oldValue == null || oldValue.equals(BigDecimal.ZERO)) return BigDecimal.ZERO;
-        return newValue.subtract(oldValue).divide(oldValue, 4, BigDecimal.ROUND_HALF_UP).multiply(BigDecimal.valueOf(100));
-    }
-    
     private String analyzeVariance(BigDecimal variance) {
         if (variance.compareTo(BigDecimal.ZERO) > 0) return "↗ Increase";
         if (variance.compareTo(BigDecimal.ZERO) < 0) return "↘ Decrease";
@@ -802,7 +782,7 @@ public class ReportGenerationService {
     public static class ReportPage {
         private int pageNumber;
         private String pageTitle;
-        private Map<String, List<String>> columns = new LinkedHashMap<>();
+        private final List<ReportColumn> columns = new ArrayList<>();
         
         public int getPageNumber() { return pageNumber; }
         public void setPageNumber(int pageNumber) { this.pageNumber = pageNumber; }
@@ -810,10 +790,30 @@ public class ReportGenerationService {
         public String getPageTitle() { return pageTitle; }
         public void setPageTitle(String pageTitle) { this.pageTitle = pageTitle; }
         
-        public Map<String, List<String>> getColumns() { return columns; }
-        public void setColumns(Map<String, List<String>> columns) { this.columns = columns; }
+        /**
+         * Display strings per column, formatted for the current request's
+         * locale when the page is serialized
+         */
+        public Map<String, List<String>> getColumns() {
+            Locale locale = LocaleContextHolder.getLocale();
+            Map<String, List<String>> formatted = new LinkedHashMap<>();
+            for (ReportColumn column : columns) {
+                formatted.put(column.getName(), column.format(locale));
+            }
+            return formatted;
+        }
+        
+        /**
+         * Raw column values, for exports and charts
+         */
+        @JsonIgnore
+        public List<ReportColumn> getTypedColumns() { return Collections.unmodifiableList(columns); }
+        
+        public void addColumn(ReportColumn column) { 
+            this.columns.add(column); 
+        }
         public void addColumn(String columnName, List<String> values) { 
-            this.columns.put(columnName, values); 
+            this.columns.add(ReportColumn.text(columnName, values)); 
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,361 @@
+package com.kronospan.aibi.service;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.pdmodel.font.encoding.WinAnsiEncoding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Report PDF Renderer
+ *
+ * Renders an executive report as landscape A4: a cover page with the
+ * executive summary, then each report page as a table (1 description column
+ * + 5 data columns), continued on further sheets when the rows do not fit.
+ *
+ * Documents buffer their content in temp files rather than on the heap.
+ * Larger reports are split into page ranges rendered in parallel on the
+ * report executor and concatenated into the response. Each document creates
+ * its two fonts once and every page shares one resource dictionary holding
+ * them; PDFBox fonts are not thread-safe, so parallel parts never share them.
+ */
+@Service
+public class ReportPdfRenderer {
+
+    private static final PDRectangle PAGE_SIZE = new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth());
+    private static final float MARGIN = 40;
+    private static final float ROW_HEIGHT = 18;
+    private static final float CELL_PADDING = 4;
+    private static final float FONT_SIZE = 9;
+    private static final float TITLE_SIZE = 16;
+    private static final float HEADER_HEIGHT = 60;
+
+    /**
+     * Status symbols used in report cells, spelled out for the standard
+     * fonts' WinAnsi encoding
+     */
+    private static final Map<Character, String> SYMBOLS = new HashMap<>();
+    static {
+        SYMBOLS.put('\u2197', "+");   // north-east arrow, increase
+        SYMBOLS.put('\u2198', "-");   // south-east arrow, decrease
+        SYMBOLS.put('\u2192', "=");   // right arrow, no change
+        SYMBOLS.put('\u2713', "OK");  // check mark
+        SYMBOLS.put('\u26A0', "!");   // warning sign
+        SYMBOLS.put('\u2717', "X");   // ballot x
+    }
+
+    private static final Map<Character, Boolean> ENCODABLE = new ConcurrentHashMap<>();
+
+    @Autowired
+    @Qualifier("reportExecutor")
+    private Executor reportExecutor;
+
+    @Value("${kronospan.ai.report.pdf.pages-per-part:4}")
+    private int pagesPerPart;
+
+    /**
+     * Render the report and write the finished PDF to the stream, with
+     * amounts and percentages formatted for the locale
+     */
+    public void render(ReportGenerationService.ExecutiveReport report, Locale locale, OutputStream out) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<ReportGenerationService.ReportPage> pages = report.getPages();
+        int totalPages = pages.size();
+
+        if (totalPages <= pagesPerPart) {
+            try (Canvas canvas = new Canvas()) {
+                renderCover(canvas, report);
+                for (ReportGenerationService.ReportPage page : pages) {
+                    renderPage(canvas, report, page, totalPages, locale);
+                }
+                canvas.document.save(out);
+            }
+        } else {
+            renderInParts(report, pages, locale, out);
+        }
+        System.out.println("Rendered " + report.getReportType() + " PDF (" + totalPages + " report pages) in " +
+                           (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Cover plus each page range rendered to its own temp file in parallel,
+     * then merged in order straight into the output
+     */
+    private void renderInParts(ReportGenerationService.ExecutiveReport report,
+                               List<ReportGenerationService.ReportPage> pages, Locale locale,
+                               OutputStream out) throws IOException {
+        List<CompletableFuture<File>> parts = new ArrayList<>();
+        parts.add(renderPart(report, Collections.emptyList(), true, locale));
+        for (int from = 0; from < pages.size(); from += pagesPerPart) {
+            parts.add(renderPart(report, pages.subList(from, Math.min(from + pagesPerPart, pages.size())), false, locale));
+        }
+
+        List<File> files = new ArrayList<>();
+        try {
+            for (CompletableFuture<File> part : parts) {
+                files.add(part.join());
+            }
+            PDFMergerUtility merger = new PDFMergerUtility();
+            for (File file : files) {
+                merger.addSource(file);
+            }
+            merger.setDestinationStream(out);
+            merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            throw e;
+        } finally {
+            // Parts still rendering after a failure clean up once they finish
+            for (CompletableFuture<File> part : parts) {
+                part.thenAccept(file -> file.delete());
+            }
+        }
+    }
+
+    private CompletableFuture<File> renderPart(ReportGenerationService.ExecutiveReport report,
+                                               List<ReportGenerationService.ReportPage> pages, boolean cover,
+                                               Locale locale) {
+        return CompletableFuture.supplyAsync(() -> {
+            File file = null;
+            try (Canvas canvas = new Canvas()) {
+                if (cover) {
+                    renderCover(canvas, report);
+                }
+                for (ReportGenerationService.ReportPage page : pages) {
+                    renderPage(canvas, report, page, report.getPages().size(), locale);
+                }
+                file = Files.createTempFile("report-part-", ".pdf").toFile();
+                canvas.document.save(file);
+                return file;
+            } catch (IOException e) {
+                if (file != null) file.delete();
+                throw new UncheckedIOException(e);
+            }
+        }, reportExecutor);
+    }
+
+    private void renderCover(Canvas canvas, ReportGenerationService.ExecutiveReport report) throws IOException {
+        PDFont regular = canvas.regular;
+        PDFont bold = canvas.bold;
+        try (PDPageContentStream content = canvas.newPage()) {
+            float y = PAGE_SIZE.getHeight() - MARGIN - TITLE_SIZE;
+            text(content, bold, TITLE_SIZE, MARGIN, y, report.getReportTitle());
+            y -= 24;
+            text(content, regular, FONT_SIZE, MARGIN, y, "Generated " + report.getGeneratedAt());
+            y -= 36;
+
+            if (report.getExecutiveSummary() != null && !report.getExecutiveSummary().isEmpty()) {
+                text(content, bold, 12, MARGIN, y, "Executive Summary");
+                y -= 20;
+                float valueX = MARGIN + 260;
+                for (Map.Entry<String, Object> entry : report.getExecutiveSummary().entrySet()) {
+                    if (y < MARGIN) break;
+                    text(content, regular, FONT_SIZE, MARGIN, y, fit(regular, FONT_SIZE, entry.getKey(), 250));
+                    text(content, regular, FONT_SIZE, valueX, y,
+                         fit(regular, FONT_SIZE, String.valueOf(entry.getValue()), PAGE_SIZE.getWidth() - MARGIN - valueX));
+                    y -= ROW_HEIGHT - 4;
+                }
+            }
+        }
+    }
+
+    /**
+     * One report page as a table, continued on further sheets as needed
+     */
+    private void renderPage(Canvas canvas, ReportGenerationService.ExecutiveReport report,
+                            ReportGenerationService.ReportPage page, int totalPages, Locale locale) throws IOException {
+        PDFont regular = canvas.regular;
+        PDFont bold = canvas.bold;
+        List<String> headers = new ArrayList<>();
+        List<List<String>> columns = new ArrayList<>();
+        for (ReportColumn column : page.getTypedColumns()) {
+            headers.add(column.getName());
+            columns.add(column.format(locale));
+        }
+        int rowCount = 0;
+        for (List<String> column : columns) {
+            rowCount = Math.max(rowCount, column.size());
+        }
+        float[] widths = columnWidths(headers.size());
+        int rowsPerSheet = Math.max(1, (int) ((PAGE_SIZE.getHeight() - 2 * MARGIN - HEADER_HEIGHT) / ROW_HEIGHT) - 1);
+
+        int row = 0;
+        boolean continued = false;
+        do {
+            try (PDPageContentStream content = canvas.newPage()) {
+                float top = PAGE_SIZE.getHeight() - MARGIN;
+                text(content, bold, 12, MARGIN, top - 12,
+                     page.getPageTitle() + (continued ? " (continued)" : ""));
+                text(content, regular, FONT_SIZE, MARGIN, top - 28, report.getReportTitle());
+                String pageLabel = "Page " + page.getPageNumber() + " of " + totalPages;
+                text(content, regular, FONT_SIZE,
+                     PAGE_SIZE.getWidth() - MARGIN - width(regular, FONT_SIZE, pageLabel), top - 12, pageLabel);
+
+                float y = top - HEADER_HEIGHT;
+                drawRow(content, bold, widths, y, headers);
+                content.moveTo(MARGIN, y - 4);
+                content.lineTo(PAGE_SIZE.getWidth() - MARGIN, y - 4);
+                content.stroke();
+
+                int end = Math.min(rowCount, row + rowsPerSheet);
+                for (; row < end; row++) {
+                    y -= ROW_HEIGHT;
+                    List<String> cells = new ArrayList<>(columns.size());
+                    for (List<String> column : columns) {
+                        cells.add(row < column.size() ? column.get(row) : "");
+                    }
+                    drawRow(content, regular, widths, y, cells);
+                }
+            }
+            continued = true;
+        } while (row < rowCount);
+    }
+
+    private void drawRow(PDPageContentStream content, PDFont font, float[] widths, float y, List<String> cells)
+            throws IOException {
+        float x = MARGIN;
+        for (int i = 0; i < cells.size() && i < widths.length; i++) {
+            text(content, font, FONT_SIZE, x + CELL_PADDING, y,
+                 fit(font, FONT_SIZE, cells.get(i), widths[i] - 2 * CELL_PADDING));
+            x += widths[i];
+        }
+    }
+
+    /**
+     * The description column gets 30% of the width, data columns share the rest
+     */
+    private static float[] columnWidths(int columnCount) {
+        float usable = PAGE_SIZE.getWidth() - 2 * MARGIN;
+        float[] widths = new float[columnCount];
+        if (columnCount == 0) return widths;
+        if (columnCount == 1) {
+            widths[0] = usable;
+            return widths;
+        }
+        widths[0] = usable * 0.3f;
+        for (int i = 1; i < columnCount; i++) {
+            widths[i] = usable * 0.7f / (columnCount - 1);
+        }
+        return widths;
+    }
+
+    private static void text(PDPageContentStream content, PDFont font, float size, float x, float y, String text)
+            throws IOException {
+        content.beginText();
+        content.setFont(font, size);
+        content.newLineAtOffset(x, y);
+        content.showText(sanitize(text));
+        content.endText();
+    }
+
+    /**
+     * Shorten text with "..." until it fits the width
+     */
+    private static String fit(PDFont font, float size, String text, float maxWidth) throws IOException {
+        String clean = sanitize(text);
+        if (width(font, size, clean) <= maxWidth) return clean;
+        int end = clean.length();
+        while (end > 0 && width(font, size, clean.substring(0, end) + "...") > maxWidth) {
+            end--;
+        }
+        return clean.substring(0, end) + "...";
+    }
+
+    private static float width(PDFont font, float size, String text) throws IOException {
+        return font.getStringWidth(sanitize(text)) / 1000 * size;
+    }
+
+    /**
+     * Keep only characters the standard fonts can encode: status symbols are
+     * spelled out, accents dropped where that helps, anything else becomes '?'
+     */
+    static String sanitize(String text) {
+        if (text == null) return "";
+        StringBuilder clean = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String symbol = SYMBOLS.get(c);
+            if (symbol != null) {
+                clean.append(symbol);
+            } else if (encodable(c)) {
+                clean.append(c);
+            } else {
+                String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                clean.append(base.length() == 1 && encodable(base.charAt(0)) ? base : "?");
+            }
+        }
+        return clean.toString();
+    }
+
+    private static boolean encodable(char c) {
+        return ENCODABLE.computeIfAbsent(c, key -> {
+            if (Character.isISOControl(key)) return false;
+            String glyph = GlyphList.getAdobeGlyphList().codePointToName(key);
+            return WinAnsiEncoding.INSTANCE.contains(glyph);
+        });
+    }
+
+    /**
+     * A temp-file backed document with its fonts and the resource dictionary
+     * every page shares
+     */
+    private static final class Canvas implements Closeable {
+        final PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+        final PDFont regular;
+        final PDFont bold;
+        final PDResources resources = new PDResources();
+
+        Canvas() throws IOException {
+            regular = standardFont("Helvetica");
+            bold = standardFont("Helvetica-Bold");
+            resources.add(regular);
+            resources.add(bold);
+        }
+
+        PDPageContentStream newPage() throws IOException {
+            PDPage page = new PDPage(PAGE_SIZE);
+            page.setResources(resources);
+            document.addPage(page);
+            return new PDPageContentStream(document, page);
+        }
+
+        @Override
+        public void close() throws IOException {
+            document.close();
+        }
+
+        /**
+         * A fresh instance of a standard 14 font; the PDType1Font constants are
+         * shared JVM-wide and their glyph caches are not thread-safe
+         */
+        private static PDFont standardFont(String baseFont) throws IOException {
+            COSDictionary font = new COSDictionary();
+            font.setItem(COSName.TYPE, COSName.FONT);
+            font.setItem(COSName.SUBTYPE, COSName.TYPE1);
+            font.setName(COSName.BASE_FONT, baseFont);
+            font.setItem(COSName.ENCODING, COSName.WIN_ANSI_ENCODING);
+            return new PDType1Font(font);
+        }
+    }
+}
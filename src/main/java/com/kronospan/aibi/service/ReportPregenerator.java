@@ -0,0 +1,288 @@
+package com.kronospan.aibi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Report Pregenerator
+ *
+ * Renders the standard reports (each with the parameters its endpoint uses
+ * by default) as JSON, XLSX and PDF into the report snapshot store whenever
+ * the last running import completes, after startup, and on a cron as a
+ * catch-up. Requests for a standard report are then answered from the file
+ * of the current data generation; anything else is generated live. Reports
+ * already stored for the current generation, e.g. by the run before a
+ * restart, are not rendered again.
+ *
+ * JSON and PDF cells are formatted for one configured locale, so the stored
+ * files only answer requests whose locale formats numbers the same way.
+ */
+@Service
+public class ReportPregenerator {
+
+    private static final Map<String, Map<String, Object>> STANDARD_REPORTS = new LinkedHashMap<>();
+
+    static {
+        STANDARD_REPORTS.put("working_capital_analysis", Collections.emptyMap());
+        STANDARD_REPORTS.put("cyprus_entities_governance", Collections.emptyMap());
+        STANDARD_REPORTS.put("financial_variance_analysis", Collections.emptyMap());
+        STANDARD_REPORTS.put("bank_exposure_analysis", Collections.emptyMap());
+        STANDARD_REPORTS.put("directorship_analysis", Collections.singletonMap("director_name", "Matthias Kaindl"));
+    }
+
+    @Autowired
+    private ReportSnapshotCache reportCache;
+
+    @Autowired
+    private ReportSnapshotStore store;
+
+    @Autowired
+    private ReportExportService reportExportService;
+
+    @Autowired
+    private ReportPdfRenderer reportPdfRenderer;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${kronospan.ai.report.pregenerate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kronospan.ai.report.pregenerate.locale:}")
+    private String localeTag;
+
+    private Locale locale;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private volatile long pregeneratedGeneration;
+    private volatile Map<String, Object> lastRun;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    public void initPregenerator() {
+        locale = localeTag == null || localeTag.trim().isEmpty() ? Locale.getDefault() : Locale.forLanguageTag(localeTag.trim());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void pregenerateOnStartup() {
+        request();
+    }
+
+    @EventListener
+    public void onImportsCompleted(DataGeneration.ImportsCompleted event) {
+        request();
+    }
+
+    @Scheduled(cron = "${kronospan.ai.report.pregenerate.cron:0 30 6 * * *}")
+    public void pregenerateOnSchedule() {
+        request();
+    }
+
+    /**
+     * Ask for a run on the task executor; a request made while a run is
+     * going is picked up by that run when it finishes
+     */
+    public void request() {
+        if (!enabled) return;
+        requested.set(true);
+        taskExecutor.execute(this::drainRequests);
+    }
+
+    private void drainRequests() {
+        while (requested.get() && running.compareAndSet(false, true)) {
+            try {
+                requested.set(false);
+                pregenerate();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    /**
+     * Render every standard report for the current generation, unless that
+     * is already done or an import is still running (its completion asks again)
+     */
+    private void pregenerate() {
+        long generation = dataGeneration.current();
+        if (generation == pregeneratedGeneration || dataGeneration.isImportRunning()) return;
+
+        long startTime = System.currentTimeMillis();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("generation", generation);
+        run.put("started_at", LocalDateTime.now().toString());
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> standard : STANDARD_REPORTS.entrySet()) {
+            String reportType = standard.getKey();
+            try {
+                if (isStored(reportType, generation)) continue;
+                ReportSnapshotCache.Snapshot snapshot = reportCache.getReport(reportType, standard.getValue());
+                if (snapshot.getGeneration() != generation || !snapshot.isCacheable()) {
+                    // An import committed meanwhile; its completion asks for a new run
+                    run.put("superseded", true);
+                    lastRun = run;
+                    return;
+                }
+                write(reportType, generation, snapshot.getReport());
+                store.prune(reportType, generation);
+            } catch (Exception e) {
+                failed.add(reportType);
+                System.err.println("Report pregeneration failed for " + reportType + ": " + e.getMessage());
+            }
+        }
+        if (failed.isEmpty()) {
+            pregeneratedGeneration = generation;
+        }
+        run.put("failed", failed);
+        run.put("processing_time_ms", System.currentTimeMillis() - startTime);
+        lastRun = run;
+        System.out.println("Pregenerated " + (STANDARD_REPORTS.size() - failed.size()) + " standard reports for generation " +
+                           generation + " in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void write(String reportType, long generation, ReportGenerationService.ExecutiveReport report) throws IOException {
+        LocaleContextHolder.setLocale(locale);
+        try {
+            store.write(reportType, generation, fileName("json"), out -> {
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    objectMapper.writeValue(gzip, report);
+                }
+            });
+        } finally {
+            LocaleContextHolder.resetLocaleContext();
+        }
+        store.write(reportType, generation, fileName("xlsx"), out -> reportExportService.writeXlsx(report, false, out));
+        store.write(reportType, generation, fileName("pdf"), out -> reportPdfRenderer.render(report, locale, out));
+    }
+
+    private boolean isStored(String reportType, long generation) {
+        for (String format : new String[]{"json", "xlsx", "pdf"}) {
+            if (store.find(reportType, generation, fileName(format)) == null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stored rendering of a report for the current generation, or null when
+     * the request has to be generated live (custom parameters, another number
+     * format, or not rendered yet)
+     */
+    public StoredReport find(String reportType, Map<String, Object> parameters, String format, Locale requestLocale) {
+        String type = reportType.toLowerCase(Locale.ROOT);
+        Map<String, Object> standard = STANDARD_REPORTS.get(type);
+        if (!enabled || standard == null || !standard.equals(parameters)) return null;
+        if (!"json".equals(format) && !"xlsx".equals(format) && !"pdf".equals(format)) return null;
+        if (!"xlsx".equals(format) && !sameNumberFormat(locale, requestLocale)) return null;
+
+        long generation = dataGeneration.current();
+        File file = store.find(type, generation, fileName(format));
+        if (file == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new StoredReport(file, "json".equals(format), generation,
+                                ReportSnapshotCache.etag(type, parameters, generation, requestLocale));
+    }
+
+    public Map<String, Object> getStatistics() throws IOException {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("locale", locale.toLanguageTag());
+        stats.put("standard_reports", STANDARD_REPORTS.keySet());
+        stats.put("generation", dataGeneration.current());
+        stats.put("pregenerated_generation", pregeneratedGeneration);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("last_run", lastRun);
+        stats.put("store", store.getStatistics());
+        return stats;
+    }
+
+    private String fileName(String format) {
+        switch (format) {
+            case "json":
+                return locale.toLanguageTag() + ".json.gz";
+            case "pdf":
+                return locale.toLanguageTag() + ".pdf";
+            default:
+                return format;
+        }
+    }
+
+    private static boolean sameNumberFormat(Locale a, Locale b) {
+        return ReportSnapshotCache.numberFormat(a).equals(ReportSnapshotCache.numberFormat(b));
+    }
+
+    public static final class StoredReport {
+        private final File file;
+        private final boolean gzipped;
+        private final long generation;
+        private final String etag;
+
+        StoredReport(File file, boolean gzipped, long generation, String etag) {
+            this.file = file;
+            this.gzipped = gzipped;
+            this.generation = generation;
+            this.etag = etag;
+        }
+
+        public long getGeneration() { return generation; }
+        public String getEtag() { return etag; }
+
+        /**
+         * The file as a response body; stored JSON is unzipped while it is
+         * streamed, and only opened once the response is actually written
+         */
+        public Resource getResource() {
+            if (!gzipped) return new FileSystemResource(file);
+            return new AbstractResource() {
+                @Override
+                public String getDescription() {
+                    return "pregenerated report [" + file + "]";
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return new GZIPInputStream(new FileInputStream(file));
+                }
+
+                @Override
+                public long contentLength() {
+                    return -1;
+                }
+            };
+        }
+    }
+}
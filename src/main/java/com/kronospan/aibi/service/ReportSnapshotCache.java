@@ -0,0 +1,238 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Report Snapshot Cache
+ *
+ * Generated executive reports keyed by report type and parameters, each
+ * stamped with the data generation it was built from. A snapshot is served
+ * as long as no import has committed since; its ETag is derived from the key,
+ * the generation and the number format of the response locale (page cells
+ * are formatted when serialized), so it stays the same for exactly as long
+ * as the response body does.
+ *
+ * While an import is still running, an outdated snapshot can optionally be
+ * served as-is until the import completes, so a multi-file import does not
+ * force a regeneration after every file. A report generated while an import
+ * runs is returned but never cached and carries no ETag: it may already
+ * include files the import committed while still carrying the generation
+ * from before it.
+ */
+@Service
+public class ReportSnapshotCache {
+
+    @Autowired
+    private ReportGenerationService reportService;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${kronospan.ai.report.cache.max-entries:200}")
+    private int maxEntries;
+
+    @Value("${kronospan.ai.report.cache.stale-while-importing:true}")
+    private boolean staleWhileImporting;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Snapshot>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Cached report for the current data generation, generated on a miss.
+     * Concurrent requests for the same report share one generation run.
+     */
+    public Snapshot getReport(String reportType, Map<String, Object> parameters) {
+        String key = cacheKey(reportType, parameters);
+        long generation = dataGeneration.current();
+        Snapshot snapshot = snapshots.get(key);
+
+        if (snapshot != null && snapshot.generation == generation) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+        if (snapshot != null && staleWhileImporting && dataGeneration.isImportRunning()) {
+            // Rebuilt on the first request once the import has completed
+            staleHits.incrementAndGet();
+            return snapshot.asStale();
+        }
+
+        misses.incrementAndGet();
+        try {
+            return refresh(key, reportType, parameters).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generation", dataGeneration.current());
+        stats.put("import_running", dataGeneration.isImportRunning());
+        stats.put("stale_while_importing", staleWhileImporting);
+        stats.put("entries", snapshots.size());
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("stale_hits", staleHits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * Start (or join) the generation of one report; the finished snapshot
+     * replaces the cached one unless an import ran at any point meanwhile
+     */
+    private CompletableFuture<Snapshot> refresh(String key, String reportType, Map<String, Object> parameters) {
+        CompletableFuture<Snapshot> created = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        Map<String, Object> copy = new HashMap<>(parameters);
+        taskExecutor.execute(() -> {
+            try {
+                long generation = dataGeneration.current();
+                boolean importRunning = dataGeneration.isImportRunning();
+                long startTime = System.currentTimeMillis();
+                ReportGenerationService.ExecutiveReport report = reportService.generateExecutiveReport(reportType, copy);
+                boolean cacheable = !importRunning && !dataGeneration.isImportRunning() &&
+                                    dataGeneration.current() == generation;
+                Snapshot snapshot = new Snapshot(report, generation, key, false, cacheable);
+                if (cacheable) {
+                    store(key, snapshot);
+                }
+                System.out.println("Generated " + reportType + " report for generation " + generation +
+                                   " in " + (System.currentTimeMillis() - startTime) + "ms");
+                created.complete(snapshot);
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    private void store(String key, Snapshot snapshot) {
+        if (!snapshots.containsKey(key) && snapshots.size() >= maxEntries) {
+            // Reports from older generations go first, then any entry
+            snapshots.values().removeIf(cached -> cached.generation < snapshot.generation);
+            Iterator<String> keys = snapshots.keySet().iterator();
+            while (snapshots.size() >= maxEntries && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        snapshots.merge(key, snapshot, (cached, fresh) -> fresh.generation >= cached.generation ? fresh : cached);
+    }
+
+    /**
+     * Report type plus parameters in name order, so equal requests share an entry
+     */
+    private static String cacheKey(String reportType, Map<String, Object> parameters) {
+        StringBuilder key = new StringBuilder(reportType.toLowerCase(Locale.ROOT));
+        for (Map.Entry<String, Object> parameter : new TreeMap<>(parameters).entrySet()) {
+            key.append('|').append(parameter.getKey()).append('=');
+            Object value = parameter.getValue();
+            key.append(value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value));
+        }
+        return key.toString();
+    }
+
+    /**
+     * ETag the cache gives a report for a generation, served in a locale
+     */
+    static String etag(String reportType, Map<String, Object> parameters, long generation, Locale locale) {
+        return etag(cacheKey(reportType, parameters), generation, locale);
+    }
+
+    private static String etag(String key, long generation, Locale locale) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((key + '|' + numberFormat(locale)).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return "\"g" + generation + "-" + hex + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Report cells only depend on the locale's grouping and decimal separators
+     */
+    static String numberFormat(Locale locale) {
+        return String.format(locale, "%,.1f", 1234567.5);
+    }
+
+    public static final class Snapshot {
+        private final ReportGenerationService.ExecutiveReport report;
+        private final long generation;
+        private final String key;
+        private final boolean stale;
+        private final boolean cacheable;
+
+        Snapshot(ReportGenerationService.ExecutiveReport report, long generation, String key, boolean stale,
+                 boolean cacheable) {
+            this.report = report;
+            this.generation = generation;
+            this.key = key;
+            this.stale = stale;
+            this.cacheable = cacheable;
+        }
+
+        Snapshot asStale() {
+            return new Snapshot(report, generation, key, true, cacheable);
+        }
+
+        public ReportGenerationService.ExecutiveReport getReport() { return report; }
+        public long getGeneration() { return generation; }
+
+        /**
+         * Strong ETag of the report served in a locale, quoted, ready for the
+         * ETag header; null when the snapshot is not cacheable
+         */
+        public String getEtag(Locale locale) { return cacheable ? etag(key, generation, locale) : null; }
+
+        /**
+         * Whether this is an older generation served while an import runs
+         */
+        public boolean isStale() { return stale; }
+
+        /**
+         * Whether the report may be cached and revalidated; false when it was
+         * generated while an import was running, so its content does not
+         * belong to a single generation
+         */
+        public boolean isCacheable() { return cacheable; }
+    }
+}
@@ -0,0 +1,138 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Report Snapshot Store
+ *
+ * Rendered reports on disk, one directory per report type with one file per
+ * data generation and format, e.g. working_capital_analysis/g7.json.gz.
+ * JSON is kept gzipped; XLSX and PDF are compressed formats already and are
+ * kept as they are. Files are written under a temporary name and moved into
+ * place, so a reader never sees a partial file.
+ *
+ * The data generation is kept in the database, so files written by an
+ * earlier run for the generation that is still current are served after a
+ * restart; only the files of other generations are deleted on startup.
+ */
+@Component
+public class ReportSnapshotStore {
+
+    @Value("${kronospan.ai.report.pregenerate.dir:${kronospan.ai.data-dir:./data}/report-snapshots}")
+    private String directory;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    private Path root;
+
+    @PostConstruct
+    public void initStore() throws IOException {
+        root = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(root);
+        int deleted = deleteStaleSnapshots(root, dataGeneration.current());
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " report snapshot files of earlier data generations");
+        }
+    }
+
+    /**
+     * Stored file of a report, or null when that generation and format has not been written
+     */
+    public File find(String reportType, long generation, String fileName) {
+        File file = path(reportType, generation, fileName).toFile();
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Write one rendered format of a report atomically
+     */
+    public void write(String reportType, long generation, String fileName, Renderer renderer) throws IOException {
+        Path target = path(reportType, generation, fileName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), fileName, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                renderer.render(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Delete the files of every generation of a report except the given one
+     */
+    public void prune(String reportType, long keepGeneration) throws IOException {
+        Path dir = root.resolve(reportType);
+        if (!Files.isDirectory(dir)) return;
+        String keep = "g" + keepGeneration + ".";
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().startsWith(keep)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStatistics() throws IOException {
+        long count = 0;
+        long bytes = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    count++;
+                    bytes += Files.size(file);
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("directory", root.toString());
+        stats.put("files", count);
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    private Path path(String reportType, long generation, String fileName) {
+        return root.resolve(reportType).resolve("g" + generation + "." + fileName);
+    }
+
+    /**
+     * Delete the report files of every generation but the current one, and
+     * temp files left by an interrupted write; only names the store writes
+     * itself are touched
+     */
+    private static int deleteStaleSnapshots(Path dir, long currentGeneration) throws IOException {
+        if (!Files.isDirectory(dir)) return 0;
+        String current = "g" + currentGeneration + ".";
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                boolean stale = name.endsWith(".tmp") || (name.matches("g\\d+\\..+") && !name.startsWith(current));
+                if (Files.isRegularFile(file) && stale && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Writes one format of a report to the stream
+     */
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+}
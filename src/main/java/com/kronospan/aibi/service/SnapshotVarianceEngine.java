@@ -0,0 +1,315 @@
+package com.kronospan.aibi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Snapshot Variance Engine
+ *
+ * Compares working capital facility totals across any two or more report
+ * snapshots by company, bank, country or currency. Each snapshot is read as
+ * one slice of the facility summary tables, which are keyed by report date
+ * first, so a slice is an index range already sorted by the dimension key.
+ * The slices are then merge-joined on that key in a single pass; nothing
+ * outside the requested report dates is read.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SnapshotVarianceEngine {
+
+    /**
+     * What to compare by, with the SQL for one snapshot slice ordered by the
+     * dimension key (H2 orders VARCHAR like String.compareTo)
+     */
+    public enum Dimension {
+        COMPANY("SELECT s.company_id AS dim_key, gc.company_name AS label, s.total_limit, s.total_utilized " +
+                "FROM wcf_summary_company s JOIN group_companies gc ON s.company_id = gc.id " +
+                "WHERE s.report_date = ? ORDER BY s.company_id"),
+        BANK("SELECT bank_name AS dim_key, bank_name AS label, total_limit, total_utilized " +
+             "FROM wcf_summary_bank WHERE report_date = ? ORDER BY bank_name"),
+        COUNTRY("SELECT COALESCE(gc.country, 'Unknown') AS dim_key, COALESCE(gc.country, 'Unknown') AS label, " +
+                "SUM(s.total_limit) AS total_limit, SUM(s.total_utilized) AS total_utilized " +
+                "FROM wcf_summary_company s JOIN group_companies gc ON s.company_id = gc.id " +
+                "WHERE s.report_date = ? GROUP BY gc.country ORDER BY dim_key"),
+        CURRENCY("SELECT COALESCE(currency, 'N/A') AS dim_key, COALESCE(currency, 'N/A') AS label, " +
+                 "SUM(total_limit) AS total_limit, SUM(total_utilized) AS total_utilized " +
+                 "FROM wcf_summary_bank WHERE report_date = ? GROUP BY currency ORDER BY dim_key");
+
+        final String sliceSql;
+
+        Dimension(String sliceSql) {
+            this.sliceSql = sliceSql;
+        }
+
+        public static Dimension parse(String name) {
+            if (name == null || name.trim().isEmpty()) return COMPANY;
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown variance dimension: " + name);
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Report dates that have a snapshot, oldest first
+     */
+    public List<LocalDate> getSnapshotDates() {
+        return jdbcTemplate.query("SELECT DISTINCT report_date FROM wcf_summary_bank ORDER BY report_date",
+                (rs, rowNum) -> rs.getDate(1).toLocalDate());
+    }
+
+    /**
+     * Compare the snapshots behind the given periods; with no periods, the
+     * latest two snapshots are compared
+     */
+    public Comparison compare(List<String> periods, Dimension dimension) {
+        NavigableSet<LocalDate> available = new TreeSet<>(getSnapshotDates());
+        List<LocalDate> dates = new ArrayList<>();
+        if (periods == null || periods.isEmpty()) {
+            Iterator<LocalDate> latest = available.descendingIterator();
+            for (int i = 0; i < 2 && latest.hasNext(); i++) {
+                dates.add(0, latest.next());
+            }
+        } else {
+            for (String period : periods) {
+                LocalDate snapshot = resolve(available, period);
+                if (snapshot == null) {
+                    throw new IllegalArgumentException("No snapshot for period " + period);
+                }
+                dates.add(snapshot);
+            }
+        }
+        return compareDates(dates, dimension);
+    }
+
+    /**
+     * Merge-join the slices of the given snapshot dates on the dimension key;
+     * variance is measured from the first date to the last
+     */
+    public Comparison compareDates(List<LocalDate> dates, Dimension dimension) {
+        long startTime = System.currentTimeMillis();
+        List<List<SliceRow>> slices = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
+            slices.add(loadSlice(date, dimension));
+        }
+
+        Comparison comparison = new Comparison(dimension, dates);
+        int[] cursors = new int[slices.size()];
+        while (true) {
+            Comparable<Object> key = null;
+            for (int i = 0; i < slices.size(); i++) {
+                if (cursors[i] < slices.get(i).size()) {
+                    Comparable<Object> candidate = slices.get(i).get(cursors[i]).key;
+                    if (key == null || candidate.compareTo(key) < 0) key = candidate;
+                }
+            }
+            if (key == null) break;
+
+            VarianceRow row = new VarianceRow(key, dates.size());
+            for (int i = 0; i < slices.size(); i++) {
+                if (cursors[i] < slices.get(i).size()) {
+                    SliceRow head = slices.get(i).get(cursors[i]);
+                    if (head.key.compareTo(key) == 0) {
+                        if (row.label == null) row.label = head.label;
+                        row.limits[i] = head.totalLimit;
+                        row.utilized[i] = head.totalUtilized;
+                        cursors[i]++;
+                    }
+                }
+            }
+            comparison.rows.add(row);
+        }
+
+        System.out.println("Compared " + dates.size() + " snapshots by " + dimension.name().toLowerCase() + ": " +
+                           comparison.rows.size() + " keys in " + (System.currentTimeMillis() - startTime) + "ms");
+        return comparison;
+    }
+
+    /**
+     * Snapshot for a period: "2024" and "2024-07" take the latest snapshot
+     * within that year or month, a full date the latest on or before it
+     * (so a month-end date finds the snapshot taken ahead of it)
+     */
+    static LocalDate resolve(NavigableSet<LocalDate> available, String period) {
+        String text = period.trim();
+        try {
+            if (text.matches("\\d{4}")) {
+                int year = Integer.parseInt(text);
+                return within(available, LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+            }
+            if (text.matches("\\d{4}-\\d{2}")) {
+                YearMonth month = YearMonth.parse(text);
+                return within(available, month.atDay(1), month.atEndOfMonth());
+            }
+            return available.floor(LocalDate.parse(text));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Unrecognised period: " + period);
+        }
+    }
+
+    private static LocalDate within(NavigableSet<LocalDate> available, LocalDate from, LocalDate to) {
+        LocalDate snapshot = available.floor(to);
+        return snapshot != null && !snapshot.isBefore(from) ? snapshot : null;
+    }
+
+    /**
+     * One snapshot in key order; consecutive rows with the same key (a bank's
+     * currencies) are folded together
+     */
+    private List<SliceRow> loadSlice(LocalDate date, Dimension dimension) {
+        List<SliceRow> slice = new ArrayList<>();
+        jdbcTemplate.query(dimension.sliceSql, (RowCallbackHandler) rs -> {
+            SliceRow row = new SliceRow(rs);
+            SliceRow last = slice.isEmpty() ? null : slice.get(slice.size() - 1);
+            if (last != null && last.key.compareTo(row.key) == 0) {
+                last.totalLimit = last.totalLimit.add(row.totalLimit);
+                last.totalUtilized = last.totalUtilized.add(row.totalUtilized);
+            } else {
+                slice.add(row);
+            }
+        }, Date.valueOf(date));
+        return slice;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static final class SliceRow {
+        final Comparable<Object> key;
+        final String label;
+        BigDecimal totalLimit;
+        BigDecimal totalUtilized;
+
+        @SuppressWarnings("unchecked")
+        SliceRow(ResultSet rs) throws SQLException {
+            key = (Comparable<Object>) rs.getObject("dim_key");
+            label = rs.getString("label");
+            totalLimit = orZero(rs.getBigDecimal("total_limit"));
+            totalUtilized = orZero(rs.getBigDecimal("total_utilized"));
+        }
+    }
+
+    /**
+     * Result of one comparison; rows are in dimension key order
+     */
+    public static class Comparison {
+        private final Dimension dimension;
+        private final List<LocalDate> dates;
+        private final List<VarianceRow> rows = new ArrayList<>();
+
+        Comparison(Dimension dimension, List<LocalDate> dates) {
+            this.dimension = dimension;
+            this.dates = dates;
+        }
+
+        public Dimension getDimension() { return dimension; }
+        public List<LocalDate> getDates() { return dates; }
+        public List<VarianceRow> getRows() { return rows; }
+
+        /**
+         * Rows with the largest increase in limits first
+         */
+        public List<VarianceRow> getRowsByVariance() {
+            List<VarianceRow> sorted = new ArrayList<>(rows);
+            sorted.sort((a, b) -> b.getLimitVariance().compareTo(a.getLimitVariance()));
+            return sorted;
+        }
+
+        public Map<String, Object> toMap() {
+            List<String> snapshotDates = new ArrayList<>();
+            for (LocalDate date : dates) {
+                snapshotDates.add(date.toString());
+            }
+            List<Map<String, Object>> entries = new ArrayList<>();
+            BigDecimal[] totals = new BigDecimal[dates.size()];
+            Arrays.fill(totals, BigDecimal.ZERO);
+            for (VarianceRow row : getRowsByVariance()) {
+                entries.add(row.toMap(snapshotDates));
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] = totals[i].add(orZero(row.limits[i]));
+                }
+            }
+            Map<String, Object> totalLimits = new LinkedHashMap<>();
+            for (int i = 0; i < totals.length; i++) {
+                totalLimits.put(snapshotDates.get(i), totals[i]);
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("dimension", dimension.name().toLowerCase());
+            result.put("snapshot_dates", snapshotDates);
+            result.put("total_limits", totalLimits);
+            result.put("entries", entries);
+            return result;
+        }
+    }
+
+    /**
+     * Totals of one key in each compared snapshot; null where the key is
+     * absent from a snapshot
+     */
+    public static class VarianceRow {
+        private final Object key;
+        private String label;
+        private final BigDecimal[] limits;
+        private final BigDecimal[] utilized;
+
+        VarianceRow(Object key, int snapshots) {
+            this.key = key;
+            this.limits = new BigDecimal[snapshots];
+            this.utilized = new BigDecimal[snapshots];
+        }
+
+        public Object getKey() { return key; }
+        public String getLabel() { return label; }
+        public BigDecimal getLimit(int snapshot) { return limits[snapshot]; }
+        public BigDecimal getUtilized(int snapshot) { return utilized[snapshot]; }
+
+        public BigDecimal getLimitVariance() {
+            return limits.length == 0 ? BigDecimal.ZERO : orZero(limits[limits.length - 1]).subtract(orZero(limits[0]));
+        }
+
+        /**
+         * Change from the first snapshot in percent; null when the key had no limit there
+         */
+        public BigDecimal getLimitChangePercentage() {
+            BigDecimal first = limits.length == 0 ? null : limits[0];
+            if (first == null || first.signum() == 0) return null;
+            return getLimitVariance().multiply(BigDecimal.valueOf(100)).divide(first, 2, RoundingMode.HALF_UP);
+        }
+
+        Map<String, Object> toMap(List<String> snapshotDates) {
+            Map<String, Object> limitsByDate = new LinkedHashMap<>();
+            Map<String, Object> utilizedByDate = new LinkedHashMap<>();
+            for (int i = 0; i < limits.length; i++) {
+                limitsByDate.put(snapshotDates.get(i), limits[i]);
+                utilizedByDate.put(snapshotDates.get(i), utilized[i]);
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", key);
+            map.put("label", label);
+            map.put("limits", limitsByDate);
+            map.put("utilized", utilizedByDate);
+            map.put("variance", getLimitVariance());
+            map.put("change_percentage", getLimitChangePercentage());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.kronospan.aibi.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Working Capital Metrics
+ *
+ * Facility totals per currency and per bank, built from a single
+ * GROUP BY currency, bank_name pass over the wcf_summary_bank summary
+ * table. Every page of the working capital report reads from one instance
+ * instead of querying the table again.
+ */
+public final class WorkingCapitalMetrics {
+
+    /**
+     * One row per (currency, bank) pair
+     */
+    public static final String QUERY =
+        "SELECT currency, bank_name, SUM(facility_count) AS facility_count, " +
+        "COALESCE(SUM(total_limit), 0) AS total_limit, COALESCE(SUM(total_utilized), 0) AS total_utilized, " +
+        "COALESCE(MAX(max_limit), 0) AS max_limit, " +
+        "COALESCE(SUM(utilization_sum), 0) AS utilization_sum, SUM(utilization_count) AS utilization_count " +
+        "FROM wcf_summary_bank GROUP BY currency, bank_name";
+
+    private final Map<String, Totals> byCurrency = new LinkedHashMap<>();
+    private final Map<String, Totals> byBankAndCurrency = new LinkedHashMap<>();
+
+    /**
+     * Fold the rows of {@link #QUERY} into per-currency and per-bank totals
+     */
+    public static WorkingCapitalMetrics fromRows(List<Map<String, Object>> rows) {
+        WorkingCapitalMetrics metrics = new WorkingCapitalMetrics();
+        for (Map<String, Object> row : rows) {
+            String currency = (String) row.get("CURRENCY");
+            String bankName = (String) row.get("BANK_NAME");
+            Totals group = new Totals(bankName, currency);
+            group.facilityCount = ((Number) row.get("FACILITY_COUNT")).longValue();
+            group.totalLimit = (BigDecimal) row.get("TOTAL_LIMIT");
+            group.totalUtilized = (BigDecimal) row.get("TOTAL_UTILIZED");
+            group.maxLimit = (BigDecimal) row.get("MAX_LIMIT");
+            group.utilizationSum = (BigDecimal) row.get("UTILIZATION_SUM");
+            group.utilizationCount = ((Number) row.get("UTILIZATION_COUNT")).longValue();
+            group.bankCount = 1;
+
+            metrics.byBankAndCurrency.put(bankName + "|" + currency, group);
+            metrics.byCurrency.computeIfAbsent(currency, key -> new Totals(null, key)).add(group);
+        }
+        return metrics;
+    }
+
+    /**
+     * Totals for one currency; all zero when no facility uses it
+     */
+    public Totals currency(String currency) {
+        Totals totals = byCurrency.get(currency);
+        return totals != null ? totals : new Totals(null, currency);
+    }
+
+    /**
+     * (bank, currency) groups with the largest total limit first
+     */
+    public List<Totals> topBanks(int limit) {
+        List<Totals> banks = new ArrayList<>(byBankAndCurrency.values());
+        banks.sort((a, b) -> b.totalLimit.compareTo(a.totalLimit));
+        return banks.subList(0, Math.min(limit, banks.size()));
+    }
+
+    public static final class Totals {
+        private final String bankName;
+        private final String currency;
+        private long facilityCount;
+        private long bankCount;
+        private BigDecimal totalLimit = BigDecimal.ZERO;
+        private BigDecimal totalUtilized = BigDecimal.ZERO;
+        private BigDecimal maxLimit = BigDecimal.ZERO;
+        private BigDecimal utilizationSum = BigDecimal.ZERO;
+        private long utilizationCount;
+
+        Totals(String bankName, String currency) {
+            this.bankName = bankName;
+            this.currency = currency;
+        }
+
+        void add(Totals group) {
+            facilityCount += group.facilityCount;
+            bankCount += group.bankCount;
+            totalLimit = totalLimit.add(group.totalLimit);
+            totalUtilized = totalUtilized.add(group.totalUtilized);
+            maxLimit = maxLimit.max(group.maxLimit);
+            utilizationSum = utilizationSum.add(group.utilizationSum);
+            utilizationCount += group.utilizationCount;
+        }
+
+        public String getBankName() { return bankName; }
+        public String getCurrency() { return currency; }
+        public long getFacilityCount() { return facilityCount; }
+        public int getBankCount() { return (int) bankCount; }
+        public BigDecimal getTotalLimit() { return totalLimit; }
+        public BigDecimal getTotalUtilized() { return totalUtilized; }
+        public BigDecimal getMaxLimit() { return maxLimit; }
+
+        /**
+         * Mean utilization_percentage over the facilities that have one, like SQL AVG
+         */
+        public BigDecimal getAverageUtilization() {
+            if (utilizationCount == 0) return BigDecimal.ZERO;
+            return utilizationSum.divide(BigDecimal.valueOf(utilizationCount), 2, RoundingMode.HALF_UP);
+        }
+    }
+}
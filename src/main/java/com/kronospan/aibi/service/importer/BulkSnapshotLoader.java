@@ -0,0 +1,198 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.LongTermLoan;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Bulk Snapshot Loader
+ *
+ * Backfill path for large volumes of facilities and loans that bypasses the
+ * JPA persistence context entirely: rows go out as multi-row INSERT statements
+ * (or straight from a CSV file through H2's CSVREAD). Indexes stay in place,
+ * since the tables keep serving reads during a load. Inserted facilities are
+ * added to the summary tables as deltas.
+ */
+@Component
+public class BulkSnapshotLoader {
+
+    private static final String[] FACILITY_COLUMNS = {
+        "id", "company_id", "bank_name", "facility_type", "currency", "report_date", "facility_name",
+        "limit_amount", "utilized_amount", "undrawn_amount", "utilization_percentage", "maturity_date", "interest_rate"
+    };
+
+    private static final String[] LOAN_COLUMNS = {
+        "id", "company_id", "loan_reference", "lender_name", "loan_type", "currency", "original_amount",
+        "outstanding_amount", "interest_rate", "start_date", "maturity_date", "repayment_frequency",
+        "security_type", "purpose"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIdAllocator idAllocator;
+
+    @Autowired
+    private FacilitySummaryTables summaryTables;
+
+    @Value("${kronospan.ai.import.bulk-rows-per-statement:500}")
+    private int rowsPerStatement;
+
+    private final Map<String, String> insertStatements = new ConcurrentHashMap<>();
+
+    /**
+     * Refresh optimizer statistics after a bulk load
+     */
+    public void analyze(String table) {
+        jdbcTemplate.execute("ANALYZE TABLE " + table);
+    }
+
+    /**
+     * Remove a whole facility snapshot so it can be reloaded
+     */
+    public int deleteFacilitySnapshot(LocalDate reportDate) {
+        int removed = jdbcTemplate.update("DELETE FROM working_capital_facilities WHERE report_date = ?", Date.valueOf(reportDate));
+        summaryTables.clearReportDate(reportDate);
+        return removed;
+    }
+
+    public int insertFacilities(List<WorkingCapitalFacility> facilities) {
+        int inserted = insertRows("working_capital_facilities", FACILITY_COLUMNS, facilities, (facility, id) -> new Object[]{
+            id,
+            FacilitySnapshotWriter.companyId(facility),
+            facility.getBankName(),
+            facility.getFacilityType(),
+            facility.getCurrency(),
+            toSqlDate(facility.getReportDate()),
+            facility.getFacilityName(),
+            facility.getLimitAmount(),
+            facility.getUtilizedAmount(),
+            facility.getUndrawnAmount(),
+            facility.getUtilizationPercentage(),
+            toSqlDate(facility.getMaturityDate()),
+            facility.getInterestRate()
+        });
+        summaryTables.addInserted(facilities);
+        return inserted;
+    }
+
+    public int insertLoans(List<LongTermLoan> loans) {
+        return insertRows("long_term_loans", LOAN_COLUMNS, loans, (loan, id) -> new Object[]{
+            id,
+            loanCompanyId(loan),
+            loan.getLoanReference(),
+            loan.getLenderName(),
+            loan.getLoanType(),
+            loan.getCurrency(),
+            loan.getOriginalAmount(),
+            loan.getOutstandingAmount(),
+            loan.getInterestRate(),
+            toSqlDate(loan.getStartDate()),
+            toSqlDate(loan.getMaturityDate()),
+            loan.getRepaymentFrequency(),
+            loan.getSecurityType(),
+            loan.getPurpose()
+        });
+    }
+
+    /**
+     * Load facilities straight from a CSV file inside the database engine.
+     * The file needs a header row with COMPANY_NAME plus the facility columns;
+     * missing companies are created first. Ids come straight from the table
+     * sequences, one block per row, which leaves gaps but needs no row count
+     * up front. The caller deletes the snapshots of the file's report dates
+     * first and rebuilds their summaries afterwards.
+     *
+     * @return number of facilities inserted
+     */
+    public int loadFacilitiesFromCsv(String csvPath) {
+        String source = "CSVREAD(?, NULL, 'charset=UTF-8')";
+
+        jdbcTemplate.update(
+            "INSERT INTO group_companies (id, company_name, country, is_active) " +
+            "SELECT NEXT VALUE FOR group_companies_seq, n.COMPANY_NAME, 'Cyprus', TRUE FROM " +
+            "(SELECT DISTINCT c.COMPANY_NAME FROM " + source + " c " +
+            "WHERE NOT EXISTS (SELECT 1 FROM group_companies gc WHERE gc.company_name = c.COMPANY_NAME)) n",
+            csvPath);
+
+        return jdbcTemplate.update(
+            "INSERT INTO working_capital_facilities (" + String.join(", ", FACILITY_COLUMNS) + ") DIRECT " +
+            "SELECT NEXT VALUE FOR working_capital_facilities_seq, gc.id, c.BANK_NAME, " +
+            "COALESCE(c.FACILITY_TYPE, 'RC'), COALESCE(c.CURRENCY, 'EUR'), " +
+            "CAST(c.REPORT_DATE AS DATE), COALESCE(c.FACILITY_NAME, c.BANK_NAME), " +
+            "CAST(c.LIMIT_AMOUNT AS NUMERIC(15,2)), CAST(c.UTILIZED_AMOUNT AS NUMERIC(15,2)), " +
+            "CAST(c.UNDRAWN_AMOUNT AS NUMERIC(15,2)), " +
+            "CASE WHEN CAST(c.LIMIT_AMOUNT AS NUMERIC(15,2)) > 0 " +
+            "THEN CAST(CAST(c.UTILIZED_AMOUNT AS NUMERIC(15,2)) * 100 / CAST(c.LIMIT_AMOUNT AS NUMERIC(15,2)) AS NUMERIC(5,2)) END, " +
+            "CAST(c.MATURITY_DATE AS DATE), CAST(c.INTEREST_RATE AS NUMERIC(6,4)) " +
+            "FROM " + source + " c JOIN group_companies gc ON gc.company_name = c.COMPANY_NAME",
+            csvPath);
+    }
+
+    /**
+     * Report dates present in a CSV export, for replacing their snapshots and refreshing their summaries
+     */
+    public List<LocalDate> csvReportDates(String csvPath) {
+        return jdbcTemplate.query(
+            "SELECT DISTINCT CAST(REPORT_DATE AS DATE) FROM CSVREAD(?, NULL, 'charset=UTF-8') WHERE REPORT_DATE IS NOT NULL",
+            (rs, rowNum) -> rs.getDate(1).toLocalDate(), csvPath);
+    }
+
+    private static Long loanCompanyId(LongTermLoan loan) {
+        if (loan.getCompany() == null || loan.getCompany().getId() == null) {
+            throw new IllegalArgumentException("Loan " + loan.getLoanReference() + " has no saved company");
+        }
+        return loan.getCompany().getId();
+    }
+
+    private <T> int insertRows(String table, String[] columns, List<T> rows, BiFunction<T, Long, Object[]> values) {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+            List<T> chunk = rows.subList(from, Math.min(from + rowsPerStatement, rows.size()));
+            long[] ids = idAllocator.allocate(table + "_seq", chunk.size());
+            Object[] args = new Object[chunk.size() * columns.length];
+            int i = 0;
+            int row = 0;
+            for (T value : chunk) {
+                for (Object column : values.apply(value, ids[row++])) {
+                    args[i++] = column;
+                }
+            }
+            inserted += jdbcTemplate.update(insertStatement(table, columns, chunk.size()), args);
+        }
+        return inserted;
+    }
+
+    private String insertStatement(String table, String[] columns, int rowCount) {
+        return insertStatements.computeIfAbsent(table + "#" + rowCount, key -> {
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < columns.length; i++) {
+                row.append(i == 0 ? "?" : ", ?");
+            }
+            row.append(')');
+
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                    .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(row);
+            }
+            return sql.toString();
+        });
+    }
+
+    private Date toSqlDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
@@ -3,22 +3,37 @@ package com.kronospan.aibi.service.importer;
 import com.kronospan.aibi.model.WorkingCapitalFacility;
 import com.kronospan.aibi.model.LongTermLoan;
 import com.kronospan.aibi.model.GroupCompany;
-import com.kronospan.aibi.repository.WorkingCapitalFacilityRepository;
 import com.kronospan.aibi.repository.LongTermLoanRepository;
 import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.service.DataGeneration;
+import com.kronospan.aibi.service.ReferenceDataCache;
+import com.kronospan.aibi.service.search.SearchIndexLoader;
+import com.kronospan.aibi.service.search.TextSearchIndex;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.util.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Excel Import Service for Kronospan Data
@@ -32,33 +47,84 @@ import java.util.*;
 @Transactional
 public class ExcelImportService {
     
-    @Autowired
-    private WorkingCapitalFacilityRepository wcrRepository;
-    
     @Autowired
     private LongTermLoanRepository ltlRepository;
     
     @Autowired
     private GroupCompanyRepository companyRepository;
     
+    @Autowired
+    private HeaderLayoutCache layoutCache;
+    
+    @Autowired
+    private FacilitySnapshotWriter snapshotWriter;
+    
+    @Autowired
+    private RowQuarantine quarantine;
+    
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+    
+    @Autowired
+    private FacilitySummaryTables summaryTables;
+    
+    @Autowired
+    private SearchIndexLoader searchIndexLoader;
+    
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    
+    @Autowired
+    private DataGeneration dataGeneration;
+    
+    @Autowired
+    private SourceFileRegistry sourceFiles;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${kronospan.ai.import.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${kronospan.ai.import.pipeline-workers:2}")
+    private int pipelineWorkers;
+    
+    @Value("${kronospan.ai.import.pipeline-queue-capacity:1000}")
+    private int pipelineQueueCapacity;
+    
+    @Value("${kronospan.ai.import.bulk-batch-size:5000}")
+    private int bulkBatchSize;
+    
+    @Value("${kronospan.ai.import.bulk-dir:${kronospan.ai.data-dir:./data}/import}")
+    private String bulkImportDir;
+    
+    private static final Pattern REPORT_DATE_PATTERN = Pattern.compile("(\\d{2})_(\\d{2})_(\\d{4})");
+    
     private final Map<String, GroupCompany> companyCache = new HashMap<>();
     
     /**
      * Import WCR data from Excel files
      */
     public void importWCRData() {
+        dataGeneration.beginImport();
         try {
             System.out.println("Starting WCR data import...");
             
             // Import from both WCR files
-            importWCRFile("Demo_data_1/Demo_data_1/WCR_16_07_2024.xlsx");
-            importWCRFile("Demo_data_1/Demo_data_1/WCR_27_12_2023.xlsx");
+            importIfChanged("WCR", "Demo_data_1/Demo_data_1/WCR_16_07_2024.xlsx");
+            importIfChanged("WCR", "Demo_data_1/Demo_data_1/WCR_27_12_2023.xlsx");
             
             System.out.println("WCR data import completed successfully!");
             
         } catch (Exception e) {
             System.err.println("Error importing WCR data: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            try {
+                referenceDataCache.evictAfterImport();
+            } finally {
+                dataGeneration.advanceAfterImport();
+            }
         }
     }
     
@@ -66,78 +132,308 @@ public class ExcelImportService {
      * Import LTL data from Excel file
      */
     public void importLTLData() {
+        dataGeneration.beginImport();
         try {
             System.out.println("Starting LTL data import...");
             
-            importLTLFile("Demo_data_2/Demo_data_2/LTL_Data.xlsx");
+            importIfChanged("LTL", "Demo_data_2/Demo_data_2/LTL_Data.xlsx");
             
             System.out.println("LTL data import completed successfully!");
             
         } catch (Exception e) {
             System.err.println("Error importing LTL data: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            try {
+                referenceDataCache.evictAfterImport();
+            } finally {
+                dataGeneration.advanceAfterImport();
+            }
         }
     }
     
     /**
-     * Import specific WCR Excel file
+     * Bulk-load WCR snapshot files (annual backfills)
+     * 
+     * Each file replaces the whole snapshot for its report date using
+     * multi-row JDBC inserts instead of the merge. The delete and the inserts
+     * of one file commit together, so readers see either the old snapshot or
+     * the new one; a failing file rolls back alone.
      */
-    private void importWCRFile(String filePath) throws IOException {
-        IOUtils.setByteArrayMaxOverride(150000000);  // Handle large files
-        try (FileInputStream file = new FileInputStream(filePath);
-             Workbook workbook = new XSSFWorkbook(file)) {
-            
-            System.out.println("Processing WCR file: " + filePath);
-            
-            // Get the first sheet (assuming data is in first sheet)
-            Sheet sheet = workbook.getSheetAt(0);
-            
-            // Find header row and data rows
-            Row headerRow = null;
-            int dataStartRow = -1;
-            
-            for (int i = 0; i <= 20; i++) {  // Search more rows
-                Row row = sheet.getRow(i);
-                if (row != null && containsWCRHeaders(row)) {
-                    headerRow = row;
-                    dataStartRow = i + 1;
-                    break;
-                }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> bulkImportWCRFiles(List<String> filePaths) throws Exception {
+        long startTime = System.currentTimeMillis();
+        List<String> files = resolveBulkFiles(filePaths);
+        dataGeneration.beginImport();
+        long rowCount = 0;
+        try {
+            for (String filePath : files) {
+                rowCount += loadInTransaction(() -> {
+                    long loaded = importWCRFile(filePath, true);
+                    sourceFiles.record("WCR", filePath, loaded);
+                    return loaded;
+                });
             }
-            
-            if (headerRow == null) {
-                System.out.println("No WCR headers found in file: " + filePath);
-                return;
+        } finally {
+            try {
+                bulkLoader.analyze("working_capital_facilities");
+                referenceDataCache.evictAfterImport();
+            } finally {
+                dataGeneration.advanceAfterImport();
             }
-            
-            // Map column indices
-            Map<String, Integer> columnMap = mapWCRColumns(headerRow);
-            
-            // Process data rows
-            int rowCount = 0;
-            for (int i = dataStartRow; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null && !isEmptyRow(row)) {
-                    try {
-                        WorkingCapitalFacility facility = createWCRFromRow(row, columnMap, filePath);
-                        if (facility != null) {
-                            wcrRepository.save(facility);
-                            rowCount++;
+        }
+        return bulkSummary(files.size(), rowCount, startTime);
+    }
+    
+    /**
+     * Bulk-load LTL files, appending the loans with multi-row JDBC inserts,
+     * one transaction per file
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> bulkImportLTLFiles(List<String> filePaths) throws Exception {
+        long startTime = System.currentTimeMillis();
+        List<String> files = resolveBulkFiles(filePaths);
+        dataGeneration.beginImport();
+        long rowCount = 0;
+        try {
+            for (String filePath : files) {
+                rowCount += loadInTransaction(() -> {
+                    long loaded = importLTLFile(filePath, true);
+                    sourceFiles.record("LTL", filePath, loaded);
+                    return loaded;
+                });
+            }
+        } finally {
+            try {
+                bulkLoader.analyze("long_term_loans");
+                referenceDataCache.evictAfterImport();
+            } finally {
+                dataGeneration.advanceAfterImport();
+            }
+        }
+        return bulkSummary(files.size(), rowCount, startTime);
+    }
+    
+    /**
+     * Bulk-load facilities from CSV exports, parsed inside the database by CSVREAD;
+     * the snapshots of the report dates in a file are replaced, and each file
+     * commits together with the summaries of those dates
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> bulkImportWCRCsvFiles(List<String> filePaths) throws Exception {
+        long startTime = System.currentTimeMillis();
+        List<String> files = resolveBulkFiles(filePaths);
+        dataGeneration.beginImport();
+        long rowCount = 0;
+        try {
+            for (String filePath : files) {
+                rowCount += loadInTransaction(() -> {
+                    // Like an Excel snapshot, each report date in the file replaces what is stored for it
+                    List<LocalDate> reportDates = bulkLoader.csvReportDates(filePath);
+                    for (LocalDate reportDate : reportDates) {
+                        int removed = bulkLoader.deleteFacilitySnapshot(reportDate);
+                        if (removed > 0) {
+                            System.out.println("Replacing " + removed + " existing WCR records for " + reportDate);
                         }
-                    } catch (Exception e) {
-                        System.err.println("Error processing row " + i + ": " + e.getMessage());
                     }
-                }
+                    int loaded = bulkLoader.loadFacilitiesFromCsv(filePath);
+                    summaryTables.rebuildReportDates(reportDates);
+                    System.out.println("Bulk-loaded " + loaded + " WCR records from " + filePath);
+                    sourceFiles.record("WCR_CSV", filePath, loaded);
+                    return loaded;
+                });
             }
-            
-            System.out.println("Imported " + rowCount + " WCR records from " + filePath);
+        } finally {
+            try {
+                bulkLoader.analyze("working_capital_facilities");
+                // CSVREAD may have created companies behind the caches and the search index
+                companyCache.clear();
+                referenceDataCache.evictAfterImport();
+            } finally {
+                dataGeneration.advanceAfterImport();
+            }
+        }
+        searchIndexLoader.rebuild(TextSearchIndex.COMPANIES);
+        return bulkSummary(files.size(), rowCount, startTime);
+    }
+    
+    /**
+     * Run the load of one bulk file in its own transaction
+     */
+    private long loadInTransaction(FileLoad load) throws Exception {
+        TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        long loaded;
+        try {
+            loaded = load.load();
+        } catch (Exception | Error e) {
+            transactionManager.rollback(transaction);
+            // Companies created by the file are gone again
+            companyCache.clear();
+            throw e;
+        }
+        transactionManager.commit(transaction);
+        return loaded;
+    }
+    
+    private interface FileLoad {
+        long load() throws Exception;
+    }
+    
+    /**
+     * Bulk files are named relative to the bulk import directory and must stay
+     * inside it; the paths reach POI and CSVREAD, which would read any file
+     * the server can
+     */
+    private List<String> resolveBulkFiles(List<String> filePaths) throws IOException {
+        Path root = Paths.get(bulkImportDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        root = root.toRealPath();
+        List<String> files = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            Path file = root.resolve(filePath).normalize();
+            if (!file.startsWith(root) || !Files.isRegularFile(file) || !file.toRealPath().startsWith(root)) {
+                throw new IllegalArgumentException("Not a file in the bulk import directory: " + filePath);
+            }
+            files.add(file.toString());
+        }
+        return files;
+    }
+    
+    /**
+     * Import a file unless the same content was already imported
+     */
+    private void importIfChanged(String importType, String filePath) throws Exception {
+        if (sourceFiles.isUnchanged(filePath)) {
+            System.out.println("Skipping unchanged file: " + filePath);
+            return;
         }
+        long rowCount = "WCR".equals(importType) ? importWCRFile(filePath, false) : importLTLFile(filePath, false);
+        sourceFiles.record(importType, filePath, rowCount);
+    }
+    
+    private Map<String, Object> bulkSummary(int fileCount, long rowCount, long startTime) {
+        long elapsed = System.currentTimeMillis() - startTime;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("files_processed", fileCount);
+        summary.put("rows_loaded", rowCount);
+        summary.put("processing_time_ms", elapsed);
+        summary.put("rows_per_minute", elapsed > 0 ? rowCount * 60_000 / elapsed : rowCount);
+        return summary;
+    }
+    
+    /**
+     * Import specific WCR Excel file
+     * 
+     * Runs as a staged pipeline: the sheet is streamed row by row on a parser
+     * thread, transformer workers turn rows into facilities, and this thread
+     * resolves companies and merges the facilities in batches. In bulk mode the
+     * report-date snapshot is replaced with plain inserts instead. Of rows that
+     * share a natural key, the one highest in the sheet is kept and the others
+     * are quarantined, whatever order the transformer workers finish in, so a
+     * re-import keeps the same row.
+     * 
+     * @return number of facilities written
+     */
+    private long importWCRFile(String filePath, boolean bulk) throws Exception {
+        System.out.println("Processing WCR file: " + filePath);
+        
+        LocalDate reportDate = parseReportDate(filePath);
+        if (reportDate == null) {
+            System.out.println("No report date in file name, skipping: " + filePath);
+            return 0;
+        }
+        if (bulk) {
+            int removed = bulkLoader.deleteFacilitySnapshot(reportDate);
+            if (removed > 0) {
+                System.out.println("Replacing " + removed + " existing WCR records for " + reportDate);
+            }
+        }
+        
+        // Header layout is settled on the parser thread before any data row is queued
+        WCRLayoutProbe probe = new WCRLayoutProbe(filePath);
+        AtomicInteger changedCount = new AtomicInteger();
+        AtomicInteger duplicateCount = new AtomicInteger();
+        RowQuarantine.Session rejects = quarantine.open("WCR", filePath);
+        
+        // Source row of each facility still in flight, and the row each written natural key came from
+        Map<WorkingCapitalFacility, RowRecord> sourceRows = Collections.synchronizedMap(new IdentityHashMap<>());
+        Map<List<Object>, RowRecord> writtenKeys = new HashMap<>();
+        
+        ImportPipeline<WorkingCapitalFacility> pipeline =
+                new ImportPipeline<>(bulk ? "wcr-bulk" : "wcr-import", pipelineWorkers, pipelineQueueCapacity,
+                        bulk ? bulkBatchSize : batchSize);
+        ImportPipeline.PipelineStats stats;
+        try {
+            stats = pipeline.run(
+                sink -> {
+                    XlsxRowStreamer.streamFirstSheet(filePath, record -> {
+                        for (RowRecord row : probe.offer(record)) {
+                            if (!row.isEmpty()) sink.accept(row);
+                        }
+                        return !probe.isExhausted();
+                    });
+                    for (RowRecord row : probe.finish()) {
+                        if (!row.isEmpty()) sink.accept(row);
+                    }
+                },
+                record -> {
+                    WorkingCapitalFacility facility = createWCRFromRow(record, probe.getLayout().getColumnMap(), reportDate);
+                    sourceRows.put(facility, record);
+                    return facility;
+                },
+                rejects::reject,
+                batch -> {
+                    // A second row with the same natural key would silently overwrite the first in the
+                    // merge (and break the unique key in bulk mode), so only the lowest row number is
+                    // kept; one that arrives after a later row was written replaces it through the merge
+                    List<WorkingCapitalFacility> unique = new ArrayList<>(batch.size());
+                    Map<List<Object>, WorkingCapitalFacility> replacements = new LinkedHashMap<>();
+                    for (WorkingCapitalFacility facility : batch) {
+                        RowRecord source = sourceRows.remove(facility);
+                        facility.setCompany(getOrCreateCompany(facility.getCompany().getCompanyName()));
+                        List<Object> key = naturalKey(facility);
+                        RowRecord kept = writtenKeys.get(key);
+                        if (kept == null) {
+                            writtenKeys.put(key, source);
+                            unique.add(facility);
+                            continue;
+                        }
+                        duplicateCount.incrementAndGet();
+                        if (source.getRowNumber() < kept.getRowNumber()) {
+                            writtenKeys.put(key, source);
+                            replacements.put(key, facility);
+                            rejects.reject(kept, duplicateOf(source));
+                        } else {
+                            rejects.reject(source, duplicateOf(kept));
+                        }
+                    }
+                    changedCount.addAndGet(bulk ? bulkLoader.insertFacilities(unique) : snapshotWriter.mergeBatch(unique));
+                    if (!replacements.isEmpty()) {
+                        changedCount.addAndGet(snapshotWriter.mergeBatch(new ArrayList<>(replacements.values())));
+                    }
+                });
+        } finally {
+            rejects.close();
+        }
+        
+        if (probe.getLayout() == null) {
+            System.out.println("No WCR headers found in file: " + filePath);
+            return 0;
+        }
+        
+        long written = stats.getWritten() - duplicateCount.get();
+        System.out.println("Imported " + written + " WCR records from " + filePath +
+                " (" + changedCount.get() + " inserted or changed, " + rejects.getRejectedCount() + " quarantined)");
+        System.out.println("WCR import pipeline: " + stats);
+        return written;
     }
     
     /**
      * Import LTL Excel file
+     * 
+     * @return number of loans written
      */
-    private void importLTLFile(String filePath) throws IOException {
+    private long importLTLFile(String filePath, boolean bulk) throws IOException {
         IOUtils.setByteArrayMaxOverride(150000000);  // Handle large files
         try (FileInputStream file = new FileInputStream(filePath);
              Workbook workbook = new XSSFWorkbook(file)) {
@@ -161,41 +457,147 @@ public class ExcelImportService {
             
             if (headerRow == null) {
                 System.out.println("No LTL headers found in file: " + filePath);
-                return;
+                return 0;
             }
             
             Map<String, Integer> columnMap = mapLTLColumns(headerRow);
             
+            long startTime = System.currentTimeMillis();
             int rowCount = 0;
-            for (int i = dataStartRow; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null && !isEmptyRow(row)) {
+            List<LongTermLoan> pending = new ArrayList<>();
+            RowQuarantine.Session rejects = quarantine.open("LTL", filePath);
+            try {
+                for (int i = dataStartRow; i <= sheet.getLastRowNum(); i++) {
+                    Row row = sheet.getRow(i);
+                    if (row == null || isEmptyRow(row)) continue;
+                    
+                    LongTermLoan loan;
                     try {
-                        LongTermLoan loan = createLTLFromRow(row, columnMap);
-                        if (loan != null) {
-                            ltlRepository.save(loan);
-                            rowCount++;
-                        }
+                        loan = createLTLFromRow(row, columnMap);
                     } catch (Exception e) {
-                        System.err.println("Error processing LTL row " + i + ": " + e.getMessage());
+                        rejects.reject(sheet.getSheetName(), i, rawCellValues(row), e);
+                        continue;
                     }
+                    if (loan == null) continue;
+                    
+                    // A failing write fails the file (and its transaction); it is not a bad row
+                    if (bulk) {
+                        pending.add(loan);
+                        if (pending.size() >= bulkBatchSize) {
+                            bulkLoader.insertLoans(pending);
+                            pending.clear();
+                        }
+                    } else {
+                        ltlRepository.save(loan);
+                    }
+                    rowCount++;
+                }
+                if (!pending.isEmpty()) {
+                    bulkLoader.insertLoans(pending);
                 }
+            } finally {
+                rejects.close();
             }
             
-            System.out.println("Imported " + rowCount + " LTL records from " + filePath);
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.println("Imported " + rowCount + " LTL records from " + filePath +
+                    " (" + rejects.getRejectedCount() + " quarantined) in " + elapsed + " ms, " +
+                    (elapsed > 0 ? rowCount * 1000L / elapsed : rowCount) + " rows/s");
+            return rowCount;
+        }
+    }
+    
+    /**
+     * Finds the WCR header row while the sheet streams past.
+     * Rows are buffered up to the deepest row where a known layout sits, so a
+     * cached layout is matched by fingerprint alone; only when that misses are
+     * the buffered rows scanned for header keywords.
+     */
+    private class WCRLayoutProbe {
+        private static final int MAX_HEADER_ROW = 20;  // Search more rows
+        
+        private final String filePath;
+        private final int probeLimit;
+        private final Deque<RowRecord> buffered = new ArrayDeque<>();
+        private volatile HeaderLayoutCache.HeaderLayout layout;
+        private boolean exhausted;
+        
+        WCRLayoutProbe(String filePath) {
+            this.filePath = filePath;
+            int deepestKnown = -1;
+            for (Integer rowIndex : layoutCache.getKnownHeaderRows()) {
+                deepestKnown = Math.max(deepestKnown, rowIndex);
+            }
+            this.probeLimit = Math.min(deepestKnown, MAX_HEADER_ROW);
+        }
+        
+        /**
+         * Offer the next streamed row; returns the data rows it releases
+         */
+        List<RowRecord> offer(RowRecord record) {
+            if (layout != null) {
+                return Collections.singletonList(record);
+            }
+            
+            int rowIndex = record.getRowNumber();
+            if (layoutCache.getKnownHeaderRows().contains(rowIndex)) {
+                HeaderLayoutCache.HeaderLayout cached =
+                        layoutCache.lookup(rowIndex, HeaderLayoutCache.fingerprint(record.getCells()));
+                if (cached != null) {
+                    layout = cached;
+                    buffered.clear();
+                    return Collections.emptyList();
+                }
+            }
+            
+            buffered.add(record);
+            if (rowIndex < probeLimit) {
+                return Collections.emptyList();  // a known header may still follow
+            }
+            return scan();
+        }
+        
+        /**
+         * End of sheet: scan whatever is still buffered
+         */
+        List<RowRecord> finish() {
+            return layout == null ? scan() : Collections.<RowRecord>emptyList();
+        }
+        
+        private List<RowRecord> scan() {
+            while (!buffered.isEmpty()) {
+                RowRecord candidate = buffered.poll();
+                if (candidate.getRowNumber() > MAX_HEADER_ROW) {
+                    exhausted = true;
+                    break;
+                }
+                if (containsWCRHeaders(candidate)) {
+                    layout = layoutCache.register(candidate.getRowNumber(),
+                            HeaderLayoutCache.fingerprint(candidate.getCells()), mapWCRColumns(candidate));
+                    System.out.println("New WCR header layout " + layout.getLayoutId() + " in " + filePath +
+                            " at row " + candidate.getRowNumber() + ", column mapping: " + layout.getColumnMap());
+                    List<RowRecord> released = new ArrayList<>(buffered);
+                    buffered.clear();
+                    return released;
+                }
+            }
+            return Collections.emptyList();
         }
+        
+        boolean isExhausted() { return exhausted; }
+        HeaderLayoutCache.HeaderLayout getLayout() { return layout; }
     }
     
     /**
      * Check if row contains WCR headers
      */
-    private boolean containsWCRHeaders(Row row) {
+    private boolean containsWCRHeaders(RowRecord row) {
         String[] expectedHeaders = {"facility", "bank", "limit", "utilized", "currency", "type"};
+        Collection<String> cells = row.getCells().values();
         int matches = 0;
         for (String header : expectedHeaders) {
-            for (Cell cell : row) {
-                if (cell.getCellType() == CellType.STRING && 
-                    cell.getStringCellValue().toLowerCase().contains(header)) {
+            for (String cell : cells) {
+                if (cell.toLowerCase().contains(header)) {
                     matches++;
                     break;
                 }
@@ -227,25 +629,23 @@ public class ExcelImportService {
     /**
      * Map WCR column names to indices
      */
-    private Map<String, Integer> mapWCRColumns(Row headerRow) {
+    private Map<String, Integer> mapWCRColumns(RowRecord headerRow) {
         Map<String, Integer> columnMap = new HashMap<>();
         
-        for (Cell cell : headerRow) {
-            if (cell.getCellType() == CellType.STRING) {
-                String header = cell.getStringCellValue().toLowerCase();
-                int colIndex = cell.getColumnIndex();
-                
-                if (header.contains("facility")) columnMap.put("facility", colIndex);
-                else if (header.contains("bank")) columnMap.put("bank", colIndex);
-                else if (header.contains("limit")) columnMap.put("limit", colIndex);
-                else if (header.contains("utilized")) columnMap.put("utilized", colIndex);
-                else if (header.contains("undrawn")) columnMap.put("undrawn", colIndex);
-                else if (header.contains("currency")) columnMap.put("currency", colIndex);
-                else if (header.contains("type")) columnMap.put("type", colIndex);
-                else if (header.contains("utilization")) columnMap.put("utilization", colIndex);
-                else if (header.contains("maturity")) columnMap.put("maturity", colIndex);
-                else if (header.contains("company")) columnMap.put("company", colIndex);
-            }
+        for (Map.Entry<Integer, String> cell : headerRow.getCells().entrySet()) {
+            String header = cell.getValue().toLowerCase();
+            int colIndex = cell.getKey();
+            
+            if (header.contains("facility")) columnMap.put("facility", colIndex);
+            else if (header.contains("bank")) columnMap.put("bank", colIndex);
+            else if (header.contains("limit")) columnMap.put("limit", colIndex);
+            else if (header.contains("utilized")) columnMap.put("utilized", colIndex);
+            else if (header.contains("undrawn")) columnMap.put("undrawn", colIndex);
+            else if (header.contains("currency")) columnMap.put("currency", colIndex);
+            else if (header.contains("type")) columnMap.put("type", colIndex);
+            else if (header.contains("utilization")) columnMap.put("utilization", colIndex);
+            else if (header.contains("maturity")) columnMap.put("maturity", colIndex);
+            else if (header.contains("company")) columnMap.put("company", colIndex);
         }
         
         return columnMap;
@@ -278,28 +678,21 @@ public class ExcelImportService {
     /**
      * Create WCR entity from Excel row
      */
-    private WorkingCapitalFacility createWCRFromRow(Row row, Map<String, Integer> columnMap, String filePath) {
+    private WorkingCapitalFacility createWCRFromRow(RowRecord row, Map<String, Integer> columnMap, LocalDate reportDate) {
         WorkingCapitalFacility facility = new WorkingCapitalFacility();
         
-        // Extract facility name
-        String facilityName = getCellValueAsString(row, columnMap.get("facility"));
-        if (facilityName == null || facilityName.trim().isEmpty()) {
-            facilityName = "WCR_" + System.currentTimeMillis();
-        }
-        facility.setFacilityName(facilityName);
-        
         // Extract bank name
-        String bankName = getCellValueAsString(row, columnMap.get("bank"));
+        String bankName = row.getValue(columnMap.get("bank"));
         facility.setBankName(bankName != null ? bankName : "Unknown Bank");
         
         // Extract amounts
-        BigDecimal limitAmount = getCellValueAsBigDecimal(row, columnMap.get("limit"));
+        BigDecimal limitAmount = parseAmount(row.getValue(columnMap.get("limit")));
         facility.setLimitAmount(limitAmount);
         
-        BigDecimal utilizedAmount = getCellValueAsBigDecimal(row, columnMap.get("utilized"));
+        BigDecimal utilizedAmount = parseAmount(row.getValue(columnMap.get("utilized")));
         facility.setUtilizedAmount(utilizedAmount);
         
-        BigDecimal undrawnAmount = getCellValueAsBigDecimal(row, columnMap.get("undrawn"));
+        BigDecimal undrawnAmount = parseAmount(row.getValue(columnMap.get("undrawn")));
         facility.setUndrawnAmount(undrawnAmount);
         
         // Calculate utilization percentage
@@ -310,30 +703,61 @@ public class ExcelImportService {
         }
         
         // Extract currency
-        String currency = getCellValueAsString(row, columnMap.get("currency"));
+        String currency = row.getValue(columnMap.get("currency"));
         facility.setCurrency(currency != null ? currency : "EUR");
         
         // Extract facility type
-        String facilityType = getCellValueAsString(row, columnMap.get("type"));
+        String facilityType = row.getValue(columnMap.get("type"));
         facility.setFacilityType(facilityType != null ? facilityType : "RC");
         
-        // Set report date based on file name
-        if (filePath.contains("2024")) {
-            facility.setReportDate(LocalDate.of(2024, 7, 16));
-        } else if (filePath.contains("2023")) {
-            facility.setReportDate(LocalDate.of(2023, 12, 27));
+        // Extract facility name (derived from the natural key when the sheet has none)
+        String facilityName = row.getValue(columnMap.get("facility"));
+        if (facilityName == null || facilityName.trim().isEmpty()) {
+            facilityName = facility.getBankName() + " " + facility.getFacilityType() + " " + facility.getCurrency();
         }
+        facility.setFacilityName(facilityName);
         
-        // Get or create company
-        String companyName = getCellValueAsString(row, columnMap.get("company"));
+        facility.setReportDate(reportDate);
+        
+        // Company stays unresolved here; the writer stage resolves it on the import thread
+        String companyName = row.getValue(columnMap.get("company"));
         if (companyName == null || companyName.trim().isEmpty()) {
             companyName = "Kronospan Group";
         }
-        facility.setCompany(getOrCreateCompany(companyName));
+        facility.setCompany(new GroupCompany(companyName, null));
         
         return facility;
     }
     
+    /**
+     * Key the snapshot table is unique on (the report date is the file's own)
+     */
+    private static List<Object> naturalKey(WorkingCapitalFacility facility) {
+        return Arrays.asList(facility.getCompany().getId(), facility.getBankName(),
+                facility.getFacilityType(), facility.getCurrency());
+    }
+    
+    private static IllegalArgumentException duplicateOf(RowRecord kept) {
+        // Row as Excel numbers it, like the quarantine's source_row
+        return new IllegalArgumentException("Duplicate facility (company, bank, type, currency) of row " + (kept.getRowNumber() + 1));
+    }
+    
+    /**
+     * Snapshot date from a WCR file name such as WCR_16_07_2024.xlsx
+     */
+    private LocalDate parseReportDate(String filePath) {
+        Matcher matcher = REPORT_DATE_PATTERN.matcher(filePath);
+        if (!matcher.find()) return null;
+        
+        try {
+            return LocalDate.of(Integer.parseInt(matcher.group(3)),
+                    Integer.parseInt(matcher.group(2)),
+                    Integer.parseInt(matcher.group(1)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+    
     /**
      * Create LTL entity from Excel row
      */
@@ -377,7 +801,7 @@ public class ExcelImportService {
             return companyCache.get(companyName);
         }
         
-        Optional<GroupCompany> existing = companyRepository.findByCompanyNameContaining(companyName)
+        Optional<GroupCompany> existing = companyRepository.findByCompanyNameIgnoreCaseOrderById(companyName)
                 .stream().findFirst();
         
         if (existing.isPresent()) {
@@ -392,7 +816,9 @@ public class ExcelImportService {
             company.setCountry("Romania");
         }
         
-        company = companyRepository.save(company);
+        // Flushed right away: the JDBC facility and loan writers reference the id
+        // through a foreign key, and a pooled sequence id alone is not a row yet
+        company = companyRepository.saveAndFlush(company);
         companyCache.put(companyName, company);
         return company;
     }
@@ -443,6 +869,29 @@ public class ExcelImportService {
         }
     }
     
+    private BigDecimal parseAmount(String value) {
+        if (value == null) return null;
+        value = value.replaceAll("[^0-9.-]", ""); // Remove non-numeric characters
+        try {
+            return value.isEmpty() ? null : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Display text of every cell up to the last one, for quarantine records
+     */
+    private String[] rawCellValues(Row row) {
+        DataFormatter formatter = new DataFormatter();
+        String[] values = new String[Math.max(row.getLastCellNum(), 0)];
+        for (int i = 0; i < values.length; i++) {
+            Cell cell = row.getCell(i);
+            values[i] = cell != null ? formatter.formatCellValue(cell) : null;
+        }
+        return values;
+    }
+    
     private boolean isEmptyRow(Row row) {
         for (Cell cell : row) {
             if (cell != null && cell.getCellType() != CellType.BLANK) {
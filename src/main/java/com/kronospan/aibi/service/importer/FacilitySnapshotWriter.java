@@ -0,0 +1,111 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Facility Snapshot Writer
+ *
+ * Upserts WCR facilities on their natural key (company, bank, facility type,
+ * currency, report date) with batched MERGE statements, so re-importing a
+ * snapshot only touches rows whose values actually changed. The summary
+ * groups a changed batch belongs to are refreshed in the same transaction.
+ */
+@Component
+public class FacilitySnapshotWriter {
+
+    private static final String MERGE_SQL =
+        "MERGE INTO working_capital_facilities t " +
+        "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(3)), " +
+        "CAST(? AS DATE), CAST(? AS VARCHAR(255)), CAST(? AS NUMERIC(15,2)), CAST(? AS NUMERIC(15,2)), " +
+        "CAST(? AS NUMERIC(15,2)), CAST(? AS NUMERIC(5,2)), CAST(? AS DATE), CAST(? AS NUMERIC(6,4)))) " +
+        "AS s(id, company_id, bank_name, facility_type, currency, report_date, facility_name, limit_amount, " +
+        "utilized_amount, undrawn_amount, utilization_percentage, maturity_date, interest_rate) " +
+        "ON (t.company_id = s.company_id AND t.bank_name = s.bank_name AND t.facility_type = s.facility_type " +
+        "AND t.currency = s.currency AND t.report_date = s.report_date) " +
+        "WHEN MATCHED AND (t.facility_name IS DISTINCT FROM s.facility_name " +
+        "OR t.limit_amount IS DISTINCT FROM s.limit_amount " +
+        "OR t.utilized_amount IS DISTINCT FROM s.utilized_amount " +
+        "OR t.undrawn_amount IS DISTINCT FROM s.undrawn_amount " +
+        "OR t.utilization_percentage IS DISTINCT FROM s.utilization_percentage " +
+        "OR t.maturity_date IS DISTINCT FROM s.maturity_date " +
+        "OR t.interest_rate IS DISTINCT FROM s.interest_rate) THEN UPDATE SET " +
+        "facility_name = s.facility_name, limit_amount = s.limit_amount, utilized_amount = s.utilized_amount, " +
+        "undrawn_amount = s.undrawn_amount, utilization_percentage = s.utilization_percentage, " +
+        "maturity_date = s.maturity_date, interest_rate = s.interest_rate " +
+        "WHEN NOT MATCHED THEN INSERT (id, company_id, bank_name, facility_type, currency, report_date, facility_name, " +
+        "limit_amount, utilized_amount, undrawn_amount, utilization_percentage, maturity_date, interest_rate) " +
+        "VALUES (s.id, s.company_id, s.bank_name, s.facility_type, s.currency, s.report_date, s.facility_name, " +
+        "s.limit_amount, s.utilized_amount, s.undrawn_amount, s.utilization_percentage, s.maturity_date, s.interest_rate)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIdAllocator idAllocator;
+
+    @Autowired
+    private FacilitySummaryTables summaryTables;
+
+    /**
+     * Merge a batch of facilities into the snapshot table
+     *
+     * @return number of rows inserted or changed
+     */
+    public int mergeBatch(List<WorkingCapitalFacility> facilities) {
+        if (facilities.isEmpty()) return 0;
+
+        // Ids reserved for rows that turn out to be updates are simply skipped
+        long[] ids = idAllocator.allocate("working_capital_facilities_seq", facilities.size());
+        List<Object[]> batchArgs = new ArrayList<>(facilities.size());
+        for (int i = 0; i < facilities.size(); i++) {
+            WorkingCapitalFacility facility = facilities.get(i);
+            batchArgs.add(new Object[]{
+                ids[i],
+                companyId(facility),
+                facility.getBankName(),
+                facility.getFacilityType(),
+                facility.getCurrency(),
+                toSqlDate(facility.getReportDate()),
+                facility.getFacilityName(),
+                facility.getLimitAmount(),
+                facility.getUtilizedAmount(),
+                facility.getUndrawnAmount(),
+                facility.getUtilizationPercentage(),
+                toSqlDate(facility.getMaturityDate()),
+                facility.getInterestRate()
+            });
+        }
+
+        int changed = 0;
+        for (int count : jdbcTemplate.batchUpdate(MERGE_SQL, batchArgs)) {
+            if (count > 0) changed += count;
+        }
+        if (changed > 0) {
+            summaryTables.refreshGroups(facilities);
+        }
+        return changed;
+    }
+
+    /**
+     * Id of the facility's saved company; without one the natural key could
+     * never match, and every re-import would add the row again
+     */
+    static Long companyId(WorkingCapitalFacility facility) {
+        if (facility.getCompany() == null || facility.getCompany().getId() == null) {
+            throw new IllegalArgumentException("Facility " + facility.getFacilityName() + " of " + facility.getBankName() +
+                    " has no saved company");
+        }
+        return facility.getCompany().getId();
+    }
+
+    private Date toSqlDate(java.time.LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
@@ -0,0 +1,206 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Facility Summary Tables
+ *
+ * Keeps wcf_summary_bank (report date, bank, currency) and wcf_summary_company
+ * (report date, company) in step with working_capital_facilities, inside the
+ * same write as the facilities themselves:
+ *
+ * - merged batches re-aggregate only the summary groups the batch touched,
+ *   since an update can lower a sum or the group maximum
+ * - bulk inserts into a cleared snapshot add their totals as deltas
+ * - CSV backfills, which load arbitrary report dates inside the database,
+ *   re-aggregate the report dates they loaded
+ */
+@Component
+public class FacilitySummaryTables {
+
+    private static final String BANK_GROUP = "report_date = ? AND bank_name = ? AND currency IS NOT DISTINCT FROM ?";
+    private static final String COMPANY_GROUP = "report_date = ? AND company_id IS NOT DISTINCT FROM ?";
+
+    private static final String BANK_AGGREGATE =
+        "INSERT INTO wcf_summary_bank (report_date, bank_name, currency, facility_count, total_limit, limit_count, " +
+        "total_utilized, max_limit, utilization_sum, utilization_count) " +
+        "SELECT report_date, bank_name, currency, COUNT(*), COALESCE(SUM(limit_amount), 0), COUNT(limit_amount), " +
+        "COALESCE(SUM(utilized_amount), 0), MAX(limit_amount), " +
+        "COALESCE(SUM(utilization_percentage), 0), COUNT(utilization_percentage) " +
+        "FROM working_capital_facilities ";
+
+    private static final String COMPANY_AGGREGATE =
+        "INSERT INTO wcf_summary_company (report_date, company_id, facility_count, total_limit, limit_count, " +
+        "total_utilized, utilization_sum, utilization_count) " +
+        "SELECT report_date, company_id, COUNT(*), COALESCE(SUM(limit_amount), 0), COUNT(limit_amount), " +
+        "COALESCE(SUM(utilized_amount), 0), COALESCE(SUM(utilization_percentage), 0), COUNT(utilization_percentage) " +
+        "FROM working_capital_facilities ";
+
+    private static final String BANK_DELTA =
+        "MERGE INTO wcf_summary_bank t " +
+        "USING (VALUES (CAST(? AS DATE), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(3)), CAST(? AS BIGINT), " +
+        "CAST(? AS NUMERIC(20,2)), CAST(? AS BIGINT), CAST(? AS NUMERIC(20,2)), CAST(? AS NUMERIC(15,2)), " +
+        "CAST(? AS NUMERIC(20,2)), CAST(? AS BIGINT))) " +
+        "AS s(report_date, bank_name, currency, facility_count, total_limit, limit_count, total_utilized, max_limit, " +
+        "utilization_sum, utilization_count) " +
+        "ON (t.report_date = s.report_date AND t.bank_name = s.bank_name AND t.currency IS NOT DISTINCT FROM s.currency) " +
+        "WHEN MATCHED THEN UPDATE SET facility_count = t.facility_count + s.facility_count, " +
+        "total_limit = t.total_limit + s.total_limit, limit_count = t.limit_count + s.limit_count, " +
+        "total_utilized = t.total_utilized + s.total_utilized, max_limit = GREATEST(t.max_limit, s.max_limit), " +
+        "utilization_sum = t.utilization_sum + s.utilization_sum, " +
+        "utilization_count = t.utilization_count + s.utilization_count " +
+        "WHEN NOT MATCHED THEN INSERT (report_date, bank_name, currency, facility_count, total_limit, limit_count, " +
+        "total_utilized, max_limit, utilization_sum, utilization_count) " +
+        "VALUES (s.report_date, s.bank_name, s.currency, s.facility_count, s.total_limit, s.limit_count, " +
+        "s.total_utilized, s.max_limit, s.utilization_sum, s.utilization_count)";
+
+    private static final String COMPANY_DELTA =
+        "MERGE INTO wcf_summary_company t " +
+        "USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS NUMERIC(20,2)), " +
+        "CAST(? AS BIGINT), CAST(? AS NUMERIC(20,2)), CAST(? AS NUMERIC(20,2)), CAST(? AS BIGINT))) " +
+        "AS s(report_date, company_id, facility_count, total_limit, limit_count, total_utilized, " +
+        "utilization_sum, utilization_count) " +
+        "ON (t.report_date = s.report_date AND t.company_id IS NOT DISTINCT FROM s.company_id) " +
+        "WHEN MATCHED THEN UPDATE SET facility_count = t.facility_count + s.facility_count, " +
+        "total_limit = t.total_limit + s.total_limit, limit_count = t.limit_count + s.limit_count, " +
+        "total_utilized = t.total_utilized + s.total_utilized, " +
+        "utilization_sum = t.utilization_sum + s.utilization_sum, " +
+        "utilization_count = t.utilization_count + s.utilization_count " +
+        "WHEN NOT MATCHED THEN INSERT (report_date, company_id, facility_count, total_limit, limit_count, " +
+        "total_utilized, utilization_sum, utilization_count) " +
+        "VALUES (s.report_date, s.company_id, s.facility_count, s.total_limit, s.limit_count, " +
+        "s.total_utilized, s.utilization_sum, s.utilization_count)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Re-aggregate the bank and company groups of a merged batch from the facility table
+     */
+    public void refreshGroups(List<WorkingCapitalFacility> facilities) {
+        Set<List<Object>> bankGroups = new LinkedHashSet<>();
+        Set<List<Object>> companyGroups = new LinkedHashSet<>();
+        for (WorkingCapitalFacility facility : facilities) {
+            Date reportDate = Date.valueOf(facility.getReportDate());
+            bankGroups.add(Arrays.asList(reportDate, facility.getBankName(), facility.getCurrency()));
+            companyGroups.add(Arrays.asList(reportDate, companyId(facility)));
+        }
+
+        List<Object[]> bankArgs = toArgs(bankGroups);
+        jdbcTemplate.batchUpdate("DELETE FROM wcf_summary_bank WHERE " + BANK_GROUP, bankArgs);
+        jdbcTemplate.batchUpdate(BANK_AGGREGATE + "WHERE " + BANK_GROUP + " GROUP BY report_date, bank_name, currency", bankArgs);
+
+        List<Object[]> companyArgs = toArgs(companyGroups);
+        jdbcTemplate.batchUpdate("DELETE FROM wcf_summary_company WHERE " + COMPANY_GROUP, companyArgs);
+        jdbcTemplate.batchUpdate(COMPANY_AGGREGATE + "WHERE " + COMPANY_GROUP + " GROUP BY report_date, company_id", companyArgs);
+    }
+
+    /**
+     * Add the totals of freshly inserted facilities to their groups
+     */
+    public void addInserted(List<WorkingCapitalFacility> facilities) {
+        Map<List<Object>, Totals> bankDeltas = new LinkedHashMap<>();
+        Map<List<Object>, Totals> companyDeltas = new LinkedHashMap<>();
+        for (WorkingCapitalFacility facility : facilities) {
+            Date reportDate = Date.valueOf(facility.getReportDate());
+            bankDeltas.computeIfAbsent(Arrays.asList(reportDate, facility.getBankName(), facility.getCurrency()),
+                    key -> new Totals()).add(facility);
+            companyDeltas.computeIfAbsent(Arrays.asList(reportDate, companyId(facility)),
+                    key -> new Totals()).add(facility);
+        }
+
+        List<Object[]> bankArgs = new ArrayList<>(bankDeltas.size());
+        for (Map.Entry<List<Object>, Totals> delta : bankDeltas.entrySet()) {
+            Totals totals = delta.getValue();
+            bankArgs.add(new Object[]{
+                delta.getKey().get(0), delta.getKey().get(1), delta.getKey().get(2),
+                totals.facilityCount, totals.totalLimit, totals.limitCount, totals.totalUtilized, totals.maxLimit,
+                totals.utilizationSum, totals.utilizationCount
+            });
+        }
+        jdbcTemplate.batchUpdate(BANK_DELTA, bankArgs);
+
+        List<Object[]> companyArgs = new ArrayList<>(companyDeltas.size());
+        for (Map.Entry<List<Object>, Totals> delta : companyDeltas.entrySet()) {
+            Totals totals = delta.getValue();
+            companyArgs.add(new Object[]{
+                delta.getKey().get(0), delta.getKey().get(1),
+                totals.facilityCount, totals.totalLimit, totals.limitCount, totals.totalUtilized,
+                totals.utilizationSum, totals.utilizationCount
+            });
+        }
+        jdbcTemplate.batchUpdate(COMPANY_DELTA, companyArgs);
+    }
+
+    /**
+     * Drop the summaries of a report date whose facilities were deleted
+     */
+    public void clearReportDate(LocalDate reportDate) {
+        jdbcTemplate.update("DELETE FROM wcf_summary_bank WHERE report_date = ?", Date.valueOf(reportDate));
+        jdbcTemplate.update("DELETE FROM wcf_summary_company WHERE report_date = ?", Date.valueOf(reportDate));
+    }
+
+    /**
+     * Re-aggregate whole report dates from the facility table
+     */
+    public void rebuildReportDates(Collection<LocalDate> reportDates) {
+        List<Object[]> args = new ArrayList<>(reportDates.size());
+        for (LocalDate reportDate : reportDates) {
+            args.add(new Object[]{Date.valueOf(reportDate)});
+        }
+        if (args.isEmpty()) return;
+        jdbcTemplate.batchUpdate("DELETE FROM wcf_summary_bank WHERE report_date = ?", args);
+        jdbcTemplate.batchUpdate(BANK_AGGREGATE + "WHERE report_date = ? GROUP BY report_date, bank_name, currency", args);
+        jdbcTemplate.batchUpdate("DELETE FROM wcf_summary_company WHERE report_date = ?", args);
+        jdbcTemplate.batchUpdate(COMPANY_AGGREGATE + "WHERE report_date = ? GROUP BY report_date, company_id", args);
+    }
+
+    private static Long companyId(WorkingCapitalFacility facility) {
+        return facility.getCompany() != null ? facility.getCompany().getId() : null;
+    }
+
+    private static List<Object[]> toArgs(Set<List<Object>> groups) {
+        List<Object[]> args = new ArrayList<>(groups.size());
+        for (List<Object> group : groups) {
+            args.add(group.toArray());
+        }
+        return args;
+    }
+
+    /**
+     * Running totals of one group, mirroring the SQL aggregates (NULLs skipped)
+     */
+    private static final class Totals {
+        long facilityCount;
+        BigDecimal totalLimit = BigDecimal.ZERO;
+        long limitCount;
+        BigDecimal totalUtilized = BigDecimal.ZERO;
+        BigDecimal maxLimit;
+        BigDecimal utilizationSum = BigDecimal.ZERO;
+        long utilizationCount;
+
+        void add(WorkingCapitalFacility facility) {
+            facilityCount++;
+            if (facility.getLimitAmount() != null) {
+                totalLimit = totalLimit.add(facility.getLimitAmount());
+                limitCount++;
+                maxLimit = maxLimit == null ? facility.getLimitAmount() : maxLimit.max(facility.getLimitAmount());
+            }
+            if (facility.getUtilizedAmount() != null) {
+                totalUtilized = totalUtilized.add(facility.getUtilizedAmount());
+            }
+            if (facility.getUtilizationPercentage() != null) {
+                utilizationSum = utilizationSum.add(facility.getUtilizationPercentage());
+                utilizationCount++;
+            }
+        }
+    }
+}
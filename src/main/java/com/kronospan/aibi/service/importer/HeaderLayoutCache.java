@@ -0,0 +1,110 @@
+package com.kronospan.aibi.service.importer;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Header Layout Cache
+ *
+ * Treasury spreadsheets keep the same header layout between snapshots, so the
+ * resolved column map is remembered under a fingerprint of the header row's
+ * normalized text. Subsequent imports only probe the rows where a known header
+ * was found instead of scanning the top of every sheet cell by cell.
+ */
+@Component
+public class HeaderLayoutCache {
+
+    private final Map<String, HeaderLayout> layouts = new ConcurrentHashMap<>();
+
+    private final Set<Integer> knownHeaderRows = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Build a fingerprint from the header row's cell text keyed by column index
+     */
+    public static String fingerprint(SortedMap<Integer, String> cellText) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Map.Entry<Integer, String> cell : cellText.entrySet()) {
+            String text = normalize(cell.getValue());
+            if (text.isEmpty()) continue;
+            if (fingerprint.length() > 0) fingerprint.append('|');
+            fingerprint.append(cell.getKey()).append(':').append(text);
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Look up a cached layout whose header sits at the given row
+     */
+    public HeaderLayout lookup(int headerRowIndex, String fingerprint) {
+        HeaderLayout layout = layouts.get(key(headerRowIndex, fingerprint));
+        if (layout != null) {
+            layout.hitCount.incrementAndGet();
+        }
+        return layout;
+    }
+
+    /**
+     * Remember a newly resolved layout
+     */
+    public HeaderLayout register(int headerRowIndex, String fingerprint, Map<String, Integer> columnMap) {
+        HeaderLayout layout = new HeaderLayout(headerRowIndex, fingerprint, columnMap);
+        layouts.put(key(headerRowIndex, fingerprint), layout);
+        knownHeaderRows.add(headerRowIndex);
+        return layout;
+    }
+
+    /**
+     * Row indices at which a known header layout has been seen
+     */
+    public Set<Integer> getKnownHeaderRows() {
+        return Collections.unmodifiableSet(knownHeaderRows);
+    }
+
+    public int size() {
+        return layouts.size();
+    }
+
+    private static String key(int headerRowIndex, String fingerprint) {
+        return headerRowIndex + "#" + fingerprint;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) return "";
+        return text.toLowerCase().trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Resolved header layout: where the header is and which column holds which field
+     */
+    public static class HeaderLayout {
+        private final int headerRowIndex;
+        private final String fingerprint;
+        private final Map<String, Integer> columnMap;
+        private final AtomicLong hitCount = new AtomicLong();
+
+        HeaderLayout(int headerRowIndex, String fingerprint, Map<String, Integer> columnMap) {
+            this.headerRowIndex = headerRowIndex;
+            this.fingerprint = fingerprint;
+            this.columnMap = Collections.unmodifiableMap(new HashMap<>(columnMap));
+        }
+
+        public int getHeaderRowIndex() { return headerRowIndex; }
+        public String getFingerprint() { return fingerprint; }
+        public Map<String, Integer> getColumnMap() { return columnMap; }
+        public long getHitCount() { return hitCount.get(); }
+
+        /**
+         * Short identifier for log output
+         */
+        public String getLayoutId() {
+            return Integer.toHexString(fingerprint.hashCode());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.kronospan.aibi.service.importer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Staged Import Pipeline
+ *
+ * parser thread --[bounded queue]--> transformer workers --[bounded queue]--> batched writer
+ *
+ * The writer runs on the calling thread so it stays inside the caller's
+ * transaction, while parsing and row transformation for the next batch
+ * proceed on background threads. Full queues block the upstream stage,
+ * which keeps memory bounded regardless of file size.
+ */
+public class ImportPipeline<T> {
+
+    /**
+     * Producer of raw rows (the parser stage)
+     */
+    public interface RowSource {
+        void emit(Consumer<RowRecord> sink) throws Exception;
+    }
+
+    private static final RowRecord END_OF_ROWS = new RowRecord("", -1);
+    private static final Object WORKER_DONE = new Object();
+
+    private final String name;
+    private final int workers;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    public ImportPipeline(String name, int workers, int queueCapacity, int batchSize) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Run the pipeline to completion
+     *
+     * @param source      parser stage producing raw rows
+     * @param transformer maps a raw row to an entity; null drops the row, an exception rejects it
+     * @param onReject    called for each rejected row
+     * @param writer      receives batches of transformed rows on the calling thread
+     */
+    public PipelineStats run(RowSource source,
+                             Function<RowRecord, T> transformer,
+                             BiConsumer<RowRecord, Exception> onReject,
+                             Consumer<List<T>> writer) throws Exception {
+        PipelineStats stats = new PipelineStats(name);
+        BlockingQueue<RowRecord> rawQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> outQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long started = System.nanoTime();
+        try {
+            Future<?> parser = executor.submit(() -> {
+                long parseStart = System.nanoTime();
+                try {
+                    source.emit(record -> {
+                        stats.parsed.incrementAndGet();
+                        put(rawQueue, record, stats.parserStalls);
+                    });
+                } finally {
+                    stats.parserNanos.addAndGet(System.nanoTime() - parseStart);
+                    for (int i = 0; i < workers; i++) {
+                        put(rawQueue, END_OF_ROWS, stats.parserStalls);
+                    }
+                }
+                return null;
+            });
+
+            List<Future<?>> transformers = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                transformers.add(executor.submit(() -> {
+                    try {
+                        while (true) {
+                            RowRecord record = rawQueue.take();
+                            if (record == END_OF_ROWS) {
+                                return null;
+                            }
+                            long transformStart = System.nanoTime();
+                            T item = null;
+                            try {
+                                item = transformer.apply(record);
+                            } catch (Exception e) {
+                                stats.rejected.incrementAndGet();
+                                onReject.accept(record, e);
+                            }
+                            stats.transformerNanos.addAndGet(System.nanoTime() - transformStart);
+                            if (item != null) {
+                                stats.transformed.incrementAndGet();
+                                put(outQueue, item, stats.transformerStalls);
+                            }
+                        }
+                    } finally {
+                        put(outQueue, WORKER_DONE, stats.transformerStalls);
+                    }
+                }));
+            }
+
+            // Writer stage on the calling thread
+            List<T> batch = new ArrayList<>(batchSize);
+            int finishedWorkers = 0;
+            while (finishedWorkers < workers) {
+                Object item = outQueue.take();
+                if (item == WORKER_DONE) {
+                    finishedWorkers++;
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                T entity = (T) item;
+                batch.add(entity);
+                if (batch.size() >= batchSize) {
+                    write(writer, batch, stats);
+                }
+            }
+            write(writer, batch, stats);
+
+            // Surface transformer failures first: a dead worker pool would leave the parser blocked
+            for (Future<?> transformerTask : transformers) {
+                transformerTask.get();
+            }
+            parser.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        } finally {
+            executor.shutdownNow();
+            stats.elapsedNanos = System.nanoTime() - started;
+        }
+        return stats;
+    }
+
+    private void write(Consumer<List<T>> writer, List<T> batch, PipelineStats stats) {
+        if (batch.isEmpty()) return;
+        long writeStart = System.nanoTime();
+        writer.accept(batch);
+        stats.writerNanos.addAndGet(System.nanoTime() - writeStart);
+        stats.written.addAndGet(batch.size());
+        stats.batches.incrementAndGet();
+        batch.clear();
+    }
+
+    private static <E> void put(BlockingQueue<E> queue, E item, AtomicLong stalls) {
+        try {
+            if (!queue.offer(item)) {
+                stalls.incrementAndGet();
+                queue.put(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import pipeline interrupted", e);
+        }
+    }
+
+    /**
+     * Per-stage counters for one pipeline run
+     */
+    public static class PipelineStats {
+        private final String name;
+        private final AtomicLong parsed = new AtomicLong();
+        private final AtomicLong transformed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong parserStalls = new AtomicLong();
+        private final AtomicLong transformerStalls = new AtomicLong();
+        private final AtomicLong parserNanos = new AtomicLong();
+        private final AtomicLong transformerNanos = new AtomicLong();
+        private final AtomicLong writerNanos = new AtomicLong();
+        private volatile long elapsedNanos;
+
+        PipelineStats(String name) {
+            this.name = name;
+        }
+
+        public long getParsed() { return parsed.get(); }
+        public long getTransformed() { return transformed.get(); }
+        public long getRejected() { return rejected.get(); }
+        public long getWritten() { return written.get(); }
+        public long getBatches() { return batches.get(); }
+        public long getElapsedMs() { return elapsedNanos / 1_000_000; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pipeline", name);
+            map.put("parsed_rows", parsed.get());
+            map.put("transformed_rows", transformed.get());
+            map.put("rejected_rows", rejected.get());
+            map.put("written_rows", written.get());
+            map.put("write_batches", batches.get());
+            map.put("parser_rows_per_sec", rate(parsed.get(), parserNanos.get()));
+            map.put("transformer_rows_per_sec", rate(transformed.get() + rejected.get(), transformerNanos.get()));
+            map.put("writer_rows_per_sec", rate(written.get(), writerNanos.get()));
+            map.put("parser_backpressure_waits", parserStalls.get());
+            map.put("transformer_backpressure_waits", transformerStalls.get());
+            map.put("elapsed_ms", getElapsedMs());
+            return map;
+        }
+
+        private static long rate(long rows, long nanos) {
+            return nanos > 0 ? rows * 1_000_000_000L / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.kronospan.aibi.service.importer;
 import com.kronospan.aibi.model.Director;
 import com.kronospan.aibi.model.GroupCompany;
 import com.kronospan.aibi.model.Document;
+import com.kronospan.aibi.model.DocumentTextChunk;
 import com.kronospan.aibi.repository.DirectorRepository;
 import com.kronospan.aibi.repository.GroupCompanyRepository;
 import com.kronospan.aibi.repository.DocumentRepository;
+import com.kronospan.aibi.repository.DocumentTextChunkRepository;
+import com.kronospan.aibi.service.DataGeneration;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,7 +18,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.File;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
@@ -41,12 +46,24 @@ public class PDFImportService {
     @Autowired
     private DocumentRepository documentRepository;
     
+    @Autowired
+    private DocumentTextChunkRepository chunkRepository;
+    
+    @Autowired
+    private SourceFileRegistry sourceFiles;
+    
+    @Autowired
+    private DataGeneration dataGeneration;
+    
+    private static final int MAX_CHUNK_CHARS = 16000;  // Long pages are split into several chunks
+    
     private final Map<String, GroupCompany> companyCache = new HashMap<>();
     
     /**
      * Import all Cyprus entity PDFs
      */
     public void importCyprusEntityReports() {
+        dataGeneration.beginImport();
         try {
             System.out.println("Starting Cyprus entity reports import...");
             
@@ -62,12 +79,14 @@ public class PDFImportService {
             System.err.println("Error importing Cyprus entity reports: " + e.getMessage());
             e.printStackTrace();
         }
+        dataGeneration.advanceAfterImport();
     }
     
     /**
      * Import financial statement PDFs
      */
     public void importFinancialStatements() {
+        dataGeneration.beginImport();
         try {
             System.out.println("Starting financial statements import...");
             
@@ -89,6 +108,7 @@ public class PDFImportService {
             System.err.println("Error importing financial statements: " + e.getMessage());
             e.printStackTrace();
         }
+        dataGeneration.advanceAfterImport();
     }
     
     /**
@@ -101,11 +121,16 @@ public class PDFImportService {
                 System.out.println("PDF file not found: " + filePath);
                 return;
             }
+            if (sourceFiles.isUnchanged(filePath)) {
+                System.out.println("Skipping unchanged file: " + filePath);
+                return;
+            }
             
             System.out.println("Processing PDF file: " + filePath);
             
-            // Extract text from PDF
-            String extractedText = extractTextFromPDF(pdfFile);
+            // Extract text from PDF, page by page
+            List<String> pages = extractPagesFromPDF(pdfFile);
+            String extractedText = String.join("", pages);
             
             // Create document entity
             Document document = new Document();
@@ -114,13 +139,15 @@ public class PDFImportService {
             document.setFilePath(filePath);
             document.setFileSize(pdfFile.length());
             document.setContentType("application/pdf");
-            document.setExtractedText(extractedText);
+            document.setPageCount(pages.size());
+            document.setTextLength((long) extractedText.length());
             document.setDocumentCategory(category);
             document.setUploadDate(LocalDateTime.now());
             document.setLastProcessed(LocalDateTime.now());
             document.setProcessingStatus("PROCESSED");
             
             documentRepository.save(document);
+            saveTextChunks(document, pages);
             
             // Process entity-specific content
             if (category.equals("Cyprus Entity Report")) {
@@ -129,6 +156,7 @@ public class PDFImportService {
                 processFinancialStatementContent(extractedText, document);
             }
             
+            sourceFiles.record("PDF", filePath, pages.size());
             System.out.println("Successfully processed: " + pdfFile.getName());
             
         } catch (Exception e) {
@@ -137,13 +165,35 @@ public class PDFImportService {
     }
     
     /**
-     * Extract text from PDF using Apache PDFBox
+     * Extract text from PDF using Apache PDFBox, one string per page
      */
-    private String extractTextFromPDF(File pdfFile) throws Exception {
+    private List<String> extractPagesFromPDF(File pdfFile) throws Exception {
         try (PDDocument document = PDDocument.load(pdfFile)) {
             PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+            List<String> pages = new ArrayList<>(document.getNumberOfPages());
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
+            }
+            return pages;
+        }
+    }
+    
+    /**
+     * Store the extracted text in document_text_chunks, at most MAX_CHUNK_CHARS per chunk
+     */
+    private void saveTextChunks(Document document, List<String> pages) {
+        List<DocumentTextChunk> chunks = new ArrayList<>();
+        int chunkIndex = 0;
+        for (int page = 0; page < pages.size(); page++) {
+            String text = pages.get(page);
+            for (int start = 0; start < text.length(); start += MAX_CHUNK_CHARS) {
+                String part = text.substring(start, Math.min(start + MAX_CHUNK_CHARS, text.length()));
+                chunks.add(new DocumentTextChunk(document, chunkIndex++, page + 1, part));
+            }
         }
+        chunkRepository.saveAll(chunks);
     }
     
     /**
@@ -270,7 +320,7 @@ public class PDFImportService {
         }
         
         // Try to find existing company
-        Optional<GroupCompany> existing = companyRepository.findByCompanyNameContaining(companyName)
+        Optional<GroupCompany> existing = companyRepository.findByCompanyNameIgnoreCaseOrderById(companyName)
                 .stream().findFirst();
         
         if (existing.isPresent()) {
@@ -0,0 +1,179 @@
+package com.kronospan.aibi.service.importer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row Quarantine
+ *
+ * Collects rows rejected during an import into the import_quarantine table.
+ * Rejections are written in JDBC batches in their own transaction, so they are
+ * kept even if the import itself rolls back; opening a session for a file
+ * first removes the rejections of its previous attempt, so a retried file is
+ * not quarantined twice. Rows are stored with the 1-based row number Excel
+ * shows. Only the first few rejections per file are logged; the rest are
+ * reported in one summary when the file is done.
+ */
+@Component
+public class RowQuarantine {
+
+    private static final String DELETE_SQL = "DELETE FROM import_quarantine WHERE source_file = ?";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO import_quarantine (id, import_type, source_file, sheet_name, source_row, raw_values, reason, quarantined_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_RAW_VALUES_LENGTH = 4000;
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SequenceIdAllocator idAllocator;
+
+    @Value("${kronospan.ai.import.batch-size:100}")
+    private int batchSize;
+
+    @Value("${kronospan.ai.import.max-logged-rejections:5}")
+    private int maxLoggedRejections;
+
+    /**
+     * Open a quarantine session for one source file, replacing the rejections
+     * recorded for it by an earlier import
+     */
+    public Session open(String importType, String sourceFile) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Integer removed = transaction.execute(status -> jdbcTemplate.update(DELETE_SQL, sourceFile));
+        if (removed != null && removed > 0) {
+            System.out.println("Cleared " + removed + " quarantined rows of an earlier import of " + sourceFile);
+        }
+        return new Session(importType, sourceFile);
+    }
+
+    public class Session {
+        private final String importType;
+        private final String sourceFile;
+        private final List<Object[]> pending = new ArrayList<>();
+        private final Map<String, AtomicLong> reasonCounts = new ConcurrentHashMap<>();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Session(String importType, String sourceFile) {
+            this.importType = importType;
+            this.sourceFile = sourceFile;
+        }
+
+        /**
+         * Quarantine a streamed row
+         */
+        public void reject(RowRecord row, Exception cause) {
+            reject(row.getSheetName(), row.getRowNumber(), row.getValues(), cause);
+        }
+
+        /**
+         * Quarantine a row given by its 0-based sheet index (as POI and the
+         * streaming parser number rows); safe to call from several transformer threads
+         */
+        public void reject(String sheetName, int rowIndex, String[] rawValues, Exception cause) {
+            int rowNumber = rowIndex + 1;
+            String reason = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            long count = rejected.incrementAndGet();
+            reasonCounts.computeIfAbsent(reason, key -> new AtomicLong()).incrementAndGet();
+
+            if (count <= maxLoggedRejections) {
+                System.err.println("Quarantined " + importType + " row " + rowNumber + " of " + sourceFile + ": " + reason);
+            } else if (count == maxLoggedRejections + 1) {
+                System.err.println("Further rejected rows of " + sourceFile + " are quarantined without logging");
+            }
+
+            List<Object[]> batch = null;
+            synchronized (pending) {
+                pending.add(new Object[]{
+                    null, importType, sourceFile, sheetName, rowNumber,
+                    truncate(String.join(" | ", nullsAsBlank(rawValues)), MAX_RAW_VALUES_LENGTH),
+                    truncate(reason, MAX_REASON_LENGTH),
+                    Timestamp.valueOf(LocalDateTime.now())
+                });
+                if (pending.size() >= batchSize) {
+                    batch = new ArrayList<>(pending);
+                    pending.clear();
+                }
+            }
+            if (batch != null) {
+                write(batch);
+            }
+        }
+
+        /**
+         * Write any remaining rejections and print the per-file summary
+         */
+        public Map<String, Object> close() {
+            List<Object[]> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("source_file", sourceFile);
+            summary.put("quarantined_rows", rejected.get());
+            Map<String, Long> reasons = new LinkedHashMap<>();
+            for (Map.Entry<String, AtomicLong> entry : reasonCounts.entrySet()) {
+                reasons.put(entry.getKey(), entry.getValue().get());
+            }
+            summary.put("reasons", reasons);
+
+            if (rejected.get() > 0) {
+                System.out.println("Quarantined " + rejected.get() + " " + importType + " rows from " + sourceFile + ": " + reasons);
+            }
+            return summary;
+        }
+
+        public long getRejectedCount() {
+            return rejected.get();
+        }
+    }
+
+    private void write(List<Object[]> batch) {
+        long[] ids = idAllocator.allocate("import_quarantine_seq", batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i)[0] = ids[i];
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+    }
+
+    private static List<String> nullsAsBlank(String[] values) {
+        List<String> result = new ArrayList<>(values.length);
+        for (String value : values) {
+            result.add(value != null ? value : "");
+        }
+        return result;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+}
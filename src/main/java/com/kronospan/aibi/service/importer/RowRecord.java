@@ -0,0 +1,72 @@
+package com.kronospan.aibi.service.importer;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Raw spreadsheet row as emitted by the streaming parser.
+ * Holds plain cell text only, so it can be handed between import threads
+ * without touching POI objects.
+ */
+public class RowRecord {
+
+    private final String sheetName;
+    private final int rowNumber;
+    private String[] values = new String[16];
+    private int width;
+
+    public RowRecord(String sheetName, int rowNumber) {
+        this.sheetName = sheetName;
+        this.rowNumber = rowNumber;
+    }
+
+    public void setValue(int columnIndex, String value) {
+        if (columnIndex >= values.length) {
+            values = Arrays.copyOf(values, Math.max(columnIndex + 1, values.length * 2));
+        }
+        values[columnIndex] = value;
+        width = Math.max(width, columnIndex + 1);
+    }
+
+    /**
+     * Trimmed cell text, or null for a missing or blank cell
+     */
+    public String getValue(Integer columnIndex) {
+        if (columnIndex == null || columnIndex >= width) return null;
+        String value = values[columnIndex];
+        if (value == null) return null;
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Non-blank cells keyed by column index
+     */
+    public SortedMap<Integer, String> getCells() {
+        SortedMap<Integer, String> cells = new TreeMap<>();
+        for (int i = 0; i < width; i++) {
+            String value = getValue(i);
+            if (value != null) cells.put(i, value);
+        }
+        return cells;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < width; i++) {
+            if (getValue(i) != null) return false;
+        }
+        return true;
+    }
+
+    public String getSheetName() { return sheetName; }
+    public int getRowNumber() { return rowNumber; }
+    public int getWidth() { return width; }
+
+    /**
+     * Cell values in column order, blanks included, for diagnostics
+     */
+    public String[] getValues() {
+        return Arrays.copyOf(values, width);
+    }
+}
@@ -0,0 +1,87 @@
+package com.kronospan.aibi.service.importer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sequence Id Allocator
+ *
+ * Hands out entity ids to the JDBC import paths the same way Hibernate's
+ * pooled-lo optimizer does: each NEXT VALUE of a table sequence reserves a
+ * block of INCREMENT ids starting at that value, so rows written through
+ * JDBC and through JPA never collide.
+ *
+ * On startup every table sequence is moved past the highest id already in its
+ * table, which is the migration path for tables populated before their ids
+ * came from sequences.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> increments = new ConcurrentHashMap<>();
+
+    /**
+     * Reserve ids for a batch of new rows
+     *
+     * @param sequence table sequence, e.g. working_capital_facilities_seq
+     */
+    public long[] allocate(String sequence, int count) {
+        long[] ids = new long[count];
+        if (count == 0) return ids;
+
+        int increment = increments.computeIfAbsent(sequence.toUpperCase(), this::increment);
+        int blocks = (count + increment - 1) / increment;
+        List<Long> blockStarts = jdbcTemplate.queryForList(
+            "SELECT NEXT VALUE FOR " + sequence + " FROM SYSTEM_RANGE(1, ?)", Long.class, blocks);
+
+        int i = 0;
+        for (Long start : blockStarts) {
+            for (int offset = 0; offset < increment && i < count; offset++) {
+                ids[i++] = start + offset;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Restart any table sequence that would hand out ids already in use
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alignSequences() {
+        List<Map<String, Object>> sequences = jdbcTemplate.queryForList(
+            "SELECT s.SEQUENCE_NAME, s.BASE_VALUE, t.TABLE_NAME FROM INFORMATION_SCHEMA.SEQUENCES s " +
+            "JOIN INFORMATION_SCHEMA.TABLES t ON t.TABLE_SCHEMA = s.SEQUENCE_SCHEMA " +
+            "AND CONCAT(t.TABLE_NAME, '_SEQ') = s.SEQUENCE_NAME " +
+            "WHERE s.SEQUENCE_SCHEMA = SCHEMA()");
+
+        for (Map<String, Object> sequence : sequences) {
+            String name = (String) sequence.get("SEQUENCE_NAME");
+            long nextValue = ((Number) sequence.get("BASE_VALUE")).longValue();
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + sequence.get("TABLE_NAME"), Long.class);
+            if (maxId != null && maxId >= nextValue) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + name + " RESTART WITH " + (maxId + 1));
+                System.out.println("Moved sequence " + name + " from " + nextValue + " to " + (maxId + 1));
+            }
+        }
+    }
+
+    private int increment(String sequence) {
+        Long increment = jdbcTemplate.queryForObject(
+            "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_SCHEMA = SCHEMA() AND SEQUENCE_NAME = ?",
+            Long.class, sequence);
+        if (increment == null || increment < 1) {
+            throw new IllegalStateException("Sequence " + sequence + " not found");
+        }
+        return increment.intValue();
+    }
+}
@@ -0,0 +1,142 @@
+package com.kronospan.aibi.service.importer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source File Registry
+ *
+ * Remembers every Excel/PDF file that has been imported into the persistent
+ * database together with its SHA-256 content hash. Re-running an import skips
+ * files whose content has not changed, and after a restart a background check
+ * compares the files on disk with the recorded hashes instead of reloading
+ * everything.
+ */
+@Component
+public class SourceFileRegistry {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Map<String, Object> lastCheck;
+
+    /**
+     * True when the file was already imported and its content is unchanged
+     */
+    public boolean isUnchanged(String filePath) {
+        File file = new File(filePath);
+        if (!file.isFile()) return false;
+        List<String> hashes = jdbcTemplate.queryForList(
+            "SELECT content_hash FROM import_source_files WHERE file_path = ?", String.class, filePath);
+        return !hashes.isEmpty() && hashes.get(0).equals(sha256(file));
+    }
+
+    /**
+     * Record a successfully imported file
+     */
+    public void record(String importType, String filePath, long rowCount) {
+        File file = new File(filePath);
+        if (!file.isFile()) return;
+        jdbcTemplate.update(
+            "MERGE INTO import_source_files (file_path, import_type, content_hash, file_size, last_modified, row_count, imported_at) " +
+            "KEY (file_path) VALUES (?, ?, ?, ?, ?, ?, ?)",
+            filePath, importType, sha256(file), file.length(), new Timestamp(file.lastModified()), rowCount,
+            Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Re-hash every recorded file in the background after startup
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        Map<String, Object> result = verify();
+        System.out.println("Source file check: " + result.get("unchanged_count") + " unchanged, " +
+                result.get("changed") + " changed, " + result.get("missing") + " missing");
+    }
+
+    /**
+     * Compare the recorded hashes with the files currently on disk
+     */
+    public Map<String, Object> verify() {
+        long startTime = System.currentTimeMillis();
+        List<String> changed = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        int unchanged = 0;
+
+        List<Map<String, Object>> files = jdbcTemplate.queryForList(
+            "SELECT file_path, content_hash FROM import_source_files ORDER BY file_path");
+        for (Map<String, Object> recorded : files) {
+            String filePath = (String) recorded.get("FILE_PATH");
+            File file = new File(filePath);
+            if (!file.isFile()) {
+                missing.add(filePath);
+            } else if (!sha256(file).equals(recorded.get("CONTENT_HASH"))) {
+                changed.add(filePath);
+            } else {
+                unchanged++;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("files_recorded", files.size());
+        result.put("unchanged_count", unchanged);
+        result.put("changed", changed);
+        result.put("missing", missing);
+        result.put("checked_at", LocalDateTime.now().toString());
+        result.put("processing_time_ms", System.currentTimeMillis() - startTime);
+        lastCheck = result;
+        return result;
+    }
+
+    /**
+     * Result of the most recent check, or null before the first one finished
+     */
+    public Map<String, Object> getLastCheck() {
+        return lastCheck;
+    }
+
+    public List<Map<String, Object>> listFiles() {
+        return jdbcTemplate.queryForList(
+            "SELECT file_path, import_type, content_hash, file_size, last_modified, row_count, imported_at " +
+            "FROM import_source_files ORDER BY file_path");
+    }
+
+    private static String sha256(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
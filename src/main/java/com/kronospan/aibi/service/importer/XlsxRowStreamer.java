@@ -0,0 +1,111 @@
+package com.kronospan.aibi.service.importer;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.util.function.Predicate;
+
+/**
+ * Streaming XLSX reader
+ *
+ * Reads the first sheet of a workbook through the SAX event API so only the
+ * current row is held in memory, unlike XSSFWorkbook which inflates the whole
+ * sheet. Numeric cells are passed through unformatted; date cells keep their
+ * display format.
+ */
+public class XlsxRowStreamer {
+
+    /**
+     * Stream the first sheet row by row.
+     * The consumer returns false to stop reading the rest of the sheet.
+     */
+    public static void streamFirstSheet(String filePath, Predicate<RowRecord> consumer) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(filePath, PackageAccess.READ)) {
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+
+            try (InputStream sheet = sheets.next()) {
+                RowHandler handler = new RowHandler(sheets.getSheetName(), consumer);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, handler, new RawNumberFormatter(), false));
+                try {
+                    parser.parse(new InputSource(sheet));
+                } catch (StopReading e) {
+                    // consumer asked to stop early
+                } catch (SAXException e) {
+                    if (!(e.getException() instanceof StopReading)) throw e;
+                }
+            }
+        }
+    }
+
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final String sheetName;
+        private final Predicate<RowRecord> consumer;
+        private RowRecord current;
+        private int nextColumn;
+
+        RowHandler(String sheetName, Predicate<RowRecord> consumer) {
+            this.sheetName = sheetName;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            current = new RowRecord(sheetName, rowNum);
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!consumer.test(current)) {
+                throw new StopReading();
+            }
+            current = null;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            current.setValue(column, formattedValue);
+            nextColumn = column + 1;
+        }
+    }
+
+    /**
+     * Keeps numbers as raw values so amounts are not rounded by display formats
+     */
+    private static class RawNumberFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+            }
+            return NumberToTextConverter.toText(value);
+        }
+    }
+
+    private static class StopReading extends RuntimeException {
+        StopReading() {
+            super(null, null, false, false);
+        }
+    }
+}
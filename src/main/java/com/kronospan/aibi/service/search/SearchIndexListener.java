@@ -0,0 +1,56 @@
+package com.kronospan.aibi.service.search;
+
+import com.kronospan.aibi.model.Communication;
+import com.kronospan.aibi.model.Director;
+import com.kronospan.aibi.model.DocumentTextChunk;
+import com.kronospan.aibi.model.GroupCompany;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Search Index Listener
+ *
+ * JPA entity listener that keeps the text search index in step with writes
+ * made through the persistence context. Rows written with plain JDBC are
+ * picked up by {@link SearchIndexLoader#rebuild}.
+ */
+public class SearchIndexListener {
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        if (entity instanceof GroupCompany) {
+            GroupCompany company = (GroupCompany) entity;
+            searchIndex.index(TextSearchIndex.COMPANIES, company.getId(), company.getCompanyName());
+        } else if (entity instanceof Director) {
+            Director director = (Director) entity;
+            searchIndex.index(TextSearchIndex.DIRECTORS, director.getId(), director.getFullName());
+        } else if (entity instanceof Communication) {
+            Communication communication = (Communication) entity;
+            searchIndex.index(TextSearchIndex.COMMUNICATIONS, communication.getId(),
+                    communication.getSubject(), communication.getContent());
+        } else if (entity instanceof DocumentTextChunk) {
+            DocumentTextChunk chunk = (DocumentTextChunk) entity;
+            searchIndex.index(TextSearchIndex.DOCUMENT_CHUNKS, chunk.getId(), chunk.getText());
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof GroupCompany) {
+            searchIndex.remove(TextSearchIndex.COMPANIES, ((GroupCompany) entity).getId());
+        } else if (entity instanceof Director) {
+            searchIndex.remove(TextSearchIndex.DIRECTORS, ((Director) entity).getId());
+        } else if (entity instanceof Communication) {
+            searchIndex.remove(TextSearchIndex.COMMUNICATIONS, ((Communication) entity).getId());
+        } else if (entity instanceof DocumentTextChunk) {
+            searchIndex.remove(TextSearchIndex.DOCUMENT_CHUNKS, ((DocumentTextChunk) entity).getId());
+        }
+    }
+}
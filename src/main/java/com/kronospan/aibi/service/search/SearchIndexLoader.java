@@ -0,0 +1,66 @@
+package com.kronospan.aibi.service.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Search Index Loader
+ *
+ * Builds the text search index from the database at startup, and rebuilds a
+ * collection after JDBC bulk writes that bypass the entity listener.
+ */
+@Component
+public class SearchIndexLoader {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TextSearchIndex searchIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        long startTime = System.currentTimeMillis();
+        rebuild(TextSearchIndex.COMPANIES);
+        rebuild(TextSearchIndex.DIRECTORS);
+        rebuild(TextSearchIndex.COMMUNICATIONS);
+        rebuild(TextSearchIndex.DOCUMENT_CHUNKS);
+        System.out.println("Text search index built in " + (System.currentTimeMillis() - startTime) +
+                "ms: " + searchIndex.getStatistics());
+    }
+
+    public void rebuild(String collection) {
+        String sql;
+        switch (collection) {
+            case TextSearchIndex.COMPANIES:
+                sql = "SELECT id, company_name FROM group_companies";
+                break;
+            case TextSearchIndex.DIRECTORS:
+                sql = "SELECT id, full_name FROM directors";
+                break;
+            case TextSearchIndex.COMMUNICATIONS:
+                sql = "SELECT c.id, c.subject, b.content FROM communications c " +
+                      "LEFT JOIN communication_bodies b ON b.id = c.body_id";
+                break;
+            case TextSearchIndex.DOCUMENT_CHUNKS:
+                sql = "SELECT id, text_content FROM document_text_chunks";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown search collection: " + collection);
+        }
+
+        TextSearchIndex.Rebuild rebuild = searchIndex.rebuild(collection);
+        jdbcTemplate.query(sql, rs -> {
+            int columns = rs.getMetaData().getColumnCount();
+            String[] fields = new String[columns - 1];
+            for (int i = 2; i <= columns; i++) {
+                fields[i - 2] = rs.getString(i);
+            }
+            rebuild.add(rs.getLong(1), fields);
+        });
+        rebuild.commit();
+    }
+}
@@ -0,0 +1,213 @@
+package com.kronospan.aibi.service.search;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Text Search Index
+ *
+ * In-memory inverted index over the free-text columns that used to be
+ * searched with unanchored LIKE. Each collection (companies, directors,
+ * communications, document text chunks) keeps sorted posting lists of folded tokens,
+ * so a query token matches every indexed token it is a prefix of.
+ * Matches must contain every query token and are ranked by tf-idf.
+ */
+@Component
+public class TextSearchIndex {
+
+    public static final String COMPANIES = "companies";
+    public static final String DIRECTORS = "directors";
+    public static final String COMMUNICATIONS = "communications";
+    public static final String DOCUMENT_CHUNKS = "document_chunks";
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<String, IndexedCollection> collections = new ConcurrentHashMap<>();
+
+    /**
+     * Add or replace the indexed text of one entity
+     */
+    public void index(String collection, Long id, String... fields) {
+        if (id == null) return;
+        collection(collection).put(id, termFrequencies(fields));
+    }
+
+    public void remove(String collection, Long id) {
+        if (id == null) return;
+        collection(collection).remove(id);
+    }
+
+    /**
+     * Start rebuilding a collection off to the side; searches keep using the
+     * current postings until {@link Rebuild#commit()} swaps the new ones in
+     */
+    public Rebuild rebuild(String collection) {
+        return new Rebuild(collection);
+    }
+
+    public class Rebuild {
+        private final String collection;
+        private final IndexedCollection fresh = new IndexedCollection();
+
+        Rebuild(String collection) {
+            this.collection = collection;
+        }
+
+        public void add(Long id, String... fields) {
+            if (id != null) fresh.put(id, termFrequencies(fields));
+        }
+
+        public void commit() {
+            collections.put(collection, fresh);
+        }
+    }
+
+    /**
+     * Ids of entities matching every token of the query, best match first
+     */
+    public List<Long> search(String collection, String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) return Collections.emptyList();
+        return collection(collection).search(new LinkedHashSet<>(queryTokens));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, IndexedCollection> entry : collections.entrySet()) {
+            Map<String, Object> collectionStats = new LinkedHashMap<>();
+            collectionStats.put("documents", entry.getValue().documents.size());
+            collectionStats.put("terms", entry.getValue().postings.size());
+            stats.put(entry.getKey(), collectionStats);
+        }
+        return stats;
+    }
+
+    private static Map<String, Integer> termFrequencies(String... fields) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                termFrequencies.merge(token, 1, Integer::sum);
+            }
+        }
+        return termFrequencies;
+    }
+
+    /**
+     * Lower-case, strip accents and split into tokens ("Oszczędności" -> "oszczednosci")
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return Collections.emptyList();
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        // Letters that do not decompose into base letter + mark
+        StringBuilder folded = new StringBuilder(stripped.length());
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            switch (c) {
+                case 'ł': folded.append('l'); break;
+                case 'ø': folded.append('o'); break;
+                case 'đ': folded.append('d'); break;
+                case 'ß': folded.append("ss"); break;
+                case 'æ': folded.append("ae"); break;
+                case 'œ': folded.append("oe"); break;
+                case 'ı': folded.append('i'); break;
+                default: folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    private IndexedCollection collection(String name) {
+        return collections.computeIfAbsent(name, key -> new IndexedCollection());
+    }
+
+    private static class IndexedCollection {
+        // token -> (entity id -> term frequency), sorted for prefix lookups
+        final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+        // entity id -> its term frequencies, to unindex on update/delete
+        final Map<Long, Map<String, Integer>> documents = new ConcurrentHashMap<>();
+
+        synchronized void put(Long id, Map<String, Integer> termFrequencies) {
+            remove(id);
+            if (termFrequencies.isEmpty()) return;
+            documents.put(id, termFrequencies);
+            for (Map.Entry<String, Integer> term : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new ConcurrentHashMap<>()).put(id, term.getValue());
+            }
+        }
+
+        synchronized void remove(Long id) {
+            Map<String, Integer> previous = documents.remove(id);
+            if (previous == null) return;
+            for (String term : previous.keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(id);
+                    if (posting.isEmpty()) postings.remove(term);
+                }
+            }
+        }
+
+        List<Long> search(Set<String> queryTokens) {
+            int documentCount = Math.max(documents.size(), 1);
+            Map<Long, Double> scores = null;
+
+            for (String queryToken : queryTokens) {
+                Map<Long, Double> tokenScores = new HashMap<>();
+                for (Map.Entry<String, Map<Long, Integer>> term :
+                        postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false).entrySet()) {
+                    Map<Long, Integer> posting = term.getValue();
+                    double idf = Math.log(1.0 + (double) documentCount / Math.max(posting.size(), 1));
+                    // Whole-word matches outrank prefix matches
+                    double weight = term.getKey().equals(queryToken) ? 1.0 : 0.5;
+                    for (Map.Entry<Long, Integer> hit : posting.entrySet()) {
+                        double score = weight * (1.0 + Math.log(hit.getValue())) * idf;
+                        tokenScores.merge(hit.getKey(), score, Math::max);
+                    }
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + tokenScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) return Collections.emptyList();
+            }
+
+            // Shorter texts rank higher for the same matches, so an exact name comes first
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                Map<String, Integer> terms = documents.get(entry.getKey());
+                int length = terms != null ? terms.size() : 1;
+                entry.setValue(entry.getValue() / Math.sqrt(length));
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+            });
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                ids.add(entry.getKey());
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+-- Baseline schema, matching the JPA entities (validated on startup with ddl-auto: validate)
+
+-- One sequence per table; Hibernate's pooled-lo optimizer takes 50 ids per NEXT VALUE
+CREATE SEQUENCE group_companies_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE working_capital_facilities_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE long_term_loans_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE directors_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE financial_statements_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE documents_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE document_text_chunks_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE communications_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE communication_bodies_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE import_quarantine_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE group_companies (
+    id BIGINT NOT NULL,
+    company_name VARCHAR(255) NOT NULL,
+    company_code VARCHAR(255),
+    country VARCHAR(255) NOT NULL,
+    incorporation_country VARCHAR(255),
+    legal_form VARCHAR(255),
+    business_activity VARCHAR(255),
+    is_active BOOLEAN,
+    CONSTRAINT pk_group_companies PRIMARY KEY (id),
+    CONSTRAINT uk_company_code UNIQUE (company_code)
+);
+CREATE INDEX idx_company_name ON group_companies (company_name);
+CREATE INDEX idx_company_country ON group_companies (country);
+
+CREATE TABLE working_capital_facilities (
+    id BIGINT NOT NULL,
+    facility_name VARCHAR(255) NOT NULL,
+    bank_name VARCHAR(255) NOT NULL,
+    facility_type VARCHAR(255),
+    currency VARCHAR(3),
+    limit_amount NUMERIC(15,2),
+    utilized_amount NUMERIC(15,2),
+    undrawn_amount NUMERIC(15,2),
+    utilization_percentage NUMERIC(5,2),
+    report_date DATE NOT NULL,
+    maturity_date DATE,
+    interest_rate NUMERIC(6,4),
+    company_id BIGINT,
+    CONSTRAINT pk_working_capital_facilities PRIMARY KEY (id),
+    CONSTRAINT uk_wcf_snapshot_key UNIQUE (company_id, bank_name, facility_type, currency, report_date),
+    CONSTRAINT fk_wcf_company FOREIGN KEY (company_id) REFERENCES group_companies (id)
+);
+CREATE INDEX idx_wcf_bank_currency ON working_capital_facilities (bank_name, currency);
+CREATE INDEX idx_wcf_currency_bank ON working_capital_facilities (currency, bank_name);
+CREATE INDEX idx_wcf_facility_type ON working_capital_facilities (facility_type);
+CREATE INDEX idx_wcf_report_date ON working_capital_facilities (report_date);
+CREATE INDEX idx_wcf_utilization ON working_capital_facilities (utilization_percentage);
+CREATE INDEX idx_wcf_limit_amount ON working_capital_facilities (limit_amount);
+CREATE INDEX idx_wcf_maturity_date ON working_capital_facilities (maturity_date);
+
+CREATE TABLE long_term_loans (
+    id BIGINT NOT NULL,
+    loan_reference VARCHAR(255) NOT NULL,
+    lender_name VARCHAR(255) NOT NULL,
+    loan_type VARCHAR(255),
+    currency VARCHAR(3),
+    original_amount NUMERIC(15,2),
+    outstanding_amount NUMERIC(15,2),
+    interest_rate NUMERIC(6,4),
+    start_date DATE,
+    maturity_date DATE,
+    repayment_frequency VARCHAR(255),
+    security_type VARCHAR(255),
+    purpose VARCHAR(255),
+    company_id BIGINT,
+    CONSTRAINT pk_long_term_loans PRIMARY KEY (id),
+    CONSTRAINT fk_ltl_company FOREIGN KEY (company_id) REFERENCES group_companies (id)
+);
+CREATE INDEX idx_ltl_company ON long_term_loans (company_id);
+CREATE INDEX idx_ltl_lender ON long_term_loans (lender_name);
+CREATE INDEX idx_ltl_maturity_date ON long_term_loans (maturity_date);
+CREATE INDEX idx_ltl_outstanding ON long_term_loans (outstanding_amount);
+
+CREATE TABLE directors (
+    id BIGINT NOT NULL,
+    full_name VARCHAR(255) NOT NULL,
+    position VARCHAR(255),
+    appointment_date DATE,
+    nationality VARCHAR(255),
+    is_active BOOLEAN,
+    company_id BIGINT,
+    CONSTRAINT pk_directors PRIMARY KEY (id),
+    CONSTRAINT fk_director_company FOREIGN KEY (company_id) REFERENCES group_companies (id)
+);
+CREATE INDEX idx_director_company ON directors (company_id, is_active);
+CREATE INDEX idx_director_name_appointed ON directors (full_name, appointment_date);
+
+CREATE TABLE financial_statements (
+    id BIGINT NOT NULL,
+    statement_type VARCHAR(255) NOT NULL,
+    period_end_date DATE NOT NULL,
+    currency VARCHAR(3),
+    total_assets NUMERIC(15,2),
+    current_assets NUMERIC(15,2),
+    non_current_assets NUMERIC(15,2),
+    total_liabilities NUMERIC(15,2),
+    current_liabilities NUMERIC(15,2),
+    non_current_liabilities NUMERIC(15,2),
+    total_equity NUMERIC(15,2),
+    revenue NUMERIC(15,2),
+    net_income NUMERIC(15,2),
+    ebitda NUMERIC(15,2),
+    working_capital NUMERIC(15,2),
+    cash_and_equivalents NUMERIC(15,2),
+    company_id BIGINT,
+    CONSTRAINT pk_financial_statements PRIMARY KEY (id),
+    CONSTRAINT fk_fs_company FOREIGN KEY (company_id) REFERENCES group_companies (id)
+);
+CREATE INDEX idx_fs_company_period ON financial_statements (company_id, period_end_date);
+
+CREATE TABLE documents (
+    id BIGINT NOT NULL,
+    document_name VARCHAR(255) NOT NULL,
+    document_type VARCHAR(255) NOT NULL,
+    file_path VARCHAR(255),
+    file_size BIGINT,
+    content_type VARCHAR(255),
+    page_count INTEGER,
+    text_length BIGINT,
+    document_category VARCHAR(255),
+    upload_date TIMESTAMP,
+    last_processed TIMESTAMP,
+    processing_status VARCHAR(255),
+    company_id BIGINT,
+    CONSTRAINT pk_documents PRIMARY KEY (id),
+    CONSTRAINT fk_document_company FOREIGN KEY (company_id) REFERENCES group_companies (id)
+);
+
+CREATE TABLE document_text_chunks (
+    id BIGINT NOT NULL,
+    document_id BIGINT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    page_number INTEGER NOT NULL,
+    text_content CLOB,
+    CONSTRAINT pk_document_text_chunks PRIMARY KEY (id),
+    CONSTRAINT uk_document_chunk UNIQUE (document_id, chunk_index),
+    CONSTRAINT fk_chunk_document FOREIGN KEY (document_id) REFERENCES documents (id)
+);
+CREATE INDEX idx_document_chunk_page ON document_text_chunks (document_id, page_number);
+
+CREATE TABLE communication_bodies (
+    id BIGINT NOT NULL,
+    content CLOB,
+    CONSTRAINT pk_communication_bodies PRIMARY KEY (id)
+);
+
+CREATE TABLE communications (
+    id BIGINT NOT NULL,
+    communication_type VARCHAR(255) NOT NULL,
+    subject VARCHAR(255),
+    body_id BIGINT,
+    from_party VARCHAR(255),
+    to_party VARCHAR(255),
+    communication_date TIMESTAMP,
+    priority VARCHAR(255),
+    status VARCHAR(255),
+    reference_number VARCHAR(255),
+    company_id BIGINT,
+    related_document_id BIGINT,
+    CONSTRAINT pk_communications PRIMARY KEY (id),
+    CONSTRAINT uk_communication_body UNIQUE (body_id),
+    CONSTRAINT fk_communication_body FOREIGN KEY (body_id) REFERENCES communication_bodies (id),
+    CONSTRAINT fk_communication_company FOREIGN KEY (company_id) REFERENCES group_companies (id),
+    CONSTRAINT fk_communication_document FOREIGN KEY (related_document_id) REFERENCES documents (id)
+);
+
+CREATE TABLE import_quarantine (
+    id BIGINT NOT NULL,
+    import_type VARCHAR(255) NOT NULL,
+    source_file VARCHAR(255) NOT NULL,
+    sheet_name VARCHAR(255),
+    source_row INTEGER,
+    raw_values VARCHAR(4000),
+    reason VARCHAR(1000),
+    quarantined_at TIMESTAMP,
+    CONSTRAINT pk_import_quarantine PRIMARY KEY (id)
+);
+
+-- Source files already imported, with their content hash (SourceFileRegistry)
+CREATE TABLE import_source_files (
+    file_path VARCHAR(1024) NOT NULL,
+    import_type VARCHAR(32) NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,
+    file_size BIGINT NOT NULL,
+    last_modified TIMESTAMP NOT NULL,
+    row_count BIGINT,
+    imported_at TIMESTAMP NOT NULL,
+    CONSTRAINT pk_import_source_files PRIMARY KEY (file_path)
+);
@@ -0,0 +1,49 @@
+-- Facility summary tables: working_capital_facilities pre-aggregated per
+-- report date and bank/currency or company. Kept current by the import write
+-- path (FacilitySummaryTables); reports and dashboards read these instead of
+-- re-aggregating the facility history.
+
+CREATE TABLE wcf_summary_bank (
+    report_date DATE NOT NULL,
+    bank_name VARCHAR(255) NOT NULL,
+    currency VARCHAR(3),
+    facility_count BIGINT NOT NULL,
+    total_limit NUMERIC(20,2) NOT NULL,
+    limit_count BIGINT NOT NULL,
+    total_utilized NUMERIC(20,2) NOT NULL,
+    max_limit NUMERIC(15,2),
+    utilization_sum NUMERIC(20,2) NOT NULL,
+    utilization_count BIGINT NOT NULL
+);
+CREATE INDEX idx_wcf_summary_bank_key ON wcf_summary_bank (report_date, bank_name, currency);
+
+CREATE TABLE wcf_summary_company (
+    report_date DATE NOT NULL,
+    company_id BIGINT,
+    facility_count BIGINT NOT NULL,
+    total_limit NUMERIC(20,2) NOT NULL,
+    limit_count BIGINT NOT NULL,
+    total_utilized NUMERIC(20,2) NOT NULL,
+    utilization_sum NUMERIC(20,2) NOT NULL,
+    utilization_count BIGINT NOT NULL
+);
+CREATE INDEX idx_wcf_summary_company_key ON wcf_summary_company (report_date, company_id);
+CREATE INDEX idx_wcf_summary_company_id ON wcf_summary_company (company_id);
+
+-- Facilities need a (report_date, bank_name, currency) path for per-group refreshes
+CREATE INDEX idx_wcf_date_bank_currency ON working_capital_facilities (report_date, bank_name, currency);
+
+INSERT INTO wcf_summary_bank (report_date, bank_name, currency, facility_count, total_limit, limit_count,
+                              total_utilized, max_limit, utilization_sum, utilization_count)
+SELECT report_date, bank_name, currency, COUNT(*), COALESCE(SUM(limit_amount), 0), COUNT(limit_amount),
+       COALESCE(SUM(utilized_amount), 0), MAX(limit_amount),
+       COALESCE(SUM(utilization_percentage), 0), COUNT(utilization_percentage)
+FROM working_capital_facilities
+GROUP BY report_date, bank_name, currency;
+
+INSERT INTO wcf_summary_company (report_date, company_id, facility_count, total_limit, limit_count,
+                                 total_utilized, utilization_sum, utilization_count)
+SELECT report_date, company_id, COUNT(*), COALESCE(SUM(limit_amount), 0), COUNT(limit_amount),
+       COALESCE(SUM(utilized_amount), 0), COALESCE(SUM(utilization_percentage), 0), COUNT(utilization_percentage)
+FROM working_capital_facilities
+GROUP BY report_date, company_id;
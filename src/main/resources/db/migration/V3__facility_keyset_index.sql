@@ -0,0 +1,7 @@
+-- Keyset pages and NDJSON exports of facilities run in (report_date, id)
+-- order; with id in the index a page starts at its cursor and reads no
+-- further than the page size, without a sort. It supersedes the
+-- report_date-only index.
+
+CREATE INDEX idx_wcf_report_date_id ON working_capital_facilities (report_date, id);
+DROP INDEX IF EXISTS idx_wcf_report_date;
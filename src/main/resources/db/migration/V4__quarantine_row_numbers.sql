@@ -0,0 +1,6 @@
+-- Quarantined rows were stored with the 0-based sheet index; source_row now
+-- holds the row number Excel shows. Imports clear a file's earlier
+-- rejections by source_file before quarantining its rows again.
+
+UPDATE import_quarantine SET source_row = source_row + 1 WHERE source_row IS NOT NULL;
+CREATE INDEX idx_quarantine_source_file ON import_quarantine (source_file, source_row);
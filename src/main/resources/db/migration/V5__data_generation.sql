@@ -0,0 +1,8 @@
+-- Generation of the imported data set, kept across restarts so reports
+-- pregenerated for it stay valid until the next import. The single row is
+-- created by the application on first start.
+
+CREATE TABLE data_generation (
+    id INTEGER PRIMARY KEY,
+    generation BIGINT NOT NULL
+);
@@ -0,0 +1,355 @@
+package com.kronospan.aibi;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.LongTermLoan;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.*;
+import com.kronospan.aibi.service.BankExposureEngine;
+import com.kronospan.aibi.service.DataSummaryService;
+import com.kronospan.aibi.service.ReferenceDataCache;
+import com.kronospan.aibi.service.ReportGenerationService;
+import com.kronospan.aibi.service.SnapshotVarianceEngine;
+import com.kronospan.aibi.service.importer.BulkSnapshotLoader;
+import com.kronospan.aibi.service.importer.FacilitySnapshotWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query Plan Test
+ *
+ * Calls the real repository methods, engines and report generation, captures
+ * every SELECT they send (with its bound parameters) at the JDBC layer, and
+ * runs H2 EXPLAIN over each one. A query whose plan cannot be explained fails
+ * the test, and so does any full table scan other than the few each call is
+ * declared to make. The facility, loan and financial statement tables are
+ * never declared: they are the ones that grow with every import.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    // A COUNT(*) answered from the row count is labelled tableScan as well, but reads nothing
+    private static final Pattern TABLE_SCAN =
+            Pattern.compile("/\\*\\s*\\w+\\.(\\w+)\\.tableScan\\s*\\*/(?!\\s*/\\*\\s*direct lookup)");
+
+    private static final LocalDate FIRST_SNAPSHOT = LocalDate.of(2032, 6, 30);
+    private static final LocalDate SECOND_SNAPSHOT = LocalDate.of(2032, 12, 31);
+
+    private static final List<CapturedQuery> captured = Collections.synchronizedList(new ArrayList<>());
+    private static volatile boolean capturing;
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return "dataSource".equals(beanName) ? new CapturingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private WorkingCapitalFacilityRepository wcrRepository;
+
+    @Autowired
+    private LongTermLoanRepository ltlRepository;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private DirectorRepository directorRepository;
+
+    @Autowired
+    private FinancialStatementRepository financialStatementRepository;
+
+    @Autowired
+    private DataSummaryService dataSummaryService;
+
+    @Autowired
+    private SnapshotVarianceEngine varianceEngine;
+
+    @Autowired
+    private BankExposureEngine bankExposureEngine;
+
+    @Autowired
+    private ReportGenerationService reportGenerationService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private FacilitySnapshotWriter snapshotWriter;
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCompany company;
+
+    @BeforeEach
+    void seed() {
+        company = companyRepository.findByCompanyNameIgnoreCaseOrderById("Plan Test Holdings").stream().findFirst()
+                .orElseGet(() -> companyRepository.saveAndFlush(new GroupCompany("Plan Test Holdings", "Cyprus")));
+
+        List<WorkingCapitalFacility> facilities = new ArrayList<>();
+        for (LocalDate reportDate : Arrays.asList(FIRST_SNAPSHOT, SECOND_SNAPSHOT)) {
+            facilities.add(facility(reportDate, "PKO BP", "PLN", "2500000"));
+            facilities.add(facility(reportDate, "UniCredit", "EUR", "400000"));
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> snapshotWriter.mergeBatch(facilities));
+
+        if (ltlRepository.findByCompanyId(company.getId()).isEmpty()) {
+            LongTermLoan loan = new LongTermLoan();
+            loan.setLoanReference("PLAN-TEST-1");
+            loan.setLenderName("PKO BP");
+            loan.setCurrency("PLN");
+            loan.setOriginalAmount(new BigDecimal("5000000"));
+            loan.setOutstandingAmount(new BigDecimal("3000000"));
+            loan.setCompany(company);
+            bulkLoader.insertLoans(Collections.singletonList(loan));
+        }
+
+        // Cached query results would hide the statements
+        referenceDataCache.evictAfterImport();
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        Long companyId = company.getId();
+        LocalDate from = LocalDate.of(2030, 1, 1);
+        LocalDate to = LocalDate.of(2035, 1, 1);
+        BigDecimal amount = new BigDecimal("1000000");
+
+        audit("wcf.findByBankName", () -> wcrRepository.findByBankName("PKO BP"));
+        audit("wcf.findByFacilityType", () -> wcrRepository.findByFacilityType("RC"));
+        audit("wcf.findByCurrency", () -> wcrRepository.findByCurrency("EUR"));
+        audit("wcf.findByCompanyId", () -> wcrRepository.findByCompanyId(companyId));
+        audit("wcf.findByUtilizationPercentageGreaterThan",
+                () -> wcrRepository.findByUtilizationPercentageGreaterThan(new BigDecimal("80")));
+        audit("wcf.findByLimitAmountGreaterThan", () -> wcrRepository.findByLimitAmountGreaterThan(amount));
+        audit("wcf.findByMaturityDateBetween", () -> wcrRepository.findByMaturityDateBetween(from, to));
+        audit("wcf.findByCompanyCountry", () -> wcrRepository.findByCompanyCountry("Cyprus"), "group_companies");
+        audit("wcf.getTotalLimitByCompanyId", () -> wcrRepository.getTotalLimitByCompanyId(companyId));
+        audit("wcf.findViewsByBankName", () -> wcrRepository.findViewsByBankName("PKO BP"));
+        audit("wcf.findViewsByLimitAmountGreaterThan", () -> wcrRepository.findViewsByLimitAmountGreaterThan(amount));
+
+        audit("ltl.findByLenderName", () -> ltlRepository.findByLenderName("PKO BP"));
+        audit("ltl.findByCompanyId", () -> ltlRepository.findByCompanyId(companyId));
+        audit("ltl.findByMaturityDateBetween", () -> ltlRepository.findByMaturityDateBetween(from, to));
+        audit("ltl.findByOutstandingAmountGreaterThan", () -> ltlRepository.findByOutstandingAmountGreaterThan(amount));
+        audit("ltl.findViewsByLenderName", () -> ltlRepository.findViewsByLenderName("PKO BP"));
+
+        audit("company.findByCountry", () -> companyRepository.findByCountry("Cyprus"));
+        audit("company.findViewsByCountry", () -> companyRepository.findViewsByCountry("Cyprus"));
+        audit("director.findActiveDirectorsByCompanyId", () -> directorRepository.findActiveDirectorsByCompanyId(companyId));
+        audit("fs.findByCompanyIdAndPeriodBetween",
+                () -> financialStatementRepository.findByCompanyIdAndPeriodBetween(companyId, from, to));
+        audit("fs.findByCompanyIdOrderByPeriodEndDateDesc",
+                () -> financialStatementRepository.findByCompanyIdOrderByPeriodEndDateDesc(companyId));
+    }
+
+    @Test
+    void keysetPagesStartAtTheirCursor() {
+        PageRequest page = PageRequest.of(0, 101);
+
+        audit("wcf.findViewPage", () -> wcrRepository.findViewPage(page));
+        audit("wcf.findViewPageAfter", () -> wcrRepository.findViewPageAfter(FIRST_SNAPSHOT, 0L, page));
+        audit("ltl.findViewPageAfter", () -> ltlRepository.findViewPageAfter(0L, page));
+        audit("company.findViewPageAfter", () -> companyRepository.findViewPageAfter(0L, page));
+    }
+
+    @Test
+    void aggregatesReadSummaryTablesOnly() {
+        audit("summary.getSummary", () -> dataSummaryService.getSummary(),
+                "wcf_summary_bank", "wcf_summary_company", "group_companies");
+        audit("exposure.getPortfolio", () -> bankExposureEngine.getPortfolio(), "wcf_summary_bank");
+        for (SnapshotVarianceEngine.Dimension dimension : SnapshotVarianceEngine.Dimension.values()) {
+            audit("variance.compare." + dimension.name().toLowerCase(Locale.ROOT),
+                    () -> varianceEngine.compare(Collections.<String>emptyList(), dimension),
+                    "wcf_summary_bank", "wcf_summary_company", "group_companies");
+        }
+    }
+
+    @Test
+    void standardReportsAvoidFactTableScans() {
+        // Sections may be answered from engines warmed by earlier calls, so these need not run a query
+        auditReport("working_capital_analysis", Collections.emptyMap(),
+                "wcf_summary_bank", "wcf_summary_company", "group_companies");
+        auditReport("cyprus_entities_governance", Collections.emptyMap(), "group_companies");
+        auditReport("financial_variance_analysis", Collections.emptyMap(),
+                "wcf_summary_bank", "wcf_summary_company", "group_companies");
+        auditReport("bank_exposure_analysis", Collections.emptyMap(), "wcf_summary_bank");
+        // Director listings and name searches read the whole (small) directors table
+        auditReport("directorship_analysis", Collections.singletonMap("director_name", "Kaindl"),
+                "directors", "group_companies");
+    }
+
+    private void auditReport(String reportType, Map<String, Object> parameters, String... allowedScans) {
+        explainAll("report." + reportType,
+                capture(() -> reportGenerationService.generateExecutiveReport(reportType, parameters)), allowedScans);
+    }
+
+    private void audit(String name, Runnable call, String... allowedScans) {
+        List<CapturedQuery> queries = capture(call);
+        assertFalse(queries.isEmpty(), name + " sent no query");
+        explainAll(name, queries, allowedScans);
+    }
+
+    private static List<CapturedQuery> capture(Runnable call) {
+        captured.clear();
+        capturing = true;
+        try {
+            call.run();
+        } finally {
+            capturing = false;
+        }
+        synchronized (captured) {
+            return new ArrayList<>(captured);
+        }
+    }
+
+    private void explainAll(String name, List<CapturedQuery> queries, String... allowedScans) {
+        Set<String> allowed = new HashSet<>();
+        for (String table : allowedScans) {
+            allowed.add(table.toUpperCase(Locale.ROOT));
+        }
+        for (CapturedQuery query : queries) {
+            String plan;
+            try {
+                plan = jdbcTemplate.queryForObject("EXPLAIN " + query.sql, String.class, query.params);
+            } catch (DataAccessException e) {
+                fail(name + ": EXPLAIN failed for " + query.sql + ": " + e.getMessage());
+                return;
+            }
+            assertNotNull(plan, name + ": no plan for " + query.sql);
+            Matcher scan = TABLE_SCAN.matcher(plan);
+            while (scan.find()) {
+                assertTrue(allowed.contains(scan.group(1)),
+                        name + " scans the whole of " + scan.group(1) + ":\n" + plan);
+            }
+        }
+    }
+
+    private WorkingCapitalFacility facility(LocalDate reportDate, String bank, String currency, String limit) {
+        WorkingCapitalFacility facility = new WorkingCapitalFacility(bank + " RC " + currency, bank, "RC");
+        facility.setCurrency(currency);
+        facility.setLimitAmount(new BigDecimal(limit));
+        facility.setUtilizedAmount(new BigDecimal(limit).divide(BigDecimal.valueOf(2)));
+        facility.setReportDate(reportDate);
+        facility.setCompany(company);
+        return facility;
+    }
+
+    private static final class CapturedQuery {
+        final String sql;
+        final Object[] params;
+
+        CapturedQuery(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Hands out connections whose statements record each SELECT they execute
+     */
+    static final class CapturingDataSource extends DelegatingDataSource {
+
+        CapturingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private static Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if ("prepareStatement".equals(method.getName())) {
+                        return wrap(PreparedStatement.class, (Statement) result, (String) args[0]);
+                    }
+                    if ("createStatement".equals(method.getName())) {
+                        return wrap(Statement.class, (Statement) result, null);
+                    }
+                    return result;
+                });
+        }
+
+        private static Object wrap(Class<?> type, Statement statement, String preparedSql) {
+            Map<Integer, Object> params = new TreeMap<>();
+            return Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        params.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                    } else if ("clearParameters".equals(name)) {
+                        params.clear();
+                    } else if ("executeQuery".equals(name) || "execute".equals(name)) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+                        record(sql, params.values().toArray());
+                    }
+                    return invoke(statement, method, args);
+                });
+        }
+
+        private static void record(String sql, Object[] params) {
+            String head = sql.trim().toUpperCase(Locale.ROOT);
+            if (capturing && (head.startsWith("SELECT") || head.startsWith("WITH"))) {
+                captured.add(new CapturedQuery(sql, params));
+            }
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
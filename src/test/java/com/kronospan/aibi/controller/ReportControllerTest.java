@@ -0,0 +1,128 @@
+package com.kronospan.aibi.controller;
+
+import com.kronospan.aibi.service.DataGeneration;
+import com.kronospan.aibi.service.ReportSnapshotCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Conditional report requests: ETags follow the data generation and the
+ * number format of the request locale, and reports generated while an
+ * import runs are not cached under the old generation
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReportControllerTest {
+
+    private static final String REPORT = "/api/v1/reports/working-capital";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Autowired
+    private ReportSnapshotCache reportCache;
+
+    @Test
+    void matchingEtagIsAnsweredNotModifiedUntilTheNextImport() throws Exception {
+        String etag = etagOf(REPORT);
+        assertTrue(etag.startsWith("\"g" + dataGeneration.current() + "-"), etag);
+
+        mockMvc.perform(get(REPORT).header(HttpHeaders.ACCEPT_LANGUAGE, "en-US").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get(REPORT).param("currency", "EUR").header(HttpHeaders.ACCEPT_LANGUAGE, "en-US")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+
+        dataGeneration.beginImport();
+        dataGeneration.advanceAfterImport();
+
+        String next = etagOf(REPORT);
+        assertNotEquals(etag, next);
+        mockMvc.perform(get(REPORT).header(HttpHeaders.ACCEPT_LANGUAGE, "en-US").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, next));
+    }
+
+    @Test
+    void etagDependsOnTheNumberFormatOfTheLocale() throws Exception {
+        String english = etagOf(REPORT, "en-US");
+        assertEquals(english, etagOf(REPORT, "en-GB"));
+        String german = etagOf(REPORT, "de-DE");
+        assertNotEquals(english, german);
+
+        mockMvc.perform(get(REPORT).header(HttpHeaders.ACCEPT_LANGUAGE, "de-DE").header(HttpHeaders.IF_NONE_MATCH, english))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, german));
+    }
+
+    @Test
+    void reportGeneratedMidImportIsSentWithoutEtagAsNoStore() throws Exception {
+        String path = "/api/v1/reports/working-capital?currency=BGN";
+        reportCache.clear();
+        dataGeneration.beginImport();
+        try {
+            mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_LANGUAGE, "en-US"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"));
+        } finally {
+            dataGeneration.advanceAfterImport();
+        }
+
+        String etag = etagOf(path);
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_LANGUAGE, "en-US").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void generationsOfANewDatabaseStartFromItsCreationTime() {
+        // Generations of an earlier database were numbered below this one's creation
+        assertTrue(dataGeneration.current() > 1_500_000_000_000L);
+    }
+
+    @Test
+    void reportsGeneratedDuringAnImportAreNotCached() {
+        Map<String, Object> parameters = Collections.singletonMap("currency", "RON");
+        reportCache.clear();
+        dataGeneration.beginImport();
+        try {
+            assertFalse(reportCache.getReport("working_capital_analysis", parameters).isCacheable());
+            assertEquals(0, ((Number) reportCache.getStatistics().get("entries")).intValue());
+        } finally {
+            dataGeneration.advanceAfterImport();
+        }
+
+        long generation = dataGeneration.current();
+        assertEquals(generation, reportCache.getReport("working_capital_analysis", parameters).getGeneration());
+        assertEquals(1, ((Number) reportCache.getStatistics().get("entries")).intValue());
+    }
+
+    private String etagOf(String path) throws Exception {
+        return etagOf(path, "en-US");
+    }
+
+    private String etagOf(String path, String language) throws Exception {
+        String etag = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_LANGUAGE, language))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -0,0 +1,114 @@
+package com.kronospan.aibi.service;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.service.importer.BulkSnapshotLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exposure covers the latest snapshot only and never adds amounts of
+ * different currencies together
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:kronospandb-exposure;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class BankExposureEngineTest {
+
+    private static final LocalDate EARLIER = LocalDate.of(2040, 1, 31);
+    private static final LocalDate LATEST = LocalDate.of(2040, 2, 29);
+
+    @Autowired
+    private BankExposureEngine exposureEngine;
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void loadSnapshots() {
+        GroupCompany company = companyRepository.findByCompanyNameIgnoreCaseOrderById("Exposure Test Holdings").stream().findFirst()
+                .orElseGet(() -> companyRepository.saveAndFlush(new GroupCompany("Exposure Test Holdings", "Poland")));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bulkLoader.deleteFacilitySnapshot(EARLIER);
+            bulkLoader.deleteFacilitySnapshot(LATEST);
+            bulkLoader.insertFacilities(Arrays.asList(
+                facility(company, EARLIER, "PKO BP", "EUR", "9000000"),
+                facility(company, LATEST, "PKO BP", "EUR", "3000000"),
+                facility(company, LATEST, "ING", "EUR", "1000000"),
+                facility(company, LATEST, "PKO BP", "PLN", "40000000")));
+        });
+        // Computed figures are kept per generation
+        dataGeneration.beginImport();
+        dataGeneration.advanceAfterImport();
+    }
+
+    @Test
+    void bankExposureIsPerCurrencyOfTheLatestSnapshot() {
+        BankExposureEngine.BankExposure pkoEur = exposureEngine.forBank("PKO", "EUR");
+        assertAmount("3000000", pkoEur.getTotalExposure());
+        assertEquals(1, pkoEur.getFacilityCount());
+        assertEquals(1, pkoEur.getLargeFacilityCount());
+        assertAmount("75", pkoEur.getShare());
+
+        BankExposureEngine.BankExposure pkoPln = exposureEngine.forBank("PKO", "PLN");
+        assertAmount("40000000", pkoPln.getTotalExposure());
+        assertAmount("100", pkoPln.getShare());
+
+        // 75% and 25% of EUR: 5625 + 625
+        assertAmount("6250", exposureEngine.getHerfindahlIndex("EUR"));
+        assertAmount("10000", exposureEngine.getHerfindahlIndex("PLN"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void portfolioListsEachCurrencySeparately() {
+        Map<String, Object> portfolio = exposureEngine.getPortfolio();
+        assertEquals(LATEST.toString(), portfolio.get("report_date"));
+
+        Map<String, Object> currencies = (Map<String, Object>) portfolio.get("currencies");
+        assertEquals(Arrays.asList("EUR", "PLN"), Arrays.asList(currencies.keySet().toArray()));
+        Map<String, Object> eur = (Map<String, Object>) currencies.get("EUR");
+        assertAmount("4000000", (BigDecimal) eur.get("total_exposure"));
+        List<Map<String, Object>> banks = (List<Map<String, Object>>) eur.get("banks");
+        assertEquals("PKO BP", banks.get(0).get("bank_name"));
+        assertEquals("ING", banks.get(1).get("bank_name"));
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " != " + actual);
+    }
+
+    private static WorkingCapitalFacility facility(GroupCompany company, LocalDate reportDate, String bank,
+                                                   String currency, String limit) {
+        WorkingCapitalFacility facility = new WorkingCapitalFacility(bank + " " + currency, bank, "RC");
+        facility.setCurrency(currency);
+        facility.setLimitAmount(new BigDecimal(limit));
+        facility.setUtilizedAmount(BigDecimal.ZERO);
+        facility.setReportDate(reportDate);
+        facility.setCompany(company);
+        return facility;
+    }
+}
@@ -0,0 +1,114 @@
+package com.kronospan.aibi.service;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.service.importer.BulkSnapshotLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Timing harness for the dashboard summary: the facility table grows tenfold
+ * between measurements, while the summary should take about as long, since it
+ * only reads the summary tables and row counts.
+ *
+ * Run with: mvn test -Dtest=DataSummaryTimingTest -Dkronospan.timing=true
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:kronospandb-summary-timing;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "kronospan.timing", matches = "true")
+class DataSummaryTimingTest {
+
+    private static final String[] CURRENCIES = {"EUR", "PLN", "RON"};
+    private static final int BANKS = 50;
+    private static final int REPORT_DATES = 12;
+    private static final int ROWS_PER_LAYER = REPORT_DATES * BANKS * CURRENCIES.length;
+
+    @Autowired
+    private DataSummaryService dataSummaryService;
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int layers;
+
+    @Test
+    void summaryTimeDoesNotGrowWithTheFacilityTable() {
+        GroupCompany company = companyRepository.saveAndFlush(new GroupCompany("Timing Holdings", "Cyprus"));
+
+        grow(company, 10_000);
+        long smallNanos = medianSummaryNanos();
+        grow(company, 100_000);
+        long largeNanos = medianSummaryNanos();
+
+        System.out.printf("Data summary median: %.2f ms at %,d facilities, %.2f ms at %,d facilities%n",
+                smallNanos / 1e6, 10_000 / ROWS_PER_LAYER * ROWS_PER_LAYER,
+                largeNanos / 1e6, layers * ROWS_PER_LAYER);
+        // Ten times the rows; allow for noise, not for a scan
+        assertTrue(largeNanos < smallNanos * 3 + 5_000_000L,
+                "summary went from " + smallNanos / 1e6 + " ms to " + largeNanos / 1e6 + " ms");
+    }
+
+    /**
+     * Add facility types to the same report dates, banks and currencies until
+     * the table holds about the given number of facilities; the summary tables
+     * keep the same groups, only their counts and totals grow
+     */
+    private void grow(GroupCompany company, int facilities) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        while ((layers + 1) * ROWS_PER_LAYER <= facilities) {
+            String type = "T" + layers++;
+            List<WorkingCapitalFacility> layer = new ArrayList<>(ROWS_PER_LAYER);
+            for (int month = 0; month < REPORT_DATES; month++) {
+                LocalDate reportDate = LocalDate.of(2000, 1, 31).plusMonths(month);
+                for (int bank = 0; bank < BANKS; bank++) {
+                    for (String currency : CURRENCIES) {
+                        WorkingCapitalFacility facility = new WorkingCapitalFacility("Bank " + bank + " " + type, "Bank " + bank, type);
+                        facility.setCurrency(currency);
+                        facility.setLimitAmount(BigDecimal.valueOf(100_000L * (bank + 1)));
+                        facility.setUtilizedAmount(BigDecimal.valueOf(40_000L * (bank + 1)));
+                        facility.setUtilizationPercentage(new BigDecimal("40.00"));
+                        facility.setReportDate(reportDate);
+                        facility.setCompany(company);
+                        layer.add(facility);
+                    }
+                }
+            }
+            transaction.executeWithoutResult(status -> bulkLoader.insertFacilities(layer));
+        }
+        bulkLoader.analyze("working_capital_facilities");
+    }
+
+    private long medianSummaryNanos() {
+        for (int i = 0; i < 5; i++) {
+            dataSummaryService.getSummary();
+        }
+        long[] samples = new long[21];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            dataSummaryService.getSummary();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
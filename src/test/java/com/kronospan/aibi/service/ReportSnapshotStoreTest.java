@@ -0,0 +1,69 @@
+package com.kronospan.aibi.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stored reports outlive a restart as long as the data generation kept in
+ * the database is unchanged; re-running the init methods stands in for the restart
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReportSnapshotStoreTest {
+
+    @Autowired
+    private ReportSnapshotStore store;
+
+    @Autowired
+    private DataGeneration dataGeneration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void filesOfTheStoredGenerationSurviveARestart() throws Exception {
+        long generation = dataGeneration.current();
+        assertEquals(generation, (long) jdbcTemplate.queryForObject("SELECT generation FROM data_generation", Long.class));
+        write("restart_probe", generation);
+        write("restart_probe", generation - 1);
+
+        dataGeneration.initGeneration();
+        store.initStore();
+
+        assertEquals(generation, dataGeneration.current());
+        assertNotNull(store.find("restart_probe", generation, "probe.txt"));
+        assertNull(store.find("restart_probe", generation - 1, "probe.txt"));
+    }
+
+    @Test
+    void anImportThatNeverCompletedInvalidatesTheStoredFiles() throws Exception {
+        long generation = dataGeneration.current();
+        write("interrupted_probe", generation);
+
+        dataGeneration.beginImport();
+        try {
+            // Stopped halfway through the import: the stored generation has moved on already
+            dataGeneration.initGeneration();
+            store.initStore();
+
+            assertTrue(dataGeneration.current() > generation);
+            assertNull(store.find("interrupted_probe", generation, "probe.txt"));
+        } finally {
+            dataGeneration.advanceAfterImport();
+        }
+    }
+
+    private void write(String reportType, long generation) throws Exception {
+        store.write(reportType, generation, "probe.txt", out -> out.write("probe".getBytes(StandardCharsets.UTF_8)));
+        File file = store.find(reportType, generation, "probe.txt");
+        assertNotNull(file);
+    }
+}
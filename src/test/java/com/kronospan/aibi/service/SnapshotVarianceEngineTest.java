@@ -0,0 +1,178 @@
+package com.kronospan.aibi.service;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.service.importer.BulkSnapshotLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Merge-join of snapshot slices by every dimension, with keys missing from
+ * some snapshots, and the period forms a comparison accepts
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SnapshotVarianceEngineTest {
+
+    private static final LocalDate MARCH = LocalDate.of(2034, 3, 31);
+    private static final LocalDate JUNE = LocalDate.of(2034, 6, 30);
+    private static final LocalDate SEPTEMBER = LocalDate.of(2034, 9, 30);
+
+    @Autowired
+    private SnapshotVarianceEngine varianceEngine;
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCompany cyprus;
+    private GroupCompany austria;
+
+    @BeforeEach
+    void loadSnapshots() {
+        cyprus = company("Variance Test Holdings", "Cyprus");
+        austria = company("Variance Test Austria", "Austria");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (LocalDate date : Arrays.asList(MARCH, JUNE, SEPTEMBER)) {
+                bulkLoader.deleteFacilitySnapshot(date);
+            }
+            bulkLoader.insertFacilities(Arrays.asList(
+                facility(cyprus, MARCH, "Variance Bank A", "EUR", "100"),
+                facility(cyprus, MARCH, "Variance Bank A", "PLN", "50"),
+                facility(cyprus, MARCH, "Variance Bank B", "EUR", "200"),
+                facility(cyprus, JUNE, "Variance Bank A", "EUR", "120"),
+                facility(austria, JUNE, "Variance Bank C", "RON", "300"),
+                facility(austria, SEPTEMBER, "Variance Bank B", "EUR", "80")));
+        });
+    }
+
+    @Test
+    void bankSlicesFoldCurrenciesAndJoinAcrossSnapshots() {
+        SnapshotVarianceEngine.Comparison comparison = compare(SnapshotVarianceEngine.Dimension.BANK);
+
+        assertEquals(Arrays.asList("Variance Bank A", "Variance Bank B", "Variance Bank C"), keys(comparison));
+        assertLimits(comparison, "Variance Bank A", "150", "120", null);
+        assertLimits(comparison, "Variance Bank B", "200", null, "80");
+        assertLimits(comparison, "Variance Bank C", null, "300", null);
+        assertAmount("-150", row(comparison, "Variance Bank A").getLimitVariance());
+        assertAmount("-60.00", row(comparison, "Variance Bank B").getLimitChangePercentage());
+        assertNull(row(comparison, "Variance Bank C").getLimitChangePercentage());
+    }
+
+    @Test
+    void currencyCountryAndCompanySlicesJoinOnTheirKeys() {
+        SnapshotVarianceEngine.Comparison byCurrency = compare(SnapshotVarianceEngine.Dimension.CURRENCY);
+        assertEquals(Arrays.asList("EUR", "PLN", "RON"), keys(byCurrency));
+        assertLimits(byCurrency, "EUR", "300", "120", "80");
+        assertLimits(byCurrency, "PLN", "50", null, null);
+        assertLimits(byCurrency, "RON", null, "300", null);
+
+        SnapshotVarianceEngine.Comparison byCountry = compare(SnapshotVarianceEngine.Dimension.COUNTRY);
+        assertEquals(Arrays.asList("Austria", "Cyprus"), keys(byCountry));
+        assertLimits(byCountry, "Austria", null, "300", "80");
+        assertLimits(byCountry, "Cyprus", "350", "120", null);
+
+        SnapshotVarianceEngine.Comparison byCompany = compare(SnapshotVarianceEngine.Dimension.COMPANY);
+        assertEquals(2, byCompany.getRows().size());
+        assertLimits(byCompany, cyprus.getId(), "350", "120", null);
+        assertLimits(byCompany, austria.getId(), null, "300", "80");
+        assertEquals("Variance Test Austria", row(byCompany, austria.getId()).getLabel());
+        List<Object> companyKeys = keys(byCompany);
+        List<Object> sorted = new ArrayList<>(companyKeys);
+        sorted.sort(null);
+        assertEquals(sorted, companyKeys);
+    }
+
+    @Test
+    void periodsResolveToTheirSnapshots() {
+        SnapshotVarianceEngine.Comparison comparison =
+            varianceEngine.compare(Arrays.asList("2034-03", "2034-07-15", "2034"), SnapshotVarianceEngine.Dimension.BANK);
+        assertEquals(Arrays.asList(MARCH, JUNE, SEPTEMBER), comparison.getDates());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> varianceEngine.compare(Collections.singletonList("2034-05"), SnapshotVarianceEngine.Dimension.BANK));
+    }
+
+    @Test
+    void resolveTakesTheLatestSnapshotWithinThePeriod() {
+        NavigableSet<LocalDate> available = new TreeSet<>(Arrays.asList(
+            LocalDate.of(2024, 6, 30), LocalDate.of(2024, 12, 31), LocalDate.of(2025, 3, 31)));
+
+        assertEquals(LocalDate.of(2024, 12, 31), SnapshotVarianceEngine.resolve(available, "2024"));
+        assertEquals(LocalDate.of(2024, 6, 30), SnapshotVarianceEngine.resolve(available, "2024-06"));
+        assertNull(SnapshotVarianceEngine.resolve(available, "2024-07"));
+        assertNull(SnapshotVarianceEngine.resolve(available, "2023"));
+        assertEquals(LocalDate.of(2025, 3, 31), SnapshotVarianceEngine.resolve(available, " 2025-04-30 "));
+        assertNull(SnapshotVarianceEngine.resolve(available, "2024-06-29"));
+        assertThrows(IllegalArgumentException.class, () -> SnapshotVarianceEngine.resolve(available, "2024-13"));
+        assertThrows(IllegalArgumentException.class, () -> SnapshotVarianceEngine.resolve(available, "last year"));
+    }
+
+    private SnapshotVarianceEngine.Comparison compare(SnapshotVarianceEngine.Dimension dimension) {
+        return varianceEngine.compareDates(Arrays.asList(MARCH, JUNE, SEPTEMBER), dimension);
+    }
+
+    private static List<Object> keys(SnapshotVarianceEngine.Comparison comparison) {
+        List<Object> keys = new ArrayList<>();
+        for (SnapshotVarianceEngine.VarianceRow row : comparison.getRows()) {
+            keys.add(row.getKey());
+        }
+        return keys;
+    }
+
+    private static SnapshotVarianceEngine.VarianceRow row(SnapshotVarianceEngine.Comparison comparison, Object key) {
+        for (SnapshotVarianceEngine.VarianceRow row : comparison.getRows()) {
+            if (String.valueOf(row.getKey()).equals(String.valueOf(key))) return row;
+        }
+        throw new AssertionError("No row for " + key);
+    }
+
+    private static void assertLimits(SnapshotVarianceEngine.Comparison comparison, Object key, String... limits) {
+        SnapshotVarianceEngine.VarianceRow row = row(comparison, key);
+        for (int i = 0; i < limits.length; i++) {
+            if (limits[i] == null) {
+                assertNull(row.getLimit(i), key + " in snapshot " + i);
+            } else {
+                assertAmount(limits[i], row.getLimit(i));
+            }
+        }
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertNotNull(actual);
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), expected + " != " + actual);
+    }
+
+    private GroupCompany company(String name, String country) {
+        return companyRepository.findByCompanyNameIgnoreCaseOrderById(name).stream().findFirst()
+                .orElseGet(() -> companyRepository.saveAndFlush(new GroupCompany(name, country)));
+    }
+
+    private static WorkingCapitalFacility facility(GroupCompany company, LocalDate reportDate, String bank,
+                                                   String currency, String limit) {
+        WorkingCapitalFacility facility = new WorkingCapitalFacility(bank + " " + currency, bank, "RC");
+        facility.setCurrency(currency);
+        facility.setLimitAmount(new BigDecimal(limit));
+        facility.setUtilizedAmount(BigDecimal.ZERO);
+        facility.setReportDate(reportDate);
+        facility.setCompany(company);
+        return facility;
+    }
+}
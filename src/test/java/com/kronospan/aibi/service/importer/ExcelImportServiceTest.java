@@ -0,0 +1,190 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk imports into a freshly migrated, empty database: every company is
+ * new, so the JDBC writers depend on the companies being flushed first
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:kronospandb-empty-import;DB_CLOSE_DELAY=-1",
+    "kronospan.ai.import.pipeline-workers=2",
+    "kronospan.ai.import.bulk-batch-size=16"
+})
+@ActiveProfiles("test")
+class ExcelImportServiceTest {
+
+    @Autowired
+    private ExcelImportService importService;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${kronospan.ai.import.bulk-dir}")
+    private String bulkDir;
+
+    @Test
+    void bulkWcrImportCreatesCompaniesAndQuarantinesDuplicateKeys() throws Exception {
+        writeSheet("WCR_30_06_2033.xlsx", new String[][]{
+            {"Company Name", "Facility Name", "Bank", "Type", "Currency", "Limit", "Utilized"},
+            {"Nova Panels Ltd", "PKO revolving", "PKO BP", "RC", "PLN", "2500000", "1000000"},
+            {"Nova Panels Ltd", "ING overdraft", "ING", "RC", "EUR", "400000", "100000"},
+            {"Nova Panels Ltd", "PKO revolving again", "PKO BP", "RC", "PLN", "2600000", "900000"}
+        });
+
+        Map<String, Object> summary = importService.bulkImportWCRFiles(Collections.singletonList("WCR_30_06_2033.xlsx"));
+
+        assertEquals(2L, ((Number) summary.get("rows_loaded")).longValue());
+        assertEquals(2, count("SELECT COUNT(*) FROM working_capital_facilities wcf " +
+                "JOIN group_companies gc ON gc.id = wcf.company_id " +
+                "WHERE gc.company_name = 'Nova Panels Ltd' AND wcf.report_date = ?", Date.valueOf(LocalDate.of(2033, 6, 30))));
+        // Rows as Excel numbers them: the header is row 1, the duplicate row 4 repeats row 2
+        assertEquals(1, count("SELECT COUNT(*) FROM import_quarantine " +
+                "WHERE source_file LIKE '%WCR_30_06_2033.xlsx' AND source_row = 4 AND reason LIKE 'Duplicate facility%of row 2'"));
+        assertEquals(0, new BigDecimal("2500000").compareTo(jdbcTemplate.queryForObject(
+                "SELECT limit_amount FROM working_capital_facilities WHERE report_date = ? AND bank_name = 'PKO BP'",
+                BigDecimal.class, Date.valueOf(LocalDate.of(2033, 6, 30)))));
+        assertEquals(2, count("SELECT SUM(facility_count) FROM wcf_summary_bank WHERE report_date = ?",
+                Date.valueOf(LocalDate.of(2033, 6, 30))));
+    }
+
+    @Test
+    void duplicateKeysKeepTheLowestRowWhateverOrderTheWorkersFinishIn() throws Exception {
+        int keys = 300;
+        String[][] rows = new String[keys * 2 + 1][];
+        rows[0] = new String[]{"Company Name", "Facility Name", "Bank", "Type", "Currency", "Limit", "Utilized"};
+        for (int k = 0; k < keys; k++) {
+            // Each key twice in adjacent rows, so the two transformer workers race on every pair
+            rows[2 * k + 1] = new String[]{"Order Test Ltd", "First " + k, "Bank " + k, "RC", "EUR", String.valueOf(1000 + k), "0"};
+            rows[2 * k + 2] = new String[]{"Order Test Ltd", "Second " + k, "Bank " + k, "RC", "EUR", String.valueOf(9000 + k), "0"};
+        }
+        writeSheet("WCR_30_09_2033.xlsx", rows);
+        Date reportDate = Date.valueOf(LocalDate.of(2033, 9, 30));
+
+        for (int run = 0; run < 3; run++) {
+            Map<String, Object> summary = importService.bulkImportWCRFiles(Collections.singletonList("WCR_30_09_2033.xlsx"));
+
+            assertEquals((long) keys, ((Number) summary.get("rows_loaded")).longValue());
+            assertEquals(keys, count("SELECT COUNT(*) FROM working_capital_facilities " +
+                    "WHERE report_date = ? AND facility_name LIKE 'First %' AND limit_amount < 9000", reportDate));
+            assertEquals(keys, count("SELECT COUNT(*) FROM working_capital_facilities WHERE report_date = ?", reportDate));
+            assertEquals(keys, count("SELECT SUM(facility_count) FROM wcf_summary_bank WHERE report_date = ?", reportDate));
+            // Re-importing the file replaces its earlier rejections instead of adding to them
+            assertEquals(keys, count("SELECT COUNT(*) FROM import_quarantine WHERE source_file LIKE '%WCR_30_09_2033.xlsx'"));
+        }
+    }
+
+    @Test
+    void rerunningACsvBackfillReplacesItsReportDates() throws Exception {
+        Date reportDate = Date.valueOf(LocalDate.of(2033, 12, 31));
+        for (String limit : new String[]{"700000", "700000", "850000"}) {
+            Path csv = Paths.get(bulkDir).resolve("WCR_2033_12.csv");
+            Files.createDirectories(csv.getParent());
+            Files.write(csv, Arrays.asList(
+                "COMPANY_NAME,BANK_NAME,FACILITY_TYPE,CURRENCY,REPORT_DATE,FACILITY_NAME,LIMIT_AMOUNT,UTILIZED_AMOUNT," +
+                    "UNDRAWN_AMOUNT,MATURITY_DATE,INTEREST_RATE",
+                "Csv Boards Ltd,BRD,RC,RON,2033-12-31,BRD revolving," + limit + ",100000,600000,2035-12-31,0.0650",
+                "Csv Boards Ltd,BCR,OD,RON,2033-12-31,BCR overdraft,200000,50000,150000,2034-06-30,0.0700"),
+                StandardCharsets.UTF_8);
+
+            Map<String, Object> summary = importService.bulkImportWCRCsvFiles(Collections.singletonList("WCR_2033_12.csv"));
+
+            assertEquals(2L, ((Number) summary.get("rows_loaded")).longValue());
+            assertEquals(2, count("SELECT COUNT(*) FROM working_capital_facilities WHERE report_date = ?", reportDate));
+            assertEquals(2, count("SELECT SUM(facility_count) FROM wcf_summary_bank WHERE report_date = ?", reportDate));
+            assertEquals(0, new BigDecimal(limit).add(new BigDecimal("200000")).compareTo(jdbcTemplate.queryForObject(
+                    "SELECT SUM(total_limit) FROM wcf_summary_company WHERE report_date = ?", BigDecimal.class, reportDate)));
+        }
+    }
+
+    @Test
+    void bulkLtlImportCreatesCompanies() throws Exception {
+        writeSheet("LTL_2033.xlsx", new String[][]{
+            {"Loan", "Lender", "Amount", "Outstanding", "Currency", "Company"},
+            {"NB-2033-1", "Bank Pekao", "5000000", "4200000", "PLN", "Nova Boards Sp. z o.o."}
+        });
+
+        Map<String, Object> summary = importService.bulkImportLTLFiles(Collections.singletonList("LTL_2033.xlsx"));
+
+        assertEquals(1L, ((Number) summary.get("rows_loaded")).longValue());
+        assertEquals(1, count("SELECT COUNT(*) FROM long_term_loans ltl " +
+                "JOIN group_companies gc ON gc.id = ltl.company_id " +
+                "WHERE gc.company_name = 'Nova Boards Sp. z o.o.' AND ltl.loan_reference = 'NB-2033-1'"));
+    }
+
+    @Test
+    void companiesAreMatchedByExactNameIgnoringCase() throws Exception {
+        GroupCompany existing = companyRepository.saveAndFlush(new GroupCompany("Kronospan Polska Sp. z o.o.", "Poland"));
+        writeSheet("LTL_names.xlsx", new String[][]{
+            {"Loan", "Lender", "Amount", "Outstanding", "Currency", "Company"},
+            {"KP-1", "PKO BP", "1000000", "800000", "PLN", "KRONOSPAN POLSKA SP. Z O.O."},
+            {"KP-2", "PKO BP", "2000000", "1500000", "PLN", "Kronospan Polska"}
+        });
+
+        importService.bulkImportLTLFiles(Collections.singletonList("LTL_names.xlsx"));
+
+        assertEquals(existing.getId(), jdbcTemplate.queryForObject(
+                "SELECT company_id FROM long_term_loans WHERE loan_reference = 'KP-1'", Long.class));
+        Long shortName = jdbcTemplate.queryForObject(
+                "SELECT company_id FROM long_term_loans WHERE loan_reference = 'KP-2'", Long.class);
+        assertNotEquals(existing.getId(), shortName);
+        assertEquals("Kronospan Polska", jdbcTemplate.queryForObject(
+                "SELECT company_name FROM group_companies WHERE id = ?", String.class, shortName));
+    }
+
+    @Test
+    void bulkFilesOutsideTheBulkDirectoryAreRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.bulkImportWCRFiles(Collections.singletonList("../WCR_30_06_2033.xlsx")));
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.bulkImportWCRCsvFiles(Collections.singletonList("/etc/passwd")));
+    }
+
+    private void writeSheet(String fileName, String[][] rows) throws IOException {
+        Path file = Paths.get(bulkDir).resolve(fileName);
+        Files.createDirectories(file.getParent());
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Data");
+            for (int r = 0; r < rows.length; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < rows[r].length; c++) {
+                    row.createCell(c).setCellValue(rows[r][c]);
+                }
+            }
+            workbook.write(out);
+        }
+    }
+
+    private int count(String sql, Object... args) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args);
+        return count != null ? count.intValue() : 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MERGE upsert of WCR facilities on their natural key, and the summary
+ * groups it keeps in step
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class FacilitySnapshotWriterTest {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2031, 3, 31);
+
+    @Autowired
+    private FacilitySnapshotWriter snapshotWriter;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCompany company;
+
+    @BeforeEach
+    void clearSnapshot() {
+        Date reportDate = Date.valueOf(REPORT_DATE);
+        jdbcTemplate.update("DELETE FROM working_capital_facilities WHERE report_date = ?", reportDate);
+        jdbcTemplate.update("DELETE FROM wcf_summary_bank WHERE report_date = ?", reportDate);
+        jdbcTemplate.update("DELETE FROM wcf_summary_company WHERE report_date = ?", reportDate);
+        company = companyRepository.findByCompanyNameIgnoreCaseOrderById("Merge Test Holdings").stream().findFirst()
+                .orElseGet(() -> companyRepository.saveAndFlush(new GroupCompany("Merge Test Holdings", "Cyprus")));
+    }
+
+    @Test
+    void reimportingUnchangedRowsChangesNothing() {
+        assertEquals(2, merge(facility("PKO", "RC", "PLN", "1000000"), facility("PKO", "RC", "EUR", "250000")));
+        assertEquals(0, merge(facility("PKO", "RC", "PLN", "1000000"), facility("PKO", "RC", "EUR", "250000")));
+
+        assertEquals(2, countFacilities());
+    }
+
+    @Test
+    void changedRowIsUpdatedInPlaceAndItsSummaryGroupsRefreshed() {
+        merge(facility("PKO", "RC", "PLN", "1000000"), facility("PKO", "RC", "EUR", "250000"));
+        Long id = jdbcTemplate.queryForObject(
+                "SELECT id FROM working_capital_facilities WHERE report_date = ? AND currency = 'PLN'",
+                Long.class, Date.valueOf(REPORT_DATE));
+
+        assertEquals(1, merge(facility("PKO", "RC", "PLN", "1500000"), facility("PKO", "RC", "EUR", "250000")));
+
+        assertEquals(2, countFacilities());
+        Map<String, Object> updated = jdbcTemplate.queryForMap(
+                "SELECT id, limit_amount FROM working_capital_facilities WHERE report_date = ? AND currency = 'PLN'",
+                Date.valueOf(REPORT_DATE));
+        assertEquals(id, ((Number) updated.get("ID")).longValue());
+        assertEquals(0, new BigDecimal("1500000").compareTo((BigDecimal) updated.get("LIMIT_AMOUNT")));
+
+        BigDecimal bankTotal = jdbcTemplate.queryForObject(
+                "SELECT total_limit FROM wcf_summary_bank WHERE report_date = ? AND bank_name = 'PKO' AND currency = 'PLN'",
+                BigDecimal.class, Date.valueOf(REPORT_DATE));
+        assertEquals(0, new BigDecimal("1500000").compareTo(bankTotal));
+        BigDecimal companyTotal = jdbcTemplate.queryForObject(
+                "SELECT total_limit FROM wcf_summary_company WHERE report_date = ? AND company_id = ?",
+                BigDecimal.class, Date.valueOf(REPORT_DATE), company.getId());
+        assertEquals(0, new BigDecimal("1750000").compareTo(companyTotal));
+    }
+
+    @Test
+    void facilityWithoutSavedCompanyIsRefused() {
+        WorkingCapitalFacility unsaved = facility("PKO", "RC", "PLN", "1000000");
+        unsaved.setCompany(new GroupCompany("Not Saved Ltd", "Cyprus"));
+
+        assertThrows(IllegalArgumentException.class, () -> merge(unsaved));
+        assertEquals(0, countFacilities());
+    }
+
+    private int merge(WorkingCapitalFacility... facilities) {
+        List<WorkingCapitalFacility> batch = Arrays.asList(facilities);
+        Integer changed = new TransactionTemplate(transactionManager).execute(status -> snapshotWriter.mergeBatch(batch));
+        return changed != null ? changed : 0;
+    }
+
+    private WorkingCapitalFacility facility(String bank, String type, String currency, String limit) {
+        WorkingCapitalFacility facility = new WorkingCapitalFacility(bank + " " + type + " " + currency, bank, type);
+        facility.setCurrency(currency);
+        facility.setLimitAmount(new BigDecimal(limit));
+        facility.setUtilizedAmount(BigDecimal.ZERO);
+        facility.setReportDate(REPORT_DATE);
+        facility.setCompany(company);
+        return facility;
+    }
+
+    private int countFacilities() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM working_capital_facilities WHERE report_date = ?",
+                Integer.class, Date.valueOf(REPORT_DATE));
+        return count != null ? count : 0;
+    }
+}
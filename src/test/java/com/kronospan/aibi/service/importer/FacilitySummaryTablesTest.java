@@ -0,0 +1,137 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.WorkingCapitalFacility;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Summary deltas added for bulk-inserted facilities must equal what a full
+ * re-aggregation of the report date produces
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class FacilitySummaryTablesTest {
+
+    private static final LocalDate REPORT_DATE = LocalDate.of(2031, 9, 30);
+
+    private static final String BANK_ROWS =
+        "SELECT bank_name, currency, facility_count, total_limit, limit_count, total_utilized, max_limit, " +
+        "utilization_sum, utilization_count FROM wcf_summary_bank WHERE report_date = ? ORDER BY bank_name, currency";
+
+    private static final String COMPANY_ROWS =
+        "SELECT company_id, facility_count, total_limit, limit_count, total_utilized, utilization_sum, utilization_count " +
+        "FROM wcf_summary_company WHERE report_date = ? ORDER BY company_id";
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private FacilitySummaryTables summaryTables;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCompany first;
+    private GroupCompany second;
+
+    @BeforeEach
+    void clearSnapshot() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> bulkLoader.deleteFacilitySnapshot(REPORT_DATE));
+        first = company("Delta Test Holdings");
+        second = company("Delta Test Boards");
+    }
+
+    @Test
+    void insertedDeltasMatchReaggregation() {
+        insert(facility(first, "PKO", "RC", "PLN", "1000000.00", "400000.00"),
+               facility(first, "PKO", "RC", "EUR", "250000.00", "250000.00"),
+               facility(second, "ING", "OD", "EUR", "500000.00", "0.00"));
+        // Second batch adds to existing groups, including rows without a limit or utilization
+        insert(facility(second, "PKO", "GUAR", "PLN", "750000.50", "125000.25"),
+               facility(first, "ING", "RC", "EUR", null, "10000.00"),
+               facility(second, "ING", "LC", "EUR", "300000.00", null));
+
+        List<Map<String, Object>> bankDeltas = rows(BANK_ROWS);
+        List<Map<String, Object>> companyDeltas = rows(COMPANY_ROWS);
+        assertEquals(3, bankDeltas.size());
+        assertEquals(2, companyDeltas.size());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+            status -> summaryTables.rebuildReportDates(Collections.singletonList(REPORT_DATE)));
+
+        assertRowsEqual(rows(BANK_ROWS), bankDeltas);
+        assertRowsEqual(rows(COMPANY_ROWS), companyDeltas);
+    }
+
+    private void insert(WorkingCapitalFacility... facilities) {
+        List<WorkingCapitalFacility> batch = Arrays.asList(facilities);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> bulkLoader.insertFacilities(batch));
+    }
+
+    private List<Map<String, Object>> rows(String sql) {
+        return jdbcTemplate.queryForList(sql, Date.valueOf(REPORT_DATE));
+    }
+
+    /**
+     * Same groups with the same values; decimals are compared by value, not scale
+     */
+    private static void assertRowsEqual(List<Map<String, Object>> expected, List<Map<String, Object>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (Map.Entry<String, Object> column : expected.get(i).entrySet()) {
+                Object want = column.getValue();
+                Object got = actual.get(i).get(column.getKey());
+                if (want instanceof BigDecimal && got instanceof BigDecimal) {
+                    assertEquals(0, ((BigDecimal) want).compareTo((BigDecimal) got), "row " + i + " " + column.getKey());
+                } else {
+                    assertEquals(want, got, "row " + i + " " + column.getKey());
+                }
+            }
+        }
+    }
+
+    private GroupCompany company(String name) {
+        return companyRepository.findByCompanyNameIgnoreCaseOrderById(name).stream().findFirst()
+                .orElseGet(() -> companyRepository.saveAndFlush(new GroupCompany(name, "Cyprus")));
+    }
+
+    private static WorkingCapitalFacility facility(GroupCompany company, String bank, String type, String currency,
+                                                   String limit, String utilized) {
+        WorkingCapitalFacility facility = new WorkingCapitalFacility(bank + " " + type + " " + currency, bank, type);
+        facility.setCurrency(currency);
+        facility.setLimitAmount(limit != null ? new BigDecimal(limit) : null);
+        facility.setUtilizedAmount(utilized != null ? new BigDecimal(utilized) : null);
+        if (limit != null && utilized != null && new BigDecimal(limit).signum() > 0) {
+            facility.setUtilizationPercentage(new BigDecimal(utilized).multiply(BigDecimal.valueOf(100))
+                    .divide(new BigDecimal(limit), 2, RoundingMode.HALF_UP));
+        }
+        facility.setReportDate(REPORT_DATE);
+        facility.setCompany(company);
+        return facility;
+    }
+}
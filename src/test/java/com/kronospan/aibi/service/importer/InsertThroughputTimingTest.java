@@ -0,0 +1,116 @@
+package com.kronospan.aibi.service.importer;
+
+import com.kronospan.aibi.model.GroupCompany;
+import com.kronospan.aibi.model.LongTermLoan;
+import com.kronospan.aibi.repository.GroupCompanyRepository;
+import com.kronospan.aibi.repository.LongTermLoanRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput of the loan table, before and after pooled sequence ids:
+ * one INSERT per persist (what IDENTITY ids forced), JPA batching on pooled
+ * ids, and the multi-row JDBC writer the bulk import uses.
+ *
+ * Run with: mvn test -Dtest=InsertThroughputTimingTest -Dkronospan.timing=true
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:kronospandb-insert-timing;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "kronospan.timing", matches = "true")
+class InsertThroughputTimingTest {
+
+    private static final int ROWS = 20_000;
+
+    @Autowired
+    private LongTermLoanRepository loanRepository;
+
+    @Autowired
+    private GroupCompanyRepository companyRepository;
+
+    @Autowired
+    private BulkSnapshotLoader bulkLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void compareInsertPaths() {
+        GroupCompany company = companyRepository.saveAndFlush(new GroupCompany("Throughput Holdings", "Cyprus"));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Warm up every path once so the first measurement does not pay for class loading and JIT
+        for (int run = 0; run < 2; run++) {
+            boolean report = run == 1;
+
+            List<LongTermLoan> perRow = loans(company, "ROW-" + run);
+            measure("insert per persist", report, () -> transaction.executeWithoutResult(status -> {
+                for (LongTermLoan loan : perRow) {
+                    entityManager.persist(loan);
+                    // An IDENTITY id is only known after its INSERT; detach so the
+                    // comparison is not skewed by dirty checking a growing context
+                    entityManager.flush();
+                    entityManager.detach(loan);
+                }
+            }));
+
+            List<LongTermLoan> batched = loans(company, "JPA-" + run);
+            measure("JPA batch, pooled ids", report, () -> transaction.executeWithoutResult(status -> {
+                loanRepository.saveAll(batched);
+                entityManager.flush();
+                entityManager.clear();
+            }));
+
+            List<LongTermLoan> multiRow = loans(company, "JDBC-" + run);
+            measure("JDBC multi-row", report, () -> transaction.executeWithoutResult(status -> bulkLoader.insertLoans(multiRow)));
+        }
+
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM long_term_loans WHERE company_id = ?", Long.class, company.getId());
+        assertEquals(6L * ROWS, rows != null ? rows : 0L);
+    }
+
+    private void measure(String path, boolean report, Runnable insert) {
+        long start = System.nanoTime();
+        insert.run();
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%-22s %,8d rows in %,6d ms = %,9.0f rows/s%n", path, ROWS, nanos / 1_000_000, ROWS * 1e9 / nanos);
+        }
+    }
+
+    private List<LongTermLoan> loans(GroupCompany company, String prefix) {
+        List<LongTermLoan> loans = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            LongTermLoan loan = new LongTermLoan();
+            loan.setLoanReference(prefix + "-" + i);
+            loan.setLenderName("Bank " + (i % 50));
+            loan.setLoanType("Term Loan");
+            loan.setCurrency("EUR");
+            loan.setOriginalAmount(BigDecimal.valueOf(1_000_000L + i));
+            loan.setOutstandingAmount(BigDecimal.valueOf(750_000L + i));
+            loan.setCompany(company);
+            loans.add(loan);
+        }
+        return loans;
+    }
+}